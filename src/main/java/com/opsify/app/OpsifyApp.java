@@ -5,6 +5,7 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
+import com.opsify.features.audio.converter.utils.FfmpegWarmup;
 import com.opsify.utils.Constants;
 
 import java.util.Objects;
@@ -25,6 +26,8 @@ public class OpsifyApp extends Application {
         stage.getIcons().add(image);
         stage.setScene(scene);
         stage.show();
+        // Native FFmpeg loading takes seconds on a cold start; do it while the user picks a tool
+        FfmpegWarmup.warmUpInBackground();
     }
 
     public static void main(String[] args) {
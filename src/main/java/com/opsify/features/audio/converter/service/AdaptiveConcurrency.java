@@ -0,0 +1,214 @@
+package com.opsify.features.audio.converter.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tunes the number of active engine workers while a job runs, by hill climbing on measured throughput.
+ * <p>
+ * Every few seconds it compares the seconds of audio decoded per wall-clock second with the previous interval:
+ * while throughput improves it keeps stepping in the same direction, one worker at a time; when it drops it turns
+ * around, and on a plateau it stays put, unless the CPUs mostly wait on I/O, in which case it sheds a worker.
+ * It never adds a worker while the CPUs are saturated. Throughput only counts re-encoded audio, so a job that
+ * only remuxes or copies keeps its worker count.
+ */
+@Slf4j
+final class AdaptiveConcurrency implements Closeable {
+
+    static final long INTERVAL_MILLIS = 3000;
+    /** Relative throughput change that counts as better or worse rather than noise. */
+    static final double SIGNIFICANT_CHANGE = 0.05;
+    /** Share of CPU time spent waiting on I/O above which a plateau means the disk is the bottleneck. */
+    static final double HIGH_IO_WAIT = 0.25;
+    /** CPU utilisation above which adding a worker only adds contention. */
+    static final double SATURATED_CPU = 0.95;
+
+    /** Measurements of one interval: audio seconds per second, and CPU busy and I/O wait shares from 0 to 1. */
+    record Sample(double throughput, double cpu, double ioWait) {}
+
+    /** Worker count for the next interval, the direction to keep climbing in, and why. */
+    record Decision(int workers, int direction, String reason) {}
+
+    private final ConversionEngine engine;
+    private final SamplePumpMetrics metrics;
+    private final ConversionListener listener;
+    private final SystemLoad load = new SystemLoad();
+    private final ScheduledExecutorService timer;
+    private int direction = 1;
+    private double lastThroughput;
+    private long lastAudioMicros;
+    private long lastNanos;
+    private boolean closed;
+
+    private AdaptiveConcurrency(ConversionEngine engine, SamplePumpMetrics metrics, ConversionListener listener) {
+        this.engine = engine;
+        this.metrics = metrics;
+        this.listener = listener;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "audio-convert-tuner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts at half the engine's parallelism, or where the tuner of another job running on the same engine has
+     * got to, and adjusts it until {@link #close()}.
+     */
+    static AdaptiveConcurrency start(ConversionEngine engine, SamplePumpMetrics metrics, ConversionListener listener) {
+        AdaptiveConcurrency tuner = new AdaptiveConcurrency(engine, metrics, listener);
+        int initial = engine.startTuning(Math.max(1, engine.getParallelism() / 2));
+        log.info("Adaptive concurrency: starting with {} of {} workers", initial, engine.getParallelism());
+        if (listener != null) listener.onWorkersChanged(initial, "starting point");
+        tuner.lastAudioMicros = metrics.decodedAudioMicros();
+        tuner.lastNanos = System.nanoTime();
+        tuner.load.sample();
+        tuner.timer.scheduleWithFixedDelay(tuner::tick, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        return tuner;
+    }
+
+    private void tick() {
+        try {
+            long now = System.nanoTime();
+            long audio = metrics.decodedAudioMicros();
+            double throughput = (audio - lastAudioMicros) * 1000.0 / Math.max(1, now - lastNanos);
+            lastAudioMicros = audio;
+            lastNanos = now;
+            double[] cpu = load.sample();
+            Sample sample = new Sample(throughput, cpu[0], cpu[1]);
+
+            int workers = engine.getActiveWorkers();
+            Decision decision = decide(workers, engine.getParallelism(), direction, lastThroughput, sample);
+            direction = decision.direction();
+            // An idle interval says nothing about the worker count; keep comparing against the last busy one
+            if (throughput > 0) lastThroughput = throughput;
+            if (decision.workers() != workers) {
+                engine.setActiveWorkers(decision.workers());
+                log.info("Adaptive concurrency: {} -> {} workers, {} ({})",
+                        workers, decision.workers(), decision.reason(), describe(sample));
+                if (listener != null) listener.onWorkersChanged(decision.workers(), decision.reason());
+            } else {
+                log.debug("Keeping {} workers: {} ({})", workers, decision.reason(), describe(sample));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Worker tuning failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * One hill-climbing step.
+     *
+     * @param workers        active workers during the measured interval
+     * @param max            upper limit for the worker count
+     * @param direction      +1 or -1, the direction of the last step
+     * @param lastThroughput throughput of the previous busy interval, 0 if none
+     */
+    static Decision decide(int workers, int max, int direction, double lastThroughput, Sample now) {
+        if (now.throughput() <= 0) return new Decision(workers, direction, "no audio decoded");
+        String reason;
+        if (lastThroughput <= 0) {
+            reason = "first measurement";
+        } else {
+            double change = (now.throughput() - lastThroughput) / lastThroughput;
+            if (change > SIGNIFICANT_CHANGE) {
+                reason = "throughput improved";
+            } else if (change < -SIGNIFICANT_CHANGE) {
+                direction = -direction;
+                reason = "throughput dropped";
+            } else if (now.ioWait() > HIGH_IO_WAIT) {
+                direction = -1;
+                reason = "waiting on I/O";
+            } else {
+                return new Decision(workers, direction, "throughput stable");
+            }
+        }
+        if (direction > 0 && now.cpu() >= SATURATED_CPU) return new Decision(workers, direction, "CPU saturated");
+        int next = Math.max(1, Math.min(max, workers + direction));
+        if (next == workers) return new Decision(workers, direction, reason + ", at limit");
+        return new Decision(next, direction, reason);
+    }
+
+    private static String describe(Sample sample) {
+        return String.format("%.1f s audio/s, CPU %.0f%%, I/O wait %.0f%%",
+                sample.throughput(), sample.cpu() * 100, sample.ioWait() * 100);
+    }
+
+    /**
+     * Stops tuning, waiting for a step already under way so it cannot overwrite the reset, and gives the engine
+     * its full parallelism back unless another job's tuner is still running on it.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        timer.shutdownNow();
+        try {
+            if (!timer.awaitTermination(INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("Worker tuner did not stop within {} ms", INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!engine.stopTuning()) log.debug("Adaptive concurrency: another job keeps tuning the workers");
+    }
+
+    /**
+     * System-wide CPU utilisation and I/O wait between two calls, from {@code /proc/stat} where it exists.
+     * Elsewhere the JVM's CPU load is used and I/O wait reads as 0.
+     */
+    static final class SystemLoad {
+        private static final Path PROC_STAT = Path.of("/proc/stat");
+        private long lastTotal;
+        private long lastIdle;
+        private long lastIoWait;
+
+        /** @return CPU busy share and I/O wait share since the previous call */
+        double[] sample() {
+            long[] ticks = readProcStat();
+            if (ticks == null) return new double[] {osCpuLoad(), 0};
+            long total = 0;
+            for (int i = 0; i < Math.min(8, ticks.length); i++) total += ticks[i];
+            long idle = ticks[3];
+            long ioWait = ticks.length > 4 ? ticks[4] : 0;
+            long dTotal = total - lastTotal;
+            double[] shares = dTotal <= 0 ? new double[] {0, 0} : new double[] {
+                    1.0 - (double) (idle - lastIdle + ioWait - lastIoWait) / dTotal,
+                    (double) (ioWait - lastIoWait) / dTotal};
+            lastTotal = total;
+            lastIdle = idle;
+            lastIoWait = ioWait;
+            return shares;
+        }
+
+        /** Jiffies of the aggregate "cpu" line: user, nice, system, idle, iowait, irq, softirq, steal... */
+        private static long[] readProcStat() {
+            try {
+                if (!Files.isReadable(PROC_STAT)) return null;
+                String line = Files.readAllLines(PROC_STAT).get(0);
+                if (!line.startsWith("cpu ")) return null;
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length < 5) return null;
+                long[] ticks = new long[fields.length - 1];
+                for (int i = 1; i < fields.length; i++) ticks[i - 1] = Long.parseLong(fields[i]);
+                return ticks;
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        private static double osCpuLoad() {
+            if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+                return Math.max(0, os.getCpuLoad());
+            }
+            return 0;
+        }
+    }
+}
@@ -3,11 +3,66 @@ package com.opsify.features.audio.converter.service;
 import lombok.NonNull;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
+import java.util.List;
 
 public interface AudioConverterService {
-    void convert(@NonNull Path input,
-                 @NonNull Path outputDir,
-                 @NonNull String targetExt,
-                 ConversionListener listener) throws IOException;
+    /**
+     * Starts converting every audio file below {@code input} into each target, decoding every source only once,
+     * and returns without waiting. Targets need distinct output roots. Listener totals and counters count
+     * outputs, i.e. files times targets; callbacks arrive on worker threads.
+     */
+    ConversionJob start(@NonNull Path input,
+                        @NonNull List<ConversionTarget> targets,
+                        @NonNull ConversionOptions options,
+                        ConversionListener listener);
+
+    /** Blocking form of {@link #start}: returns once every file is processed. */
+    default void convert(@NonNull Path input,
+                         @NonNull List<ConversionTarget> targets,
+                         @NonNull ConversionOptions options,
+                         ConversionListener listener) throws IOException {
+        start(input, targets, options, listener).await();
+    }
+
+    default void convert(@NonNull Path input,
+                         @NonNull Path outputDir,
+                         @NonNull String targetExt,
+                         @NonNull ConversionOptions options,
+                         ConversionListener listener) throws IOException {
+        convert(input, List.of(new ConversionTarget(outputDir, targetExt)), options, listener);
+    }
+
+    default void convert(@NonNull Path input,
+                         @NonNull Path outputDir,
+                         @NonNull String targetExt,
+                         ConversionListener listener) throws IOException {
+        convert(input, outputDir, targetExt, ConversionOptions.defaults(), listener);
+    }
+
+    /**
+     * Converts the audio of one source read from {@code input} and writes it to {@code output} as
+     * {@code targetExt}, without staging either side on disk. Runs on the calling thread and leaves both streams
+     * open. The input is read front to back without seeking, so sources that need seeking to be read (mp4 with
+     * its index at the end) fail. Targets are mp3, aac, m4a (written as fragmented mp4), flac,
+     * ogg, opus, wav and mka.
+     *
+     * @throws IOException if the input cannot be decoded or {@code targetExt} cannot be written to a stream
+     */
+    void transcode(@NonNull InputStream input,
+                   @NonNull OutputStream output,
+                   @NonNull String targetExt,
+                   @NonNull ConversionOptions options) throws IOException;
+
+    /** {@link #transcode(InputStream, OutputStream, String, ConversionOptions)} for a channel source. */
+    default void transcode(@NonNull ReadableByteChannel input,
+                           @NonNull OutputStream output,
+                           @NonNull String targetExt,
+                           @NonNull ConversionOptions options) throws IOException {
+        transcode(Channels.newInputStream(input), output, targetExt, options);
+    }
 }
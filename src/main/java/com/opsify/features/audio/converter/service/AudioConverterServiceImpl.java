@@ -1,184 +1,645 @@
 package com.opsify.features.audio.converter.service;
 
+import com.opsify.features.audio.converter.utils.AudioProbe;
+import com.opsify.features.audio.converter.utils.CodecCompatibility;
+import com.opsify.features.audio.converter.utils.CueSheet;
+import com.opsify.features.audio.converter.utils.FfmpegWarmup;
 import com.opsify.features.audio.converter.utils.PathAudioUtil;
+import com.opsify.utils.OutputReservations;
+import com.opsify.utils.OutputReservations.NameStyle;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.FFmpegFrameRecorder;
-import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.FrameRecorder;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.opsify.features.audio.converter.utils.PathAudioUtil.*;
 import static org.bytedeco.ffmpeg.global.avcodec.*;
+import static org.bytedeco.ffmpeg.global.avutil.AVMEDIA_TYPE_AUDIO;
+import static org.bytedeco.ffmpeg.global.avutil.AV_SAMPLE_FMT_FLT;
+import static org.bytedeco.ffmpeg.global.avutil.AV_SAMPLE_FMT_S32;
 
 @Slf4j
 public class AudioConverterServiceImpl implements AudioConverterService {
 
+    /** Bit rate assumed when estimating the duration of a file FFmpeg cannot probe. */
+    private static final long FALLBACK_BIT_RATE = 192_000;
+
+    private final ConversionEngine engine;
+    private final SamplePumpMetrics pumpMetrics = new SamplePumpMetrics();
+    private final SegmentedEncoder segmentedEncoder;
+    /** Set by the first job of this service, which logs its start-up latencies. */
+    private final AtomicBoolean firstJobStarted = new AtomicBoolean();
+
+    public AudioConverterServiceImpl() {
+        this(ConversionEngine.createDefault());
+    }
+
+    /** Converter pinned to {@code parallelism} workers. */
+    public AudioConverterServiceImpl(int parallelism) {
+        this(new ConversionEngine(parallelism, parallelism * 4));
+    }
+
+    public AudioConverterServiceImpl(@NonNull ConversionEngine engine) {
+        this.engine = engine;
+        this.segmentedEncoder = new SegmentedEncoder(engine, pumpMetrics);
+    }
+
+    /** Allocation and GC counters of the re-encode loop, cumulative across jobs. */
+    public SamplePumpMetrics getSamplePumpMetrics() {
+        return pumpMetrics;
+    }
+
     @Override
-    public void convert(@NonNull Path input,
-                        @NonNull Path outputDir,
-                        @NonNull String targetExt,
-                        ConversionListener listener) throws IOException {
-        log.info("Starting conversion: input={}, outputDir={}, targetExt={}", input, outputDir, targetExt);
+    public ConversionJob start(@NonNull Path input,
+                               @NonNull List<ConversionTarget> targets,
+                               @NonNull ConversionOptions options,
+                               ConversionListener listener) {
+        checkTargets(targets);
+        ConversionJob handle = new ConversionJob(input.toString());
+        // Only discovers and waits; the files themselves are converted on the engine's workers
+        Thread runner = new Thread(() -> {
+            Throwable failure = null;
+            try {
+                run(input, targets, options, listener, handle);
+            } catch (Throwable e) {
+                failure = e;
+            }
+            handle.finished(failure);
+        }, "audio-convert-job");
+        runner.setDaemon(true);
+        runner.start();
+        return handle;
+    }
 
-        ensureDir(outputDir);
-        List<Path> files = collectAudioFiles(input);
-        final int total = files.size();
-        if (total == 0) {
-            throw new IOException("No audio files found in: " + input);
-        }
+    private void run(Path input, List<ConversionTarget> targets, ConversionOptions options,
+                     ConversionListener listener, ConversionJob handle) throws IOException {
+        long started = System.nanoTime();
+        long nativeWait = FfmpegWarmup.awaitReady();
+        if (nativeWait > 0) log.info("Waited {} ms for FFmpeg native libraries", TimeUnit.NANOSECONDS.toMillis(nativeWait));
+        log.info("Starting conversion: input={}, targets={}, workers={}, incremental={}",
+                input, describe(targets), engine.getParallelism(), options.isIncremental());
 
-        if (listener != null) listener.onStart(total);
+        SamplePumpMetrics.Snapshot pumpStart = pumpMetrics.snapshot();
+        try (JobContext ctx = JobContext.open(input, targets, options, listener, handle, engine.getParallelism());
+             AdaptiveConcurrency ignored = options.isAdaptiveConcurrency()
+                     ? AdaptiveConcurrency.start(engine, pumpMetrics, listener) : null) {
+            if (!firstJobStarted.getAndSet(true)) ctx.timeFirstOutput(started, nativeWait);
+            ConversionEngine.Job job = engine.newJob(input.toString());
+            try {
+                try {
+                    if (options.isLongestFirst()) {
+                        submitLongestFirst(ctx, job);
+                    } else {
+                        // Workers start on the first discovered file; submit blocks while the job's queue is full
+                        discoverAudioFiles(input, ctx.outputRoots(), p -> {
+                            handle.checkpoint();
+                            ctx.fileDiscovered();
+                            job.submit(() -> processFile(ctx, p));
+                        });
+                    }
+                } catch (CancellationException e) {
+                    // Files already submitted still run, if only to see the cancel and clean up
+                    job.awaitCompletion();
+                    throw e;
+                }
+                int total = ctx.discoveryFinished();
+                if (total == 0) {
+                    throw new IOException("No audio files found in: " + input);
+                }
+                job.awaitCompletion();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Conversion interrupted: " + input, e);
+            } catch (CancellationException e) {
+                log.info("Cancelled conversion for {} ({} of {} done)", input, ctx.done.get(), ctx.total);
+                throw e;
+            }
+            if (handle.isCancelled()) {
+                log.info("Cancelled conversion for {} ({} of {} done)", input, ctx.done.get(), ctx.total);
+                throw new CancellationException("Conversion cancelled: " + input);
+            }
 
-        AtomicInteger done = new AtomicInteger(0);
+            log.info("Finished conversion for {} ({} of {} done)", input, ctx.done.get(), ctx.total);
+            SamplePumpMetrics.Snapshot pumped = pumpMetrics.snapshot().since(pumpStart);
+            if (pumped.files() > 0) log.info("Sample pump for {}: {}", input, pumped);
+        }
+    }
 
-        files.parallelStream()
-                .forEach(p -> processFile(input, outputDir, targetExt, listener, p, done, total));
+    /**
+     * Finds every input first, estimates its work and submits the longest first, so short files fill the
+     * gaps at the end of the batch instead of a long one running alone.
+     */
+    private void submitLongestFirst(JobContext ctx, ConversionEngine.Job job) throws IOException, InterruptedException {
+        List<Path> files = new ArrayList<>();
+        discoverAudioFiles(ctx.input, ctx.outputRoots(), p -> {
+            ctx.handle.checkpoint();
+            files.add(p);
+        });
+        long probeStart = System.nanoTime();
+        Map<Path, Long> work = estimateWork(files, ctx.handle);
+        // Stable, so equal estimates keep discovery order
+        files.sort(Comparator.comparingLong((Path p) -> work.get(p)).reversed());
+        log.info("Probed {} files in {} ms, longest first: {}", files.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - probeStart), files.isEmpty() ? "-" : files.get(0));
 
-        log.info("Finished conversion for {} ({} of {} done)", input, done.get(), total);
+        ctx.workEstimated(work, files.size());
+        for (Path p : files) {
+            ctx.handle.checkpoint();
+            job.submit(() -> processFile(ctx, p));
+        }
     }
 
-    private void processFile(Path input, Path outputDir, String targetExt, ConversionListener listener, Path p, AtomicInteger done, int total) {
+    /** Estimates every file's work on the engine's workers, which are idle until the batch is submitted. */
+    private Map<Path, Long> estimateWork(List<Path> files, ConversionJob handle) throws InterruptedException {
+        Map<Path, Long> work = new ConcurrentHashMap<>();
+        ConversionEngine.Job probes = engine.newJob("probe");
         try {
-            Path out = mapToOutput(input, p, outputDir, targetExt);
-            out = unique(out);
-            ensureParent(out);
+            for (Path p : files) {
+                handle.checkpoint();
+                probes.submit(() -> work.put(p, estimateWork(p)));
+            }
+        } finally {
+            probes.awaitCompletion();
+        }
+        return work;
+    }
 
-            this.transcodeAudio(p, out, targetExt);
+    /**
+     * Work of converting {@code file}, in microseconds of audio. Without a duration in the header it is
+     * derived from the file size at the header's bit rate, or at {@link #FALLBACK_BIT_RATE}.
+     */
+    static long estimateWork(Path file) {
+        long size = 0;
+        try {
+            size = Files.size(file);
+            AudioProbe.StreamInfo info = AudioProbe.streamInfo(file);
+            if (info.durationMicros() > 0) return info.durationMicros();
+            if (info.bitRate() > 0) return Math.max(1, size * 8_000_000L / info.bitRate());
+        } catch (IOException e) {
+            log.debug("Could not probe {}: {}", file, e.getMessage());
+        }
+        return Math.max(1, size * 8_000_000L / FALLBACK_BIT_RATE);
+    }
 
-            int current = done.incrementAndGet();
-            log.info("Converted file: {} -> {}", p, out);
-            if (listener != null) listener.onFileDone(p, out, current, total);
+    /** Rejects empty target lists and targets sharing an output root, whose manifests would collide. */
+    private static void checkTargets(List<ConversionTarget> targets) {
+        if (targets.isEmpty()) throw new IllegalArgumentException("At least one conversion target is required");
+        Set<Path> roots = new HashSet<>();
+        for (ConversionTarget target : targets) {
+            if (!roots.add(target.outputDir().toAbsolutePath().normalize())) {
+                throw new IllegalArgumentException("Conversion targets need distinct output roots: " + target.outputDir());
+            }
+        }
+    }
 
+    private static String describe(List<ConversionTarget> targets) {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (ConversionTarget target : targets) joiner.add(target.targetExt() + " -> " + target.outputDir());
+        return joiner.toString();
+    }
+
+    private void processFile(JobContext ctx, Path p) {
+        try {
+            ctx.handle.checkpoint();
+        } catch (CancellationException e) {
+            return;
+        }
+        long started = System.nanoTime();
+        boolean useHash = ctx.options.isContentHash();
+        ConversionManifest.Fingerprint fingerprint = null;
+        List<PendingOutput> pending = new ArrayList<>(ctx.targets.size());
+        boolean image = ctx.options.isSplitCue() && CueSheet.companionOf(p) != null;
+
+        for (TargetContext target : ctx.targets) {
+            try {
+                Path out = null;
+                if (target.manifest != null) {
+                    Path upToDate = target.manifest.findUpToDate(p, target.settings, useHash);
+                    if (upToDate != null) {
+                        ctx.skipped(p, upToDate);
+                        target.report(p, upToDate, "skipped", null, 0, null);
+                        continue;
+                    }
+                    // Shared by all targets, so a content hash is computed at most once per source
+                    if (fingerprint == null) fingerprint = ConversionManifest.fingerprint(p, useHash);
+                    Path previous = target.manifest.previousOutput(p);
+                    if (previous != null && (image ? Files.isDirectory(previous)
+                            : ext(previous).equalsIgnoreCase(target.targetExt))) out = previous;
+                }
+                if (out == null) {
+                    Path desired = mapToOutput(ctx.input, p, target.outputDir, target.targetExt);
+                    ensureParent(desired);
+                    out = image
+                            ? ctx.reservations.reserveDirectory(trackDirectory(desired), NameStyle.PARENTHESIZED)
+                            : ctx.reservations.reserve(desired, NameStyle.PARENTHESIZED);
+                } else {
+                    ensureParent(out);
+                }
+                pending.add(new PendingOutput(target, out));
+            } catch (Exception e) {
+                ctx.failed(p, e);
+                target.report(p, null, "failed", null, 0, e);
+            }
+        }
+        if (pending.isEmpty()) return;
+
+        Map<Path, String> outputs = new LinkedHashMap<>();
+        for (PendingOutput o : pending) outputs.put(o.output(), o.target().targetExt);
+        Map<Path, IOException> failures;
+        FileStats stats = new FileStats();
+        try {
+            if (ctx.workers != null) {
+                failures = ctx.workers.transcodeToAll(p, outputs, ctx.options, ctx.handle, stats);
+                if (!stats.mode.equals("copy") && !stats.mode.equals("remux")) pumpMetrics.decodedElsewhere(stats.durationMicros);
+            } else {
+                failures = this.transcodeToAll(p, outputs, ctx.options, ctx.handle, stats);
+            }
+        } catch (CancellationException e) {
+            for (PendingOutput o : pending) deletePartial(o.output());
+            return;
         } catch (Exception e) {
-            int current = done.incrementAndGet();
-            log.error("Failed to convert {}: {}", p, e.getMessage());
-            if (listener != null) listener.onError(p, e, current, total);
+            long elapsed = System.nanoTime() - started;
+            for (PendingOutput o : pending) {
+                ctx.reservations.release(o.output());
+                ctx.failed(p, e);
+                o.target().report(p, null, "failed", stats, elapsed, e);
+            }
+            return;
+        }
+        long elapsed = System.nanoTime() - started;
+
+        for (PendingOutput o : pending) {
+            IOException failure = failures.get(o.output());
+            if (failure != null) {
+                ctx.reservations.release(o.output());
+                ctx.failed(p, failure);
+                o.target().report(p, null, "failed", stats, elapsed, failure);
+                continue;
+            }
+            try {
+                ConversionManifest manifest = o.target().manifest;
+                if (manifest != null) manifest.record(p, fingerprint, o.output(), o.target().settings);
+                ctx.converted(p, o.output());
+                o.target().report(p, o.output(), "converted", stats, elapsed, null);
+                reportFirstOutput(ctx);
+            } catch (Exception e) {
+                ctx.failed(p, e);
+            }
         }
     }
 
+    /** Containers whose muxer writes arbitrary tags, so ReplayGain tags survive. */
+    private static final Set<String> LOUDNESS_TAG_FORMATS = Set.of("mp3", "flac", "ogg", "oga", "opus", "mka");
+
+    /** Directory for the tracks of an image whose single output would be {@code output}: its name without extension. */
+    private static Path trackDirectory(Path output) {
+        String name = output.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return output.resolveSibling(dot > 0 ? name.substring(0, dot) : name);
+    }
+
     /**
-     * Recursively collects all audio files under a directory or single file.
+     * Removes what a cancelled or crashed conversion left behind: the file, or the track directory of a split
+     * image with every track in it. Finished outputs of other files are untouched.
      */
-    private List<Path> collectAudioFiles(Path input) throws IOException {
-        List<Path> result = new ArrayList<>();
-        if (Files.isRegularFile(input) && PathAudioUtil.isAudio(input)) {
-            result.add(input);
-        } else if (Files.isDirectory(input)) {
-            try (Stream<Path> s = Files.list(input)) {
-                for (Path p : (Iterable<Path>) s::iterator) {
-                    result.addAll(collectAudioFiles(p));  // recursion
-                }
+    static void deletePartial(Path output) {
+        try {
+            if (Files.isDirectory(output)) {
+                Files.walkFileTree(output, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        Files.delete(file);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                        if (exc != null) throw exc;
+                        Files.delete(dir);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+                log.debug("Deleted partial output directory {}", output);
+            } else if (Files.deleteIfExists(output)) {
+                log.debug("Deleted partial output {}", output);
             }
+        } catch (IOException e) {
+            log.warn("Could not delete partial output {}: {}", output, e.getMessage());
         }
-        return result;
     }
 
+    /** Logs time to first frame and to first finished output, once, for the first job of this service. */
+    private void reportFirstOutput(JobContext ctx) {
+        if (!ctx.firstOutputPending.compareAndSet(true, false)) return;
+        long now = System.nanoTime();
+        long firstFrame = pumpMetrics.firstFrameNanos();
+        log.info("First conversion: first frame after {} ms, first output after {} ms (FFmpeg load wait {} ms)",
+                firstFrame == 0 ? "-" : TimeUnit.NANOSECONDS.toMillis(firstFrame - ctx.startedNanos),
+                TimeUnit.NANOSECONDS.toMillis(now - ctx.startedNanos),
+                TimeUnit.NANOSECONDS.toMillis(ctx.nativeWaitNanos));
+    }
 
-    protected void transcodeAudio(Path input, Path output, String targetExt) throws IOException {
-        // Fast path for same extension: validate audio stream, then copy without re-encode.
-        if (ext(input).equalsIgnoreCase(targetExt)) {
-            FFmpegFrameGrabber g = new FFmpegFrameGrabber(input.toFile());
+    /** Everything that decides the bytes of an output; a manifest entry is only reused if this matches. */
+    private static String encodingSettings(String targetExt, ConversionOptions options) {
+        String settings = targetExt.toLowerCase() + ":" + options.getPreset().name().toLowerCase();
+        // Outputs of cue images are directories of tracks instead of files
+        if (options.isSplitCue()) settings += ":cue";
+        if (options.isLoudness()) settings += ":loudness";
+        if (!options.reshapesAudio()) return settings;
+        return settings + ":" + options.getSampleRate() + "hz:" + options.getChannels() + "ch:" + options.getSampleFormat();
+    }
+
+    /** Receives audio files as discovery finds them. */
+    private interface DiscoveredFileSink {
+        void accept(Path file) throws InterruptedException;
+    }
+
+    /**
+     * Recursively walks a directory (or takes a single file) and hands every audio file to {@code sink}
+     * as soon as it is found. Unreadable subdirectories are logged and skipped, and so are the
+     * {@code excluded} directories, so outputs written below the input are not converted again.
+     */
+    private void discoverAudioFiles(Path input, Set<Path> excluded, DiscoveredFileSink sink)
+            throws IOException, InterruptedException {
+        if (Files.isRegularFile(input)) {
+            if (PathAudioUtil.isAudio(input)) sink.accept(input);
+            return;
+        }
+        if (!Files.isDirectory(input)) return;
+        try {
+            Files.walkFileTree(input, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return excluded.contains(dir.toAbsolutePath().normalize())
+                            ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() && PathAudioUtil.isAudio(file)) {
+                        try {
+                            sink.accept(file);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Discovery interrupted at " + file);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    log.warn("Skipping unreadable path {}: {}", file, e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (InterruptedIOException e) {
+            throw new InterruptedException(e.getMessage());
+        }
+    }
+
+
+    /**
+     * Converts {@code input} into every entry of {@code outputs} (output file to target extension) and
+     * returns the outputs that failed. Plain copies and stream copies run on their own; all other outputs
+     * share a single decode pass that feeds one recorder each. Throws if the input itself cannot be read,
+     * which fails every output.
+     */
+    protected Map<Path, IOException> transcodeToAll(Path input, Map<Path, String> outputs, ConversionOptions options,
+                                                    ConversionJob job, FileStats stats) throws IOException {
+        CueSheet cue = options.isSplitCue() ? CueSheet.companionOf(input) : null;
+        if (cue != null) return splitTracks(input, cue, outputs, options, job, stats);
+        if (outputs.size() == 1) {
+            Map.Entry<Path, String> only = outputs.entrySet().iterator().next();
+            this.transcodeAudio(input, only.getKey(), only.getValue(), options, job, stats);
+            return Map.of();
+        }
+
+        Map<Path, IOException> failures = new HashMap<>();
+        Map<Path, String> separate = new LinkedHashMap<>();
+        Map<Path, String> encode = new LinkedHashMap<>();
+        for (Map.Entry<Path, String> output : outputs.entrySet()) {
+            (isPlainCopy(input, output.getValue(), options) ? separate : encode).put(output.getKey(), output.getValue());
+        }
+        if (!encode.isEmpty()) encodeAll(input, encode, separate, options, job, stats, failures);
+
+        for (Map.Entry<Path, String> output : separate.entrySet()) {
             try {
-                g.start();
-                boolean valid = false;
-                for (int i=0; i<5; i++) {
-                    Frame f = g.grabSamples();
-                    if (f != null && f.samples != null && f.samples.length > 0) { valid = true; break; }
-                }
-                if (!valid) throw new IOException("No audio stream found in " + input);
-            } catch (org.bytedeco.javacv.FrameGrabber.Exception e) {
-                throw new IOException("JavaCV transcode failed: " + e.getMessage(), e);
-            } finally {
-                try { g.stop(); } catch (Exception ignored) {}
-                try { g.release(); } catch (Exception ignored) {}
+                this.transcodeAudio(input, output.getKey(), output.getValue(), options, job, stats);
+            } catch (IOException e) {
+                failures.put(output.getKey(), e);
             }
-            Files.copy(input, output, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-            return;
         }
+        return failures;
+    }
 
-        log.debug("transcoding (JavaCV): {} -> {}", input, output);
+    /**
+     * Decodes {@code input} once into a recorder per output of {@code encode}. Outputs the source codec
+     * can be stream-copied into are moved to {@code separate} instead; per-output errors go to {@code failures}.
+     */
+    private void encodeAll(Path input, Map<Path, String> encode, Map<Path, String> separate,
+                           ConversionOptions options, ConversionJob job, FileStats stats,
+                           Map<Path, IOException> failures) throws IOException {
+        log.debug("transcoding (JavaCV) once for {} targets: {}", encode.size(), input);
+        LoudnessMeter meter = null;
+        stats.begin();
         try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(input.toFile())) {
-            FFmpegFrameRecorder recorder = null;
+            Map<FFmpegFrameRecorder, Path> recorders = new LinkedHashMap<>();
             try {
+                SamplePump.prepare(grabber);
                 grabber.start();
+                stats.probed(grabber);
 
-                // Get metadata from input file
                 Map<String, String> metadata = grabber.getMetadata();
-
                 int sampleRate = grabber.getSampleRate() > 0 ? grabber.getSampleRate() : 44100;
                 int channels = grabber.getAudioChannels() > 0 ? grabber.getAudioChannels() : 2;
 
-                recorder = new FFmpegFrameRecorder(output.toFile(), channels);
-                recorder.setFormat(targetExt.toLowerCase());
-
-                // Set metadata on the recorder
-                if (metadata != null && !metadata.isEmpty()) {
-                    for (Map.Entry<String, String> entry : metadata.entrySet()) {
-                        recorder.setMetadata(entry.getKey(), entry.getValue());
+                for (Map.Entry<Path, String> output : encode.entrySet()) {
+                    String targetExt = output.getValue();
+                    if (canRemux(grabber, targetExt, options)) {
+                        separate.put(output.getKey(), targetExt);
+                        continue;
+                    }
+                    FFmpegFrameRecorder recorder = newRecorder(output.getKey(), targetExt, channels, metadata);
+                    try {
+                        configureEncoder(recorder, targetExt, sampleRate, channels, options);
+                        recorder.start();
+                        recorders.put(recorder, output.getKey());
+                    } catch (FrameRecorder.Exception e) {
+                        failures.put(output.getKey(), new IOException("JavaCV transcode failed: " + e.getMessage(), e));
+                        releaseQuietly(recorder);
                     }
                 }
+                if (recorders.isEmpty()) return;
 
-                switch (targetExt.toLowerCase()) {
-                    case "mp3":
-                        recorder.setAudioCodec(AV_CODEC_ID_MP3);
-                        // Preserve common ID3 tags
-                        preserveCommonMetadata(metadata, recorder);
-                        break;
-                    case "aac":
-                    case "m4a":
-                        recorder.setAudioCodec(AV_CODEC_ID_AAC);
-                        preserveCommonMetadata(metadata, recorder);
-                        break;
-                    case "ogg":
-                    case "oga":
-                        recorder.setAudioCodec(AV_CODEC_ID_VORBIS);
-                        break;
-                    case "opus":
-                        recorder.setAudioCodec(AV_CODEC_ID_OPUS);
-                        break;
-                    case "flac":
-                        recorder.setAudioCodec(AV_CODEC_ID_FLAC);
-                        preserveCommonMetadata(metadata, recorder);
-                        break;
-                    case "wav":
-                        recorder.setAudioCodec(AV_CODEC_ID_PCM_S16LE);
-                        // WAV files typically use RIFF metadata which is different
-                        break;
-                    default: /* allow FFmpeg default */
-                        break;
-                }
-                recorder.setSampleRate(sampleRate);
-                recorder.setAudioChannels(channels);
-                recorder.setAudioBitrate(192000);
-                recorder.start();
-
-                Frame frame;
-                boolean hadSamples = false;
-                while ((frame = grabber.grabSamples()) != null) {
-                    hadSamples = true;
-                    recorder.recordSamples(frame.sampleRate, frame.audioChannels, frame.samples);
+                stats.mode = "encode";
+                if (options.isLoudness()) meter = new LoudnessMeter();
+                long frames = SamplePump.pumpAll(grabber, new ArrayList<>(recorders.keySet()), pumpMetrics, job, meter,
+                        (recorder, e) -> failures.put(recorders.get(recorder),
+                                new IOException("JavaCV transcode failed: " + e.getMessage(), e)));
+                stats.coded();
+                for (Map.Entry<FFmpegFrameRecorder, Path> entry : recorders.entrySet()) {
+                    Path output = entry.getValue();
+                    if (failures.containsKey(output)) continue;
+                    if (frames == 0) {
+                        failures.put(output, new IOException("No audio stream found in " + input));
+                        continue;
+                    }
+                    try {
+                        entry.getKey().stop();
+                    } catch (FrameRecorder.Exception e) {
+                        failures.put(output, new IOException("JavaCV transcode failed: " + e.getMessage(), e));
+                    }
                 }
-                if (!hadSamples) throw new IOException("No audio stream found in " + input);
-            } catch (org.bytedeco.javacv.FrameGrabber.Exception | org.bytedeco.javacv.FrameRecorder.Exception e) {
+                stats.written();
+            } catch (FrameGrabber.Exception e) {
                 throw new IOException("JavaCV transcode failed: " + e.getMessage(), e);
             } finally {
+                for (FFmpegFrameRecorder recorder : recorders.keySet()) releaseQuietly(recorder);
                 try {
-                    if (recorder != null) recorder.stop();
+                    grabber.stop();
                 } catch (Exception ignored) {
                 }
                 try {
-                    if (recorder != null) recorder.release();
+                    grabber.release();
                 } catch (Exception ignored) {
                 }
+            }
+        }
+        if (meter == null) return;
+        double lufs = meter.integratedLufs();
+        stats.measured(lufs, meter.peak());
+        for (Map.Entry<Path, String> output : encode.entrySet()) {
+            if (separate.containsKey(output.getKey()) || failures.containsKey(output.getKey())) continue;
+            tagLoudness(output.getKey(), output.getValue(),
+                    loudnessTags(output.getValue(), lufs, meter.peak(), Double.NaN, Double.NaN), job);
+        }
+    }
+
+    /**
+     * Splits a cue image into track files inside each output directory of {@code outputs}, decoding the image
+     * once for all tracks and targets. Tracks are always re-encoded, since they are cut at sample positions.
+     * Per-target errors go to the returned map, and the tracks of a failed target are deleted.
+     */
+    private Map<Path, IOException> splitTracks(Path input, CueSheet cue, Map<Path, String> outputs,
+                                               ConversionOptions options, ConversionJob job, FileStats stats)
+            throws IOException {
+        log.debug("splitting {} into {} tracks for {} targets", input, cue.tracks().size(), outputs.size());
+        Map<Path, IOException> failures = new HashMap<>();
+        Map<FFmpegFrameRecorder, Path> targetOf = new HashMap<>();
+        Map<Path, List<Path>> trackFiles = new LinkedHashMap<>();
+        List<List<FFmpegFrameRecorder>> tracks = new ArrayList<>();
+        for (int i = 0; i < cue.tracks().size(); i++) tracks.add(new ArrayList<>());
+        LoudnessMeter[] meters = options.isLoudness() ? new LoudnessMeter[cue.tracks().size()] : null;
+        if (meters != null) Arrays.setAll(meters, i -> new LoudnessMeter());
+        boolean finished = false;
+        stats.begin();
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(input.toFile())) {
+            try {
+                SamplePump.prepare(grabber);
+                grabber.start();
+                stats.probed(grabber);
+                Map<String, String> metadata = grabber.getMetadata();
+                int sampleRate = grabber.getSampleRate() > 0 ? grabber.getSampleRate() : 44100;
+                int channels = grabber.getAudioChannels() > 0 ? grabber.getAudioChannels() : 2;
+
+                for (Map.Entry<Path, String> output : outputs.entrySet()) {
+                    Path dir = output.getKey();
+                    String targetExt = output.getValue();
+                    List<Path> files = new ArrayList<>();
+                    trackFiles.put(dir, files);
+                    try {
+                        Files.createDirectories(dir);
+                        for (int i = 0; i < cue.tracks().size(); i++) {
+                            CueSheet.Track track = cue.tracks().get(i);
+                            Path file = dir.resolve(CueSheet.trackFileName(track, targetExt));
+                            files.add(file);
+                            FFmpegFrameRecorder recorder = newRecorder(file, targetExt, channels,
+                                    trackMetadata(metadata, cue, track));
+                            targetOf.put(recorder, dir);
+                            tracks.get(i).add(recorder);
+                            configureEncoder(recorder, targetExt, sampleRate, channels, options);
+                            recorder.start();
+                        }
+                    } catch (FrameRecorder.Exception e) {
+                        failures.put(dir, new IOException("JavaCV transcode failed: " + e.getMessage(), e));
+                    } catch (IOException e) {
+                        failures.put(dir, e);
+                    }
+                }
+                // Targets that could not start get no samples
+                for (List<FFmpegFrameRecorder> recorders : tracks) {
+                    recorders.removeIf(recorder -> {
+                        if (!failures.containsKey(targetOf.get(recorder))) return false;
+                        releaseQuietly(recorder);
+                        return true;
+                    });
+                }
+
+                stats.mode = "split";
+                long frames = SamplePump.pumpTracks(grabber, cue.startSamples(sampleRate), tracks, pumpMetrics, job, meters,
+                        (recorder, e) -> failures.putIfAbsent(targetOf.get(recorder),
+                                new IOException("JavaCV transcode failed: " + e.getMessage(), e)));
+                stats.coded();
+                for (List<FFmpegFrameRecorder> recorders : tracks) {
+                    for (FFmpegFrameRecorder recorder : recorders) {
+                        Path dir = targetOf.get(recorder);
+                        if (failures.containsKey(dir)) continue;
+                        if (frames == 0) {
+                            failures.put(dir, new IOException("No audio stream found in " + input));
+                            continue;
+                        }
+                        try {
+                            recorder.stop();
+                        } catch (FrameRecorder.Exception e) {
+                            failures.put(dir, new IOException("JavaCV transcode failed: " + e.getMessage(), e));
+                        }
+                    }
+                }
+                stats.written();
+                finished = true;
+            } catch (FrameGrabber.Exception e) {
+                throw new IOException("JavaCV transcode failed: " + e.getMessage(), e);
+            } finally {
+                for (List<FFmpegFrameRecorder> recorders : tracks) {
+                    for (FFmpegFrameRecorder recorder : recorders) releaseQuietly(recorder);
+                }
                 try {
                     grabber.stop();
                 } catch (Exception ignored) {
@@ -187,8 +648,409 @@ public class AudioConverterServiceImpl implements AudioConverterService {
                     grabber.release();
                 } catch (Exception ignored) {
                 }
+                for (Map.Entry<Path, List<Path>> target : trackFiles.entrySet()) {
+                    if (finished && !failures.containsKey(target.getKey())) continue;
+                    for (Path file : target.getValue()) deletePartial(file);
+                }
             }
         }
+        if (meters != null) {
+            // The image is the album: its tracks get album gain as well
+            double album = LoudnessMeter.integratedLufs(List.of(meters));
+            double albumPeak = Arrays.stream(meters).mapToDouble(LoudnessMeter::peak).max().orElse(0);
+            stats.measured(album, albumPeak);
+            for (Map.Entry<Path, List<Path>> target : trackFiles.entrySet()) {
+                if (failures.containsKey(target.getKey())) continue;
+                String targetExt = outputs.get(target.getKey());
+                for (int i = 0; i < meters.length; i++) {
+                    tagLoudness(target.getValue().get(i), targetExt,
+                            loudnessTags(targetExt, meters[i].integratedLufs(), meters[i].peak(), album, albumPeak), job);
+                }
+            }
+        }
+        return failures;
+    }
+
+    /** The image's tags with title, performer, album and track number of one track from the sheet. */
+    private static Map<String, String> trackMetadata(Map<String, String> image, CueSheet cue, CueSheet.Track track) {
+        // Case-insensitive, so a sheet value replaces the image's tag whichever case the container used
+        Map<String, String> tags = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (image != null) tags.putAll(image);
+        tags.remove("cuesheet");
+        tags.remove("title");
+        tags.remove("track");
+        if (track.title() != null) tags.put("title", track.title());
+        String performer = track.performer() != null ? track.performer() : cue.performer();
+        if (performer != null) tags.put("artist", performer);
+        if (cue.title() != null) tags.put("album", cue.title());
+        if (cue.performer() != null) tags.put("album_artist", cue.performer());
+        if (cue.date() != null) tags.putIfAbsent("date", cue.date());
+        if (cue.genre() != null) tags.putIfAbsent("genre", cue.genre());
+        tags.put("track", track.number() + "/" + cue.tracks().size());
+        return tags;
+    }
+
+    /**
+     * ReplayGain 2.0 tags for an output of measured loudness, plus the R128 gains opus players read. Album values
+     * are left out when NaN. No tags for silence, or for containers whose muxer drops free-form tags (wav, mp4).
+     */
+    static Map<String, String> loudnessTags(String targetExt, double trackLufs, double trackPeak,
+                                            double albumLufs, double albumPeak) {
+        String ext = targetExt.toLowerCase();
+        if (Double.isNaN(trackLufs) || !LOUDNESS_TAG_FORMATS.contains(ext)) return Map.of();
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("REPLAYGAIN_TRACK_GAIN", String.format(Locale.ROOT, "%.2f dB", LoudnessMeter.replayGain(trackLufs)));
+        tags.put("REPLAYGAIN_TRACK_PEAK", String.format(Locale.ROOT, "%.6f", trackPeak));
+        if (!Double.isNaN(albumLufs)) {
+            tags.put("REPLAYGAIN_ALBUM_GAIN", String.format(Locale.ROOT, "%.2f dB", LoudnessMeter.replayGain(albumLufs)));
+            tags.put("REPLAYGAIN_ALBUM_PEAK", String.format(Locale.ROOT, "%.6f", albumPeak));
+        }
+        if (ext.equals("opus")) {
+            // RFC 7845: Q7.8 fixed point dB relative to -23 LUFS
+            tags.put("R128_TRACK_GAIN", Long.toString(Math.round((-23 - trackLufs) * 256)));
+            if (!Double.isNaN(albumLufs)) tags.put("R128_ALBUM_GAIN", Long.toString(Math.round((-23 - albumLufs) * 256)));
+        }
+        return tags;
+    }
+
+    /**
+     * Adds {@code tags} to a finished output by copying its packets into a new file that replaces it. Container
+     * headers are written before the first sample is encoded, so the tags cannot go in while measuring; the copy
+     * reads the output once, with no decode. A failure only costs the tags.
+     */
+    private void tagLoudness(Path output, String targetExt, Map<String, String> tags, ConversionJob job) {
+        if (tags.isEmpty()) return;
+        Path tagged = output.resolveSibling("." + output.getFileName() + ".tagged");
+        try {
+            try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(output.toFile())) {
+                FFmpegFrameRecorder recorder = null;
+                try {
+                    grabber.start();
+                    Map<String, String> metadata = new LinkedHashMap<>(grabber.getMetadata());
+                    metadata.putAll(tags);
+                    recorder = newRecorder(tagged, targetExt, grabber.getAudioChannels(), metadata);
+                    remuxPackets(grabber, recorder, output.toString(), job);
+                } finally {
+                    stopQuietly(grabber, recorder);
+                }
+            }
+            Files.move(tagged, output, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Could not write loudness tags to {}: {}", output, e.getMessage());
+        } finally {
+            deletePartial(tagged);
+        }
+    }
+
+    protected void transcodeAudio(Path input, Path output, String targetExt, ConversionOptions options, ConversionJob job,
+                                  FileStats stats) throws IOException {
+        stats.begin();
+        // Fast path for same extension: header-only audio stream check, then copy without re-encode.
+        if (isPlainCopy(input, targetExt, options)) {
+            AudioProbe.AudioStream stream = AudioProbe.audioStream(input);
+            if (stream == null) throw new IOException("No audio stream found in " + input);
+            stats.probed(stream);
+            stats.mode = "copy";
+            copyFile(input, output);
+            stats.written();
+            return;
+        }
+
+        log.debug("transcoding (JavaCV): {} -> {}", input, output);
+        LoudnessMeter meter = null;
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(input.toFile())) {
+            FFmpegFrameRecorder recorder = null;
+            try {
+                SamplePump.prepare(grabber);
+                grabber.start();
+                stats.probed(grabber);
+
+                // Get metadata from input file
+                Map<String, String> metadata = grabber.getMetadata();
+
+                int sampleRate = grabber.getSampleRate() > 0 ? grabber.getSampleRate() : 44100;
+                int channels = grabber.getAudioChannels() > 0 ? grabber.getAudioChannels() : 2;
+
+                // Source codec already fits the target container: copy compressed packets, no decode
+                if (canRemux(grabber, targetExt, options)) {
+                    log.debug("remuxing (stream copy) {}: {} -> {}", grabber.getAudioCodecName(), input, output);
+                    stats.mode = "remux";
+                    recorder = newRecorder(output, targetExt, channels, metadata);
+                    remuxPackets(grabber, recorder, input.toString(), job);
+                    stats.coded();
+                    return;
+                }
+
+                // Segments are decoded by several workers, so there is no single pass to measure loudness in
+                if (options.isSegmented() && !options.isLoudness()
+                        && encodeSegmented(input, output, targetExt, grabber, channels, metadata, options, job)) {
+                    stats.mode = "segmented";
+                    stats.coded();
+                    return;
+                }
+
+                stats.mode = "encode";
+                recorder = newRecorder(output, targetExt, channels, metadata);
+                configureEncoder(recorder, targetExt, sampleRate, channels, options);
+                recorder.start();
+
+                if (options.isLoudness()) meter = new LoudnessMeter();
+                long frames = SamplePump.pump(grabber, recorder, pumpMetrics, job, meter);
+                stats.coded();
+                if (frames == 0) throw new IOException("No audio stream found in " + input);
+            } catch (FrameGrabber.Exception | FrameRecorder.Exception e) {
+                throw new IOException("JavaCV transcode failed: " + e.getMessage(), e);
+            } finally {
+                stopQuietly(grabber, recorder);
+                stats.written();
+            }
+        }
+        if (meter != null) {
+            stats.measured(meter.integratedLufs(), meter.peak());
+            tagLoudness(output, targetExt, loudnessTags(targetExt, meter.integratedLufs(), meter.peak(), Double.NaN, Double.NaN), job);
+        }
+    }
+
+    @Override
+    public void transcode(@NonNull InputStream input,
+                          @NonNull OutputStream output,
+                          @NonNull String targetExt,
+                          @NonNull ConversionOptions options) throws IOException {
+        String muxer = CodecCompatibility.streamMuxer(targetExt);
+        if (muxer == null) throw new IOException("Cannot write " + targetExt + " to a stream");
+        FfmpegWarmup.awaitReady();
+        // Not exposed: the caller's thread runs the whole conversion
+        ConversionJob job = new ConversionJob("stream");
+
+        log.debug("transcoding stream (JavaCV) -> {}", targetExt);
+        // No mark window: without a seek callback FFmpeg reads front to back, probing from its own buffer.
+        // JavaCV's emulated seeking would skip to the end of the stream whenever a demuxer asks for the size
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(input, 0);
+        grabber.setCloseInputStream(false);
+        FFmpegFrameRecorder recorder = null;
+        try {
+            SamplePump.prepare(grabber);
+            grabber.start();
+
+            int sampleRate = grabber.getSampleRate() > 0 ? grabber.getSampleRate() : 44100;
+            int channels = grabber.getAudioChannels() > 0 ? grabber.getAudioChannels() : 2;
+            recorder = new FFmpegFrameRecorder(output, channels);
+            recorder.setCloseOutputStream(false);
+            recorder.setFormat(muxer);
+            if ("ipod".equals(muxer)) {
+                // An mp4 index normally goes at the end and is patched in place; fragments need no seeking back
+                recorder.setOption("movflags", "empty_moov+default_base_moof");
+                recorder.setOption("frag_duration", "1000000");
+            }
+            applyMetadata(grabber.getMetadata(), recorder, targetExt);
+
+            if (canRemux(grabber, targetExt, options)) {
+                log.debug("remuxing stream (stream copy) {} -> {}", grabber.getAudioCodecName(), targetExt);
+                remuxPackets(grabber, recorder, "stream", job);
+                return;
+            }
+
+            configureEncoder(recorder, targetExt, sampleRate, channels, options);
+            recorder.start();
+            long frames = SamplePump.pump(grabber, recorder, pumpMetrics, job, null);
+            if (frames == 0) throw new IOException("No audio stream found in stream");
+        } catch (FrameGrabber.Exception | FrameRecorder.Exception e) {
+            throw new IOException("JavaCV stream transcode failed: " + e.getMessage(), e);
+        } finally {
+            stopQuietly(grabber, recorder);
+        }
+    }
+
+    /** Finishes the recorder, if any, and frees both native contexts; errors are ignored. */
+    private static void stopQuietly(FFmpegFrameGrabber grabber, FFmpegFrameRecorder recorder) {
+        try {
+            if (recorder != null) recorder.stop();
+        } catch (Exception ignored) {
+        }
+        if (recorder != null) releaseQuietly(recorder);
+        try {
+            grabber.stop();
+        } catch (Exception ignored) {
+        }
+        try {
+            grabber.release();
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * Encodes a long input as parallel segments. Returns false, leaving the single-pass encode to the
+     * caller, if the input is too short, the format cannot be joined or a segment failed.
+     */
+    private boolean encodeSegmented(Path input, Path output, String targetExt, FFmpegFrameGrabber grabber,
+                                    int channels, Map<String, String> metadata, ConversionOptions options,
+                                    ConversionJob job) throws InterruptedIOException {
+        int sampleRate = grabber.getSampleRate();
+        // Segments are framed at the source rate and joined as they are
+        if (!keepsSourceLayout(grabber, options)) return false;
+        if (sampleRate <= 0 || !SegmentedEncoder.supports(grabber.getAudioCodec(), targetExt, sampleRate)) return false;
+        long length = grabber.getLengthInTime();
+        int segments = segmentedEncoder.segmentCount(length);
+        if (segments < 2) return false;
+
+        log.debug("segmented encode ({} segments): {} -> {}", segments, input, output);
+        FFmpegFrameRecorder recorder = newRecorder(output, targetExt, channels, metadata);
+        try {
+            segmentedEncoder.encode(input, output, targetExt, sampleRate, channels, length, segments, file -> {
+                FFmpegFrameRecorder segment = new FFmpegFrameRecorder(file.toFile(), channels);
+                configureEncoder(segment, targetExt, sampleRate, channels, options);
+                return segment;
+            }, recorder, job);
+            return true;
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            log.warn("Segmented encode of {} failed, encoding in one pass: {}", input, e.getMessage());
+            return false;
+        } finally {
+            releaseQuietly(recorder);
+        }
+    }
+
+    /** Recorder for {@code output} with container format and source tags set, not yet started. */
+    private FFmpegFrameRecorder newRecorder(Path output, String targetExt, int channels, Map<String, String> metadata) {
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(output.toFile(), channels);
+        recorder.setFormat(targetExt.toLowerCase());
+        applyMetadata(metadata, recorder, targetExt);
+        return recorder;
+    }
+
+    /**
+     * Encoder, sample layout and preset for a re-encode into {@code targetExt}. {@code sampleRate} and
+     * {@code channels} are the source's; the recorder resamples and remixes to the layout set here as it
+     * receives frames.
+     */
+    private void configureEncoder(FFmpegFrameRecorder recorder, String targetExt, int sampleRate, int channels,
+                                  ConversionOptions options) {
+        switch (targetExt.toLowerCase()) {
+            case "mp3":
+                recorder.setAudioCodec(AV_CODEC_ID_MP3);
+                break;
+            case "aac":
+            case "m4a":
+                recorder.setAudioCodec(AV_CODEC_ID_AAC);
+                break;
+            case "ogg":
+            case "oga":
+                recorder.setAudioCodec(AV_CODEC_ID_VORBIS);
+                break;
+            case "opus":
+                recorder.setAudioCodec(AV_CODEC_ID_OPUS);
+                break;
+            case "flac":
+                recorder.setAudioCodec(AV_CODEC_ID_FLAC);
+                break;
+            case "wav":
+                recorder.setAudioCodec(pcmCodec(options.getSampleFormat()));
+                break;
+            default: /* allow FFmpeg default */
+                break;
+        }
+        int rate = options.getSampleRate() > 0 ? options.getSampleRate() : sampleRate;
+        recorder.setSampleRate(CodecCompatibility.encoderSampleRate(recorder.getAudioCodec(), rate));
+        recorder.setAudioChannels(options.getChannels() > 0 ? options.getChannels() : channels);
+        if (options.getSampleFormat() != null) {
+            switch (recorder.getAudioCodec()) {
+                case AV_CODEC_ID_PCM_S24LE -> recorder.setSampleFormat(AV_SAMPLE_FMT_S32);
+                case AV_CODEC_ID_PCM_F32LE -> recorder.setSampleFormat(AV_SAMPLE_FMT_FLT);
+                // flac encodes 24 bits from 32-bit samples and has no float mode
+                case AV_CODEC_ID_FLAC -> {
+                    if (options.getSampleFormat() == SampleFormat.S24) recorder.setSampleFormat(AV_SAMPLE_FMT_S32);
+                }
+                default -> { }
+            }
+        }
+        options.getPreset().configure(recorder, targetExt);
+    }
+
+    private static int pcmCodec(SampleFormat format) {
+        if (format == null) return AV_CODEC_ID_PCM_S16LE;
+        return switch (format) {
+            case S16 -> AV_CODEC_ID_PCM_S16LE;
+            case S24 -> AV_CODEC_ID_PCM_S24LE;
+            case F32 -> AV_CODEC_ID_PCM_F32LE;
+        };
+    }
+
+    /** Same extension and no change of sample layout asked for: the source file itself is the output. */
+    private static boolean isPlainCopy(Path input, String targetExt, ConversionOptions options) {
+        return ext(input).equalsIgnoreCase(targetExt) && !options.reshapesAudio();
+    }
+
+    /** True if the options leave the source's sample rate, channels and sample format as they are. */
+    private static boolean keepsSourceLayout(FFmpegFrameGrabber grabber, ConversionOptions options) {
+        return (options.getSampleRate() == 0 || options.getSampleRate() == grabber.getSampleRate())
+                && (options.getChannels() == 0 || options.getChannels() == grabber.getAudioChannels())
+                && options.getSampleFormat() == null;
+    }
+
+    private static void releaseQuietly(FFmpegFrameRecorder recorder) {
+        try {
+            recorder.release();
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * True if the grabbed file has exactly one audio stream whose codec the target container accepts as-is.
+     * Multiple audio streams are re-encoded, since the recorder would only map the last one, and so are
+     * sources whose layout the options change.
+     */
+    private boolean canRemux(FFmpegFrameGrabber grabber, String targetExt, ConversionOptions options) {
+        if (!keepsSourceLayout(grabber, options)) return false;
+        if (!CodecCompatibility.canStreamCopy(targetExt, grabber.getAudioCodec())) return false;
+        AVFormatContext ctx = grabber.getFormatContext();
+        int audioStreams = 0;
+        for (int i = 0; i < ctx.nb_streams(); i++) {
+            if (ctx.streams(i).codecpar().codec_type() == AVMEDIA_TYPE_AUDIO) audioStreams++;
+        }
+        return audioStreams == 1;
+    }
+
+    /** Moves the audio packets from grabber to recorder unchanged; other streams (e.g. cover art) are dropped. */
+    private void remuxPackets(FFmpegFrameGrabber grabber, FFmpegFrameRecorder recorder, String source, ConversionJob job)
+            throws IOException, FrameGrabber.Exception, FrameRecorder.Exception {
+        recorder.setAudioCodec(grabber.getAudioCodec());
+        recorder.start(grabber.getFormatContext());
+
+        int audioStream = grabber.getAudioStream();
+        boolean hadPackets = false;
+        AVPacket packet;
+        while ((packet = grabber.grabPacket()) != null) {
+            job.checkpoint();
+            if (packet.stream_index() == audioStream) {
+                if (!hadPackets) pumpMetrics.firstFrame();
+                hadPackets = true;
+                recorder.recordPacket(packet); // unrefs the packet
+            } else {
+                av_packet_unref(packet);
+            }
+        }
+        if (!hadPackets) throw new IOException("No audio stream found in " + source);
+    }
+
+    /** Copies source tags to the recorder; formats with common tag support get normalised keys too. */
+    private void applyMetadata(Map<String, String> metadata, FFmpegFrameRecorder recorder, String targetExt) {
+        if (metadata == null || metadata.isEmpty()) return;
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            recorder.setMetadata(entry.getKey(), entry.getValue());
+        }
+        switch (targetExt.toLowerCase()) {
+            case "mp3": // common ID3 tags
+            case "aac":
+            case "m4a":
+            case "flac":
+                preserveCommonMetadata(metadata, recorder);
+                break;
+            default:
+                // Vorbis comments map tags themselves; WAV uses RIFF metadata which is different
+                break;
+        }
     }
 
     // Helper method to preserve common metadata across formats
@@ -210,4 +1072,211 @@ public class AudioConverterServiceImpl implements AudioConverterService {
         if (metadata.containsKey("ARTIST")) recorder.setMetadata("artist", metadata.get("ARTIST"));
         if (metadata.containsKey("ALBUM")) recorder.setMetadata("album", metadata.get("ALBUM"));
     }
+
+    /** Output root, format, manifest and report of one target of a {@link #convert} call. */
+    private static final class TargetContext {
+        final Path outputDir;
+        final String targetExt;
+        final String settings;
+        final ConversionManifest manifest;
+        /** Null unless the job writes a report. */
+        final ConversionReport report;
+
+        TargetContext(ConversionTarget target, ConversionOptions options, ConversionManifest manifest) {
+            this.outputDir = target.outputDir();
+            this.targetExt = target.targetExt();
+            this.settings = encodingSettings(target.targetExt(), options);
+            this.manifest = manifest;
+            this.report = options.getReport() == ConversionReport.Format.NONE
+                    ? null : new ConversionReport(target.outputDir(), options.getReport());
+        }
+
+        /** Adds a report line for one output of {@code input}; {@code stats} is null if no conversion ran. */
+        void report(Path input, Path output, String status, FileStats stats, long elapsedNanos, Exception error) {
+            if (report == null) return;
+            long inputBytes = sizeOf(input);
+            long outputBytes = output == null ? 0 : sizeOf(output);
+            if (stats == null) stats = new FileStats();
+            report.add(new ConversionReport.Entry(input, output, status, stats.mode, stats.codec, stats.sampleRate,
+                    stats.durationMicros, inputBytes, outputBytes, stats.probeNanos / 1000, stats.codingNanos / 1000,
+                    stats.writeNanos / 1000, elapsedNanos / 1000, stats.loudnessLufs, stats.peak,
+                    error == null ? null : error.getMessage()));
+        }
+
+        private static long sizeOf(Path file) {
+            try {
+                return Files.size(file);
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+    }
+
+    /** An output one source still has to produce for a target. */
+    private record PendingOutput(TargetContext target, Path output) {}
+
+    /** State shared by the tasks of one {@link #convert} call; closing it closes the manifests. */
+    private static final class JobContext implements Closeable {
+        /** Minimum gap between growing-total notifications, so huge trees don't flood the listener. */
+        private static final long TOTAL_REPORT_INTERVAL_NANOS = 200_000_000L;
+
+        final Path input;
+        final List<TargetContext> targets = new ArrayList<>();
+        final ConversionOptions options;
+        final ConversionListener listener;
+        final ConversionJob handle;
+        /** Claims new output names, so parallel workers never pick the same "name (n)". */
+        final OutputReservations reservations = new OutputReservations();
+        /** Worker processes of an isolated job, null otherwise. */
+        ProcessWorkerPool workers;
+        final AtomicInteger done = new AtomicInteger(0);
+        /** Outputs (files times targets) discovered so far; final once discovery has finished. */
+        volatile int total;
+        private long lastReport;
+        /** True until the first output is reported, only in a job whose start-up latency is measured. */
+        final AtomicBoolean firstOutputPending = new AtomicBoolean();
+        long startedNanos;
+        long nativeWaitNanos;
+        /** Estimated work per input and in total, in longest-first jobs; set before any file is submitted. */
+        private Map<Path, Long> work;
+        private long totalWork;
+        private final AtomicLong doneWork = new AtomicLong();
+
+        private JobContext(Path input, ConversionOptions options, ConversionListener listener, ConversionJob handle) {
+            this.input = input;
+            this.options = options;
+            this.listener = listener;
+            this.handle = handle;
+        }
+
+        /**
+         * Creates the output roots and, in incremental mode, opens their manifests. Isolated jobs get a pool
+         * of up to {@code parallelism} worker processes, started as files need them.
+         */
+        static JobContext open(Path input, List<ConversionTarget> targets, ConversionOptions options,
+                               ConversionListener listener, ConversionJob handle, int parallelism) throws IOException {
+            JobContext ctx = new JobContext(input, options, listener, handle);
+            try {
+                for (ConversionTarget target : targets) {
+                    ensureDir(target.outputDir());
+                    ConversionManifest manifest = options.isIncremental() ? ConversionManifest.open(target.outputDir()) : null;
+                    ctx.targets.add(new TargetContext(target, options, manifest));
+                }
+                if (options.isIsolated()) ctx.workers = new ProcessWorkerPool(parallelism);
+            } catch (IOException e) {
+                try {
+                    ctx.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            return ctx;
+        }
+
+        /** Absolute, normalised output roots of all targets. */
+        Set<Path> outputRoots() {
+            Set<Path> roots = new HashSet<>();
+            for (TargetContext target : targets) roots.add(target.outputDir.toAbsolutePath().normalize());
+            return roots;
+        }
+
+        /** Measures this job's start-up latency; must be called before any file is submitted. */
+        void timeFirstOutput(long startedNanos, long nativeWaitNanos) {
+            this.startedNanos = startedNanos;
+            this.nativeWaitNanos = nativeWaitNanos;
+            firstOutputPending.set(true);
+        }
+
+        /** Called by the discovering thread before the file is submitted. */
+        void fileDiscovered() {
+            total += targets.size();
+            if (listener == null) return;
+            long now = System.nanoTime();
+            if (total == targets.size()) {
+                listener.onStart(total);
+            } else if (now - lastReport >= TOTAL_REPORT_INTERVAL_NANOS) {
+                listener.onTotalChanged(total, false);
+            } else {
+                return;
+            }
+            lastReport = now;
+        }
+
+        /** Starts a job whose inputs were all found, and their work estimated, before the first conversion. */
+        void workEstimated(Map<Path, Long> work, int files) {
+            this.work = work;
+            long sum = 0;
+            for (long w : work.values()) sum += w;
+            totalWork = sum * targets.size();
+            total = files * targets.size();
+            if (listener != null && total > 0) listener.onStart(total);
+        }
+
+        /** Publishes the final total and returns it. */
+        int discoveryFinished() {
+            if (listener != null && total > 0) listener.onTotalChanged(total, true);
+            return total;
+        }
+
+        void converted(Path input, Path output) {
+            int current = done.incrementAndGet();
+            log.info("Converted file: {} -> {}", input, output);
+            if (listener != null) listener.onFileDone(input, output, current, total);
+            progressed(input);
+        }
+
+        void skipped(Path input, Path output) {
+            int current = done.incrementAndGet();
+            log.debug("Skipping unchanged file: {} -> {}", input, output);
+            if (listener != null) listener.onSkipped(input, output, current, total);
+            progressed(input);
+        }
+
+        void failed(Path input, Exception e) {
+            int current = done.incrementAndGet();
+            log.error("Failed to convert {}: {}", input, e.getMessage());
+            if (listener != null) listener.onError(input, e, current, total);
+            progressed(input);
+        }
+
+        /** Reports the weighted progress after one output of {@code input} is done, if work was estimated. */
+        private void progressed(Path input) {
+            if (work == null || listener == null) return;
+            long done = doneWork.addAndGet(work.getOrDefault(input, 0L));
+            listener.onProgress(totalWork == 0 ? 1.0 : Math.min(1.0, (double) done / totalWork));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (workers != null) workers.close();
+            for (TargetContext target : targets) {
+                if (target.report != null && !target.report.entries().isEmpty()) writeReport(target.report);
+            }
+            IOException failure = null;
+            for (TargetContext target : targets) {
+                if (target.manifest == null) continue;
+                try {
+                    target.manifest.close();
+                } catch (IOException e) {
+                    if (failure == null) failure = e;
+                    else failure.addSuppressed(e);
+                }
+            }
+            if (failure != null) throw failure;
+        }
+
+        /** A report that cannot be written is only logged; the outputs themselves are fine. */
+        private static void writeReport(ConversionReport report) {
+            try {
+                Path file = report.write();
+                ConversionReport.Summary all = report.summarize().get(0);
+                log.info("Conversion report {}: {} files, {} s of audio in {} s busy, p50 {} ms, p90 {} ms, max {} ms",
+                        file, all.files(), Math.round(all.audioSeconds()), Math.round(all.busySeconds()),
+                        all.p50Millis(), all.p90Millis(), all.maxMillis());
+            } catch (IOException e) {
+                log.warn("Could not write conversion report: {}", e.getMessage());
+            }
+        }
+    }
 }
@@ -0,0 +1,106 @@
+package com.opsify.features.audio.converter.service;
+
+import com.opsify.features.audio.converter.utils.FfmpegWarmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Entry point of a worker process started by {@link ProcessWorkerPool}: converts one file at a time as the
+ * parent asks over stdin and answers on stdout, see {@link WorkerProtocol}. Logging goes to stderr. The process
+ * exits when stdin closes, so workers never outlive the application.
+ */
+public final class AudioWorkerProcess {
+    private AudioWorkerProcess() {}
+
+    /** The latest conversion requested, for control messages; set on arrival so none is missed before it starts. */
+    private static volatile ConversionJob current;
+
+    private record Request(List<String> fields, ConversionJob job) {}
+
+    public static void main(String[] args) throws IOException {
+        // Before anything logs: stdout carries only protocol lines
+        PrintStream protocol = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+
+        FfmpegWarmup.awaitReady();
+        AudioConverterServiceImpl converter = new AudioConverterServiceImpl(new ConversionEngine(1, 1));
+        BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> readRequests(requests), "audio-worker-stdin");
+        reader.setDaemon(true);
+        reader.start();
+        protocol.println(WorkerProtocol.READY);
+
+        while (true) {
+            Request request;
+            try {
+                request = requests.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (request.job() == null) return;
+            protocol.println(convert(converter, request.fields(), request.job()));
+        }
+    }
+
+    /** Queues conversions and applies control messages to the running one; EOF means exit. */
+    private static void readRequests(BlockingQueue<Request> requests) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                List<String> fields = WorkerProtocol.fields(line);
+                ConversionJob job = current;
+                switch (fields.get(0)) {
+                    case WorkerProtocol.CONVERT -> {
+                        current = new ConversionJob(fields.get(2));
+                        requests.add(new Request(fields, current));
+                    }
+                    case WorkerProtocol.EXIT -> requests.add(new Request(fields, null));
+                    case WorkerProtocol.CANCEL -> { if (job != null) job.cancel(); }
+                    case WorkerProtocol.PAUSE -> { if (job != null) job.pause(); }
+                    case WorkerProtocol.RESUME -> { if (job != null) job.resume(); }
+                    default -> { }
+                }
+            }
+        } catch (IOException e) {
+            // Parent gone
+        }
+        requests.add(new Request(List.of(WorkerProtocol.EXIT), null));
+    }
+
+    /** Runs one CONVERT request and returns the reply line. */
+    private static String convert(AudioConverterServiceImpl converter, List<String> request, ConversionJob job) {
+        String id = request.get(1);
+        Path input = Path.of(request.get(2));
+        ConversionOptions options = WorkerProtocol.options(request.get(3));
+        Map<Path, String> outputs = new LinkedHashMap<>();
+        for (int i = 4; i + 1 < request.size(); i += 2) outputs.put(Path.of(request.get(i)), request.get(i + 1));
+
+        FileStats stats = new FileStats();
+        try {
+            Map<Path, IOException> failures = converter.transcodeToAll(input, outputs, options, job, stats);
+            List<String> reply = new ArrayList<>(List.of(WorkerProtocol.RESULT, id));
+            reply.addAll(WorkerProtocol.stats(stats));
+            for (Map.Entry<Path, IOException> failure : failures.entrySet()) {
+                reply.add(failure.getKey().toString());
+                reply.add(String.valueOf(failure.getValue().getMessage()));
+            }
+            return WorkerProtocol.line(reply);
+        } catch (CancellationException e) {
+            return WorkerProtocol.line(WorkerProtocol.CANCELLED, id);
+        } catch (Exception e) {
+            return WorkerProtocol.line(WorkerProtocol.ERROR, id, String.valueOf(e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.opsify.features.audio.converter.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated worker pool for audio transcoding.
+ * Replaces the JVM-wide common ForkJoinPool with a fixed number of named workers and a bounded
+ * work queue. Each {@link #newJob(String) job} may only hold one running and one queued task per
+ * worker, so two conversions started back-to-back interleave instead of one flooding the queue.
+ */
+@Slf4j
+public class ConversionEngine {
+
+    /** System property used to pin the number of conversion workers, e.g. for batch runs. */
+    public static final String PARALLELISM_PROPERTY = "opsify.audio.parallelism";
+
+    private static final long IDLE_KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor pool;
+    /** Global back-pressure: running plus queued tasks never exceed workers + queue capacity. */
+    private final Semaphore capacity;
+    @Getter
+    private final int parallelism;
+    /** Adaptive tuners of running jobs; only the last one to stop hands back the full parallelism. */
+    private int tuners;
+
+    public ConversionEngine(int parallelism, int queueCapacity) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+        if (queueCapacity < 1) throw new IllegalArgumentException("queueCapacity must be >= 1");
+        this.parallelism = parallelism;
+        this.capacity = new Semaphore(parallelism + queueCapacity);
+        // Sized for the permit limit plus one slot per worker: a worker releases its permit just before
+        // it polls the queue again, so the executor itself never has to reject a task
+        this.pool = new ThreadPoolExecutor(parallelism, parallelism,
+                IDLE_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity + parallelism),
+                new WorkerThreadFactory());
+        // Idle engines hold no threads
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /** Engine sized from {@link #defaultParallelism()} with a queue of four tasks per worker. */
+    public static ConversionEngine createDefault() {
+        int parallelism = defaultParallelism();
+        return new ConversionEngine(parallelism, parallelism * 4);
+    }
+
+    /**
+     * Worker count from the {@value #PARALLELISM_PROPERTY} system property, or cores - 1
+     * so the UI thread and I/O keep some headroom.
+     */
+    public static int defaultParallelism() {
+        int fallback = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return Math.max(1, Integer.getInteger(PARALLELISM_PROPERTY, fallback));
+    }
+
+    /** Starts a new job whose tasks are tracked independently of other jobs on this engine. */
+    public Job newJob(String name) {
+        return new Job(name);
+    }
+
+    /** Workers currently allowed to run at once; {@link #getParallelism()} unless lowered. */
+    public int getActiveWorkers() {
+        return pool.getMaximumPoolSize();
+    }
+
+    /**
+     * Changes how many workers may run at once, clamped to 1 .. {@link #getParallelism()}. Busy workers
+     * above a lowered limit finish their current task first; queued tasks wait for the remaining ones.
+     * The back-pressure limits stay sized for the full parallelism, so fewer workers only queue more.
+     */
+    public synchronized void setActiveWorkers(int workers) {
+        int n = Math.max(1, Math.min(parallelism, workers));
+        // The core size may never exceed the maximum, so the order depends on the direction
+        if (n < pool.getMaximumPoolSize()) {
+            pool.setCorePoolSize(n);
+            pool.setMaximumPoolSize(n);
+        } else {
+            pool.setMaximumPoolSize(n);
+            pool.setCorePoolSize(n);
+        }
+    }
+
+    /**
+     * Registers a tuner of the active worker count. The first one lowers the count to {@code initial};
+     * tuners of jobs started meanwhile go on from the count the others left.
+     *
+     * @return the active worker count to start tuning from
+     */
+    synchronized int startTuning(int initial) {
+        if (tuners++ == 0) setActiveWorkers(initial);
+        return getActiveWorkers();
+    }
+
+    /**
+     * Unregisters a tuner; once none is left, every worker may run again.
+     *
+     * @return true if this was the last tuner and the full parallelism was restored
+     */
+    synchronized boolean stopTuning() {
+        if (--tuners > 0) return false;
+        tuners = 0;
+        setActiveWorkers(parallelism);
+        return true;
+    }
+
+    /** Stops accepting work; running tasks finish normally. */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Runs {@code task} only if a worker or queue slot is free right now. Never blocks, so a task that
+     * splits itself can ask for help from inside a worker without deadlocking the pool.
+     */
+    boolean tryExecute(Runnable task) {
+        if (!capacity.tryAcquire()) return false;
+        try {
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    capacity.release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            return false;
+        }
+    }
+
+    private void execute(Runnable task) throws InterruptedException {
+        capacity.acquire();
+        try {
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    capacity.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Group of tasks belonging to one conversion.
+     * {@link #submit(Runnable)} blocks while the job already has {@code 2 * parallelism} tasks in flight;
+     * the queued half lets a producer keep workers busy while it looks for the next task.
+     */
+    public final class Job {
+        private final String name;
+        private final int limit;
+        private final Semaphore inFlight;
+
+        private Job(String name) {
+            this.name = name;
+            this.limit = parallelism * 2;
+            this.inFlight = new Semaphore(limit);
+        }
+
+        public void submit(Runnable task) throws InterruptedException {
+            inFlight.acquire();
+            try {
+                execute(() -> {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        log.error("Unexpected failure in job {}", name, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        /** Blocks until every task submitted to this job has finished. */
+        public void awaitCompletion() throws InterruptedException {
+            inFlight.acquire(limit);
+            inFlight.release(limit);
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "audio-convert-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            // Native FFmpeg work should not starve the JavaFX thread
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        }
+    }
+}
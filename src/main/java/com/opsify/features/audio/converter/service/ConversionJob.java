@@ -0,0 +1,102 @@
+package com.opsify.features.audio.converter.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Handle of a running conversion, returned by {@link AudioConverterService#start}.
+ * <p>
+ * Cancel and pause are cooperative: workers check the handle between frames, so a file in progress stops
+ * within one frame, and queued files are not started. Outputs of cancelled files are deleted; files that
+ * finished before the cancel are kept.
+ */
+public final class ConversionJob {
+    private final String name;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile boolean cancelled;
+    private volatile boolean paused;
+
+    ConversionJob(String name) {
+        this.name = name;
+    }
+
+    /** Stops the conversion; a paused job is resumed so its workers can wind down. */
+    public synchronized void cancel() {
+        cancelled = true;
+        notifyAll();
+    }
+
+    /** Holds every worker of this job at its next frame until {@link #resume()} or {@link #cancel()}. */
+    public synchronized void pause() {
+        paused = true;
+    }
+
+    /** Lets the workers held by {@link #pause()} go on. */
+    public synchronized void resume() {
+        paused = false;
+        notifyAll();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isPaused() {
+        return paused && !cancelled;
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    /**
+     * Waits for the conversion to end. Interrupting the waiting thread cancels the job.
+     *
+     * @throws CancellationException if the job was cancelled
+     * @throws IOException if the conversion failed as a whole, e.g. no audio files were found
+     */
+    public void await() throws IOException {
+        try {
+            completion.get();
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Conversion interrupted: " + name);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Called by workers between units of work: blocks while the job is paused.
+     *
+     * @throws CancellationException once the job is cancelled
+     */
+    void checkpoint() {
+        if (!paused && !cancelled) return;
+        synchronized (this) {
+            boolean interrupted = false;
+            while (paused && !cancelled) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        if (cancelled) throw new CancellationException("Conversion cancelled: " + name);
+    }
+
+    void finished(Throwable failure) {
+        if (failure == null) completion.complete(null);
+        else completion.completeExceptionally(failure);
+    }
+}
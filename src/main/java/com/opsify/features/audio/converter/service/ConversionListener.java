@@ -6,10 +6,31 @@ import java.nio.file.Path;
  * Listener to observe conversion progress.
  */
 public interface ConversionListener {
-    /** Called once with total number of files that will be converted. */
+    /**
+     * Called once when the first file is discovered. Files are converted while discovery is still
+     * running, so the total grows; see {@link #onTotalChanged(int, boolean)}.
+     */
     default void onStart(int total) {}
+    /**
+     * Called as discovery finds more files, and once with {@code complete = true} when the total is final.
+     * The {@code total} passed to the other callbacks is the number of files known at that moment.
+     */
+    default void onTotalChanged(int total, boolean complete) {}
+    /**
+     * Called after each output with the estimated share of the work finished, from 0 to 1. Only jobs that
+     * estimate work up front report it ({@link ConversionOptions#isLongestFirst()}); files differ in length,
+     * so this is a better progress measure than the file count.
+     */
+    default void onProgress(double fraction) {}
+    /**
+     * Called when {@link ConversionOptions#isAdaptiveConcurrency() adaptive concurrency} changes the number of
+     * workers, with the reason for the change.
+     */
+    default void onWorkersChanged(int workers, String reason) {}
     /** Called after a file is successfully converted. */
     default void onFileDone(Path input, Path output, int done, int total) {}
+    /** Called when incremental mode skips a file whose previous output is still valid. */
+    default void onSkipped(Path input, Path output, int done, int total) {}
     /** Called when a file fails to convert. */
     default void onError(Path input, Exception e, int done, int total) {}
 }
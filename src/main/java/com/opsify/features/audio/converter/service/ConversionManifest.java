@@ -0,0 +1,204 @@
+package com.opsify.features.audio.converter.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * On-disk record of previous conversions into one output root, used by incremental mode.
+ * <p>
+ * One tab-separated line per source: path, size, mtime, optional CRC32C, output (relative to the
+ * output root), output size and the encoding settings. A CUE image split into tracks has a directory as
+ * its output; its size is the total size of the track files in it, so a deleted or damaged track is
+ * noticed. New results are appended as files finish, so an interrupted run keeps its progress;
+ * {@link #close()} compacts the journal to one line per source.
+ */
+@Slf4j
+public class ConversionManifest implements Closeable {
+
+    public static final String FILE_NAME = ".opsify-manifest";
+
+    private static final String HEADER = "# opsify conversion manifest v1";
+    private static final long NO_HASH = -1;
+
+    /** Identity of a source file at the time it was converted. */
+    public record Fingerprint(long size, long modified, long hash) {}
+
+    private record Entry(Fingerprint source, String output, long outputSize, String settings) {}
+
+    private final Path file;
+    private final Path outputRoot;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private BufferedWriter journal;
+
+    private ConversionManifest(Path outputRoot) {
+        this.outputRoot = outputRoot.toAbsolutePath().normalize();
+        this.file = this.outputRoot.resolve(FILE_NAME);
+    }
+
+    /** Loads the manifest of {@code outputRoot}, or starts an empty one. */
+    public static ConversionManifest open(Path outputRoot) throws IOException {
+        ConversionManifest manifest = new ConversionManifest(outputRoot);
+        if (Files.isRegularFile(manifest.file)) manifest.load();
+        manifest.journal = Files.newBufferedWriter(manifest.file, StandardCharsets.UTF_8, CREATE, APPEND);
+        if (Files.size(manifest.file) == 0) manifest.writeLine(HEADER);
+        return manifest;
+    }
+
+    /**
+     * Output of a previous conversion of {@code source} with the same settings, or null if the source
+     * changed, the settings differ or the output is gone. With {@code useHash}, a source whose mtime
+     * changed is checksummed and still counts as unchanged if its content matches.
+     */
+    public Path findUpToDate(Path source, String settings, boolean useHash) throws IOException {
+        String key = key(source);
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.settings().equals(settings)) return null;
+
+        Path output = outputRoot.resolve(entry.output());
+        if (!Files.exists(output) || outputSize(output) != entry.outputSize()) return null;
+
+        BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+        Fingerprint recorded = entry.source();
+        if (attrs.size() != recorded.size()) return null;
+        if (attrs.lastModifiedTime().toMillis() == recorded.modified()) return output;
+
+        if (useHash && recorded.hash() != NO_HASH && checksum(source) == recorded.hash()) {
+            // Same bytes under a new mtime: remember the new mtime so the next run skips the checksum
+            Fingerprint touched = new Fingerprint(attrs.size(), attrs.lastModifiedTime().toMillis(), recorded.hash());
+            put(key, new Entry(touched, entry.output(), entry.outputSize(), settings));
+            return output;
+        }
+        return null;
+    }
+
+    /** Output previously written for {@code source}, so a re-conversion replaces it instead of adding a copy. */
+    public Path previousOutput(Path source) {
+        Entry entry = entries.get(key(source));
+        return entry == null ? null : outputRoot.resolve(entry.output());
+    }
+
+    /** Captures size, mtime and optionally the checksum of a source before it is converted. */
+    public static Fingerprint fingerprint(Path source, boolean useHash) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+        return new Fingerprint(attrs.size(), attrs.lastModifiedTime().toMillis(), useHash ? checksum(source) : NO_HASH);
+    }
+
+    /** Records a finished conversion. */
+    public void record(Path source, Fingerprint fingerprint, Path output, String settings) throws IOException {
+        String relative = outputRoot.relativize(output.toAbsolutePath().normalize()).toString();
+        put(key(source), new Entry(fingerprint, relative, outputSize(output), settings));
+    }
+
+    /** Size of an output file, or the total size of the files directly inside an output directory. */
+    private static long outputSize(Path output) throws IOException {
+        if (!Files.isDirectory(output)) return Files.size(output);
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(output)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) total += Files.size(file);
+            }
+        }
+        return total;
+    }
+
+    /** Rewrites the manifest with one line per source, replacing the journal atomically. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal == null) return;
+        journal.close();
+        journal = null;
+
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                out.write(format(e.getKey(), e.getValue()));
+                out.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void put(String key, Entry entry) throws IOException {
+        // Such a path would break its line, both in the journal and in the manifest compacted on close
+        if (breaksLine(key) || breaksLine(entry.output())) {
+            log.debug("Not recording path with control characters: {}", key);
+            return;
+        }
+        entries.put(key, entry);
+        writeLine(format(key, entry));
+    }
+
+    private static boolean breaksLine(String field) {
+        return field.indexOf('\t') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+    }
+
+    private synchronized void writeLine(String line) throws IOException {
+        if (journal == null) throw new IOException("Manifest already closed: " + file);
+        journal.write(line);
+        journal.newLine();
+        journal.flush();
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] f = line.split("\t", -1);
+                if (f.length != 7) {
+                    log.debug("Skipping malformed manifest line in {}: {}", file, line);
+                    continue;
+                }
+                try {
+                    long hash = f[3].equals("-") ? NO_HASH : Long.parseLong(f[3], 16);
+                    Fingerprint fp = new Fingerprint(Long.parseLong(f[1]), Long.parseLong(f[2]), hash);
+                    // Later lines win: the journal appends a new line for every re-conversion
+                    entries.put(f[0], new Entry(fp, f[4], Long.parseLong(f[5]), f[6]));
+                } catch (NumberFormatException e) {
+                    log.debug("Skipping malformed manifest line in {}: {}", file, line);
+                }
+            }
+        }
+        log.info("Loaded {} manifest entries from {}", entries.size(), file);
+    }
+
+    private static String format(String key, Entry e) {
+        Fingerprint fp = e.source();
+        String hash = fp.hash() == NO_HASH ? "-" : Long.toHexString(fp.hash());
+        return String.join("\t", key, Long.toString(fp.size()), Long.toString(fp.modified()), hash,
+                e.output(), Long.toString(e.outputSize()), e.settings());
+    }
+
+    private static String key(Path source) {
+        return source.toAbsolutePath().normalize().toString();
+    }
+
+    /** CRC32C of the whole file; hardware accelerated and sufficient for change detection. */
+    private static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buf = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buf)) > 0) crc.update(buf, 0, n);
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,110 @@
+package com.opsify.features.audio.converter.service;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Optional behaviour for a single {@link AudioConverterService#convert} call.
+ * Every option defaults to the plain convert-everything behaviour.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class ConversionOptions {
+
+    /**
+     * Skip sources whose output from a previous run is still valid, tracked by a
+     * {@link ConversionManifest} in the output root. Changed sources overwrite their previous output.
+     */
+    @Builder.Default
+    private final boolean incremental = false;
+
+    /**
+     * In incremental mode, record a content checksum so a source whose mtime changed
+     * but whose bytes did not (touched, restored from backup) is still skipped.
+     */
+    @Builder.Default
+    private final boolean contentHash = false;
+
+    /**
+     * Split long files (at least two minutes per segment) into time ranges encoded in parallel and
+     * joined without re-encoding. Applies to single-target re-encodes of PCM and FLAC sources to wav, flac
+     * and opus; other sources and targets are encoded in one pass. MP3 is left out because segments would
+     * have to be encoded without LAME's bit reservoir, at lower quality than one pass.
+     */
+    @Builder.Default
+    private final boolean segmented = false;
+
+    /**
+     * Find all inputs and probe their durations before converting, then start the longest files first so a
+     * long recording does not run alone at the end of the batch. Progress is reported weighted by duration
+     * through {@link ConversionListener#onProgress(double)}. The first conversion starts after the probe pass.
+     */
+    @Builder.Default
+    private final boolean longestFirst = false;
+
+    /**
+     * Tune the number of active workers while the job runs, between one and the engine's parallelism, by
+     * watching decoded audio per second, CPU use and I/O wait. Jobs sharing an engine share the setting.
+     */
+    @Builder.Default
+    private final boolean adaptiveConcurrency = false;
+
+    /**
+     * Convert in child worker processes, one per engine worker, instead of inside this JVM. A file that crashes
+     * FFmpeg then only fails itself; its worker process is replaced. Costs a JVM start per worker and job.
+     */
+    @Builder.Default
+    private final boolean isolated = false;
+
+    /**
+     * Write a per-file timing report into each output root when the job ends, see {@link ConversionReport}.
+     * Also written for cancelled jobs, covering the files done by then.
+     */
+    @Builder.Default
+    private final ConversionReport.Format report = ConversionReport.Format.NONE;
+
+    /**
+     * Split album images that have a companion {@code .cue} sheet into one file per track, in a directory named
+     * after the image. The image is decoded once for all tracks, and track titles, numbers and performers from
+     * the sheet become tags.
+     */
+    @Builder.Default
+    private final boolean splitCue = false;
+
+    /**
+     * Measure integrated loudness (EBU R128) and peak of every re-encoded output from the samples the encode
+     * already decodes, then write ReplayGain tags (mp3, flac, ogg, opus, mka) and add the values to the report.
+     * Copied and remuxed outputs are not decoded, so they are not measured.
+     */
+    @Builder.Default
+    private final boolean loudness = false;
+
+    /**
+     * Sample rate of re-encoded outputs in Hz, 0 to keep the source rate. Resampling happens between decoder and
+     * encoder, in the same pass. A rate the encoder does not support is replaced by the nearest higher one it
+     * does (opus only takes 8, 12, 16, 24 and 48 kHz).
+     */
+    @Builder.Default
+    private final int sampleRate = 0;
+
+    /** Channel count of re-encoded outputs, 0 to keep the source layout; 1 downmixes to mono. */
+    @Builder.Default
+    private final int channels = 0;
+
+    /** Sample format of wav and flac outputs, null for the encoder default (16-bit). */
+    @Builder.Default
+    private final SampleFormat sampleFormat = null;
+
+    /** Encoder speed/quality trade-off used when a file has to be re-encoded. */
+    @Builder.Default
+    private final EncoderPreset preset = EncoderPreset.BALANCED;
+
+    /** True if outputs may differ from the source in rate, channels or format, which rules out copies. */
+    public boolean reshapesAudio() {
+        return sampleRate > 0 || channels > 0 || sampleFormat != null;
+    }
+
+    public static ConversionOptions defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,253 @@
+package com.opsify.features.audio.converter.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Per-file timing report of one conversion into one output root, written there when the job ends.
+ * <p>
+ * Every output gets a line with its source stream, sizes, the time spent probing, decoding and encoding, and
+ * writing, and its realtime factor (seconds of audio per second of conversion). The summary gives percentiles
+ * of the per-file time and the totals per source codec, to show which files and codecs dominate a batch.
+ * With loudness analysis on, lines also carry the integrated loudness and peak of the output.
+ * CSV reports are two files, {@code opsify-report.csv} and {@code opsify-report-summary.csv}; JSON reports one
+ * {@code opsify-report.json} holding both.
+ */
+public class ConversionReport {
+
+    public static final String FILE_NAME = "opsify-report";
+
+    public enum Format { NONE, CSV, JSON }
+
+    /**
+     * One output. Times are in microseconds and belong to the source's whole conversion, so outputs decoded
+     * in the same pass share them. Loudness (LUFS) and peak are NaN unless measured; for a split cue image
+     * they are the album's.
+     */
+    public record Entry(Path input, Path output, String status, String mode, String codec, int sampleRate,
+                        long durationMicros, long inputBytes, long outputBytes,
+                        long probeMicros, long codingMicros, long writeMicros, long totalMicros,
+                        double loudnessLufs, double peak, String error) {
+
+        public double realtimeFactor() {
+            return totalMicros == 0 ? 0 : (double) durationMicros / totalMicros;
+        }
+    }
+
+    /**
+     * Converted outputs of one source codec, or of all codecs with key {@code "all"}: counts, totals in
+     * seconds, percentiles of the per-file time in milliseconds, and the realtime factor of the group.
+     */
+    public record Summary(String key, int files, double audioSeconds, double busySeconds, double probeSeconds,
+                          double codingSeconds, double writeSeconds, long p50Millis, long p90Millis,
+                          long p99Millis, long maxMillis) {
+
+        public double realtimeFactor() {
+            return busySeconds == 0 ? 0 : audioSeconds / busySeconds;
+        }
+    }
+
+    private static final String[] ENTRY_COLUMNS = {"input", "output", "status", "mode", "codec", "sample_rate",
+            "duration_s", "input_bytes", "output_bytes", "probe_ms", "decode_encode_ms", "write_ms", "total_ms",
+            "realtime", "loudness_lufs", "peak", "error"};
+    private static final String[] SUMMARY_COLUMNS = {"codec", "files", "audio_s", "busy_s", "probe_s",
+            "decode_encode_s", "write_s", "p50_ms", "p90_ms", "p99_ms", "max_ms", "realtime"};
+
+    private final Path outputRoot;
+    private final Format format;
+    private final Collection<Entry> entries = new ConcurrentLinkedQueue<>();
+
+    public ConversionReport(Path outputRoot, Format format) {
+        this.outputRoot = outputRoot;
+        this.format = format;
+    }
+
+    /** Safe to call from several workers at once. */
+    public void add(Entry entry) {
+        entries.add(entry);
+    }
+
+    public List<Entry> entries() {
+        return new ArrayList<>(entries);
+    }
+
+    /** The {@code "all"} group first, then one group per source codec by busy time, largest first. */
+    public List<Summary> summarize() {
+        List<Entry> converted = new ArrayList<>();
+        Map<String, List<Entry>> byCodec = new TreeMap<>();
+        for (Entry entry : entries) {
+            if (!"converted".equals(entry.status())) continue;
+            converted.add(entry);
+            byCodec.computeIfAbsent(entry.codec().isEmpty() ? "unknown" : entry.codec(), c -> new ArrayList<>()).add(entry);
+        }
+        List<Summary> codecs = new ArrayList<>();
+        byCodec.forEach((codec, group) -> codecs.add(summarize(codec, group)));
+        codecs.sort(Comparator.comparingDouble(Summary::busySeconds).reversed());
+
+        List<Summary> summaries = new ArrayList<>();
+        summaries.add(summarize("all", converted));
+        summaries.addAll(codecs);
+        return summaries;
+    }
+
+    private static Summary summarize(String key, List<Entry> group) {
+        long[] totals = new long[group.size()];
+        long audio = 0, busy = 0, probe = 0, coding = 0, write = 0;
+        for (int i = 0; i < group.size(); i++) {
+            Entry e = group.get(i);
+            totals[i] = e.totalMicros();
+            audio += e.durationMicros();
+            busy += e.totalMicros();
+            probe += e.probeMicros();
+            coding += e.codingMicros();
+            write += e.writeMicros();
+        }
+        Arrays.sort(totals);
+        return new Summary(key, group.size(), audio / 1e6, busy / 1e6, probe / 1e6, coding / 1e6, write / 1e6,
+                percentile(totals, 50) / 1000, percentile(totals, 90) / 1000, percentile(totals, 99) / 1000,
+                totals.length == 0 ? 0 : totals[totals.length - 1] / 1000);
+    }
+
+    /** Nearest-rank percentile of sorted values, 0 for none. */
+    static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Writes the report into the output root, replacing the one of a previous run.
+     *
+     * @return the report file, the per-file one for CSV; null if the format is {@link Format#NONE}
+     */
+    public Path write() throws IOException {
+        List<Entry> sorted = entries();
+        sorted.sort(Comparator.comparing(Entry::input).thenComparing(e -> String.valueOf(e.output())));
+        List<Summary> summaries = summarize();
+        switch (format) {
+            case CSV -> {
+                Path file = outputRoot.resolve(FILE_NAME + ".csv");
+                try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    writeCsvRow(out, (Object[]) ENTRY_COLUMNS);
+                    for (Entry e : sorted) writeCsvRow(out, entryValues(e));
+                }
+                try (BufferedWriter out = Files.newBufferedWriter(outputRoot.resolve(FILE_NAME + "-summary.csv"),
+                        StandardCharsets.UTF_8)) {
+                    writeCsvRow(out, (Object[]) SUMMARY_COLUMNS);
+                    for (Summary s : summaries) writeCsvRow(out, summaryValues(s));
+                }
+                return file;
+            }
+            case JSON -> {
+                Path file = outputRoot.resolve(FILE_NAME + ".json");
+                try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    out.write("{\n  \"files\": [");
+                    writeJsonObjects(out, ENTRY_COLUMNS, sorted.stream().map(ConversionReport::entryValues).toList());
+                    out.write("],\n  \"summary\": [");
+                    writeJsonObjects(out, SUMMARY_COLUMNS, summaries.stream().map(ConversionReport::summaryValues).toList());
+                    out.write("]\n}\n");
+                }
+                return file;
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static Object[] entryValues(Entry e) {
+        return new Object[] {e.input().toString(), e.output() == null ? "" : e.output().toString(), e.status(),
+                e.mode(), e.codec(), e.sampleRate(), seconds(e.durationMicros()), e.inputBytes(), e.outputBytes(),
+                millis(e.probeMicros()), millis(e.codingMicros()), millis(e.writeMicros()), millis(e.totalMicros()),
+                ratio(e.realtimeFactor()), measured("%.2f", e.loudnessLufs()), measured("%.6f", e.peak()),
+                e.error() == null ? "" : e.error()};
+    }
+
+    private static Object[] summaryValues(Summary s) {
+        return new Object[] {s.key(), s.files(), ratio(s.audioSeconds()), ratio(s.busySeconds()),
+                ratio(s.probeSeconds()), ratio(s.codingSeconds()), ratio(s.writeSeconds()),
+                s.p50Millis(), s.p90Millis(), s.p99Millis(), s.maxMillis(), ratio(s.realtimeFactor())};
+    }
+
+    /** A pre-formatted number, written unquoted in both formats. */
+    private record Decimal(String text) {
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    /** Null, an empty CSV cell or JSON null, for a value that was not measured. */
+    private static Decimal measured(String format, double value) {
+        return Double.isNaN(value) ? null : new Decimal(String.format(Locale.ROOT, format, value));
+    }
+
+    private static Decimal seconds(long micros) {
+        return new Decimal(String.format(Locale.ROOT, "%.3f", micros / 1e6));
+    }
+
+    private static Decimal millis(long micros) {
+        return new Decimal(String.format(Locale.ROOT, "%.1f", micros / 1e3));
+    }
+
+    private static Decimal ratio(double value) {
+        return new Decimal(String.format(Locale.ROOT, "%.2f", value));
+    }
+
+    private static void writeCsvRow(BufferedWriter out, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.write(',');
+            String text = values[i] == null ? "" : String.valueOf(values[i]);
+            if (values[i] instanceof String && (text.contains(",") || text.contains("\"") || text.contains("\n"))) {
+                text = '"' + text.replace("\"", "\"\"") + '"';
+            }
+            out.write(text);
+        }
+        out.write('\n');
+    }
+
+    private static void writeJsonObjects(BufferedWriter out, String[] keys, List<Object[]> rows) throws IOException {
+        for (int r = 0; r < rows.size(); r++) {
+            out.write(r == 0 ? "\n    {" : ",\n    {");
+            Object[] values = rows.get(r);
+            for (int i = 0; i < keys.length; i++) {
+                if (i > 0) out.write(", ");
+                out.write('"' + keys[i] + "\": ");
+                out.write(values[i] instanceof String text ? jsonString(text) : String.valueOf(values[i]));
+            }
+            out.write('}');
+        }
+        if (!rows.isEmpty()) out.write("\n  ");
+    }
+
+    private static String jsonString(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
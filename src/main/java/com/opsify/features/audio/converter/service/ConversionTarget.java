@@ -0,0 +1,14 @@
+package com.opsify.features.audio.converter.service;
+
+import lombok.NonNull;
+
+import java.nio.file.Path;
+
+/**
+ * One output format of a multi-target conversion, written below its own output root.
+ *
+ * @param outputDir root the converted tree is mirrored into; also holds this target's manifest
+ * @param targetExt output extension, e.g. {@code "mp3"}
+ */
+public record ConversionTarget(@NonNull Path outputDir, @NonNull String targetExt) {
+}
@@ -0,0 +1,94 @@
+package com.opsify.features.audio.converter.service;
+
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+
+/**
+ * Named speed/quality trade-offs for the re-encode path.
+ * {@link #BALANCED} keeps the historical behaviour (192 kbps, FFmpeg defaults); stream copies are lossless
+ * and ignore presets.
+ */
+public enum EncoderPreset {
+    /** Cheapest encoder settings; smaller CBR bitrates and low compression effort. */
+    FAST("Fast"),
+    /** 192 kbps with encoder defaults; Vorbis, which takes no bitrate, and FLAC keep their default settings. */
+    BALANCED("Balanced"),
+    /** Highest quality VBR and maximum compression effort; slowest. */
+    ARCHIVAL("Archival");
+
+    private final String label;
+
+    EncoderPreset(String label) {
+        this.label = label;
+    }
+
+    /** Sets bitrate and encoder options for {@code targetExt} on a recorder that has not been started. */
+    public void configure(FFmpegFrameRecorder recorder, String targetExt) {
+        switch (targetExt.toLowerCase()) {
+            case "mp3":
+                // libmp3lame: compression_level is LAME -q (0 best .. 9 fastest), audio quality is VBR -V
+                if (this == FAST) {
+                    recorder.setAudioBitrate(128000);
+                    recorder.setAudioOption("compression_level", "7");
+                } else if (this == ARCHIVAL) {
+                    recorder.setAudioQuality(0);
+                    recorder.setAudioOption("compression_level", "0");
+                } else {
+                    recorder.setAudioBitrate(192000);
+                }
+                break;
+            case "aac":
+            case "m4a":
+            case "m4b":
+                recorder.setAudioOption("profile", "aac_low");
+                if (this == FAST) {
+                    recorder.setAudioBitrate(128000);
+                    recorder.setAudioOption("aac_coder", "fast");
+                } else if (this == ARCHIVAL) {
+                    recorder.setAudioBitrate(256000);
+                } else {
+                    recorder.setAudioBitrate(192000);
+                }
+                break;
+            case "ogg":
+            case "oga":
+                // FFmpeg's built-in Vorbis encoder is driven by quality only (default 8) and ignores bitrate,
+                // so BALANCED keeps the default
+                if (this == FAST) {
+                    recorder.setAudioQuality(4);
+                } else if (this == ARCHIVAL) {
+                    recorder.setAudioQuality(10);
+                }
+                break;
+            case "opus":
+                // libopus: compression_level is encoder complexity (0 fastest .. 10 best, the default)
+                if (this == FAST) {
+                    recorder.setAudioBitrate(96000);
+                    recorder.setAudioOption("compression_level", "3");
+                } else if (this == ARCHIVAL) {
+                    recorder.setAudioBitrate(256000);
+                } else {
+                    recorder.setAudioBitrate(192000);
+                }
+                break;
+            case "flac":
+                // Lossless: only the effort spent on compression changes (0 .. 12, default 5)
+                if (this == FAST) {
+                    recorder.setAudioOption("compression_level", "0");
+                } else if (this == ARCHIVAL) {
+                    recorder.setAudioOption("compression_level", "8");
+                }
+                break;
+            case "wav":
+                // PCM has no encoder options
+                break;
+            default:
+                recorder.setAudioBitrate(this == FAST ? 128000 : this == ARCHIVAL ? 256000 : 192000);
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,72 @@
+package com.opsify.features.audio.converter.service;
+
+import com.opsify.features.audio.converter.utils.AudioProbe;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+
+import static org.bytedeco.ffmpeg.global.avcodec.avcodec_get_name;
+
+/**
+ * What converting one source measured: the source stream and the time spent per phase.
+ * Filled by the worker converting the source; when one source feeds several passes (a shared decode plus
+ * separate copies) the phase times add up. Muxing happens while encoding, so "write" only covers the encoder
+ * flush, trailer and file close, or the whole copy for plain copies.
+ */
+final class FileStats {
+    /** copy, remux, encode, segmented or split; the last pass wins. */
+    String mode = "";
+    String codec = "";
+    int sampleRate;
+    long durationMicros;
+    long probeNanos;
+    long codingNanos;
+    long writeNanos;
+    /** Integrated loudness in LUFS and sample peak, NaN unless measured. */
+    double loudnessLufs = Double.NaN;
+    double peak = Double.NaN;
+    private long mark;
+
+    /** Starts timing a pass. */
+    void begin() {
+        mark = System.nanoTime();
+    }
+
+    /** Ends the probe phase of a pass that opened the source with JavaCV. */
+    void probed(FFmpegFrameGrabber grabber) {
+        probeNanos += lap();
+        // Codec rather than decoder name, "mp3" rather than "mp3float", matching AudioProbe
+        codec = avcodec_get_name(grabber.getAudioCodec()).getString();
+        sampleRate = Math.max(0, grabber.getSampleRate());
+        durationMicros = Math.max(0, grabber.getLengthInTime());
+    }
+
+    /** Ends the probe phase of a plain copy. */
+    void probed(AudioProbe.AudioStream stream) {
+        probeNanos += lap();
+        codec = stream.codec();
+        sampleRate = stream.sampleRate();
+        durationMicros = stream.durationMicros();
+    }
+
+    /** Ends the decode and encode (or packet copy) phase. */
+    void coded() {
+        codingNanos += lap();
+    }
+
+    /** Ends the write phase. */
+    void written() {
+        writeNanos += lap();
+    }
+
+    /** Records the loudness measured while encoding. */
+    void measured(double lufs, double peak) {
+        this.loudnessLufs = lufs;
+        this.peak = peak;
+    }
+
+    private long lap() {
+        long now = System.nanoTime();
+        long elapsed = mark == 0 ? 0 : now - mark;
+        mark = now;
+        return elapsed;
+    }
+}
@@ -0,0 +1,191 @@
+package com.opsify.features.audio.converter.service;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Integrated loudness (ITU-R BS.1770-4 / EBU R128) and sample peak of decoded audio, fed the frames the
+ * transcode already decodes.
+ * <p>
+ * Samples are K-weighted per channel, squared and summed into 100 ms steps; loudness is measured over 400 ms
+ * blocks overlapping by 75%, gated at -70 LUFS and then 10 LU below the ungated mean. Only one block energy per
+ * step is kept, so memory grows by about 80 bytes per second of audio. The peak is the largest absolute sample,
+ * not the oversampled true peak.
+ */
+final class LoudnessMeter {
+
+    /** ReplayGain 2.0 reference loudness. */
+    static final double REPLAY_GAIN_REFERENCE_LUFS = -18;
+    private static final double ABSOLUTE_GATE_LUFS = -70;
+    private static final double RELATIVE_GATE_LU = -10;
+
+    private int channels;
+    private double[] weights;
+    private KWeighting[] filters;
+    private int stepSize;
+    private int inStep;
+    private double stepEnergy;
+    /** Weighted energy of the last 4 steps, for the block ending at the current step. */
+    private final double[] recentSteps = new double[4];
+    private long steps;
+    private double[] blocks = new double[256];
+    private int blockCount;
+    private double peak;
+
+    /**
+     * Adds one decoded frame, interleaved ({@code samples.length == 1}) or planar. The format is taken from the
+     * first frame; like the recorders, the meter assumes it does not change mid-stream.
+     */
+    void add(Buffer[] samples, int channels, int sampleRate) {
+        if (channels <= 0 || sampleRate <= 0) return;
+        if (filters == null) init(channels, sampleRate);
+        boolean interleaved = samples.length == 1;
+        int count = samples[0].remaining() / (interleaved ? channels : 1);
+        for (int i = 0; i < count; i++) {
+            double energy = 0;
+            for (int c = 0; c < this.channels; c++) {
+                double x = interleaved ? sample(samples[0], i * channels + c) : sample(samples[c], i);
+                double abs = Math.abs(x);
+                if (abs > peak) peak = abs;
+                double y = filters[c].process(x);
+                energy += weights[c] * y * y;
+            }
+            stepEnergy += energy;
+            if (++inStep == stepSize) endStep();
+        }
+    }
+
+    private void init(int channels, int sampleRate) {
+        this.channels = channels;
+        this.stepSize = Math.max(1, sampleRate / 10);
+        this.filters = new KWeighting[channels];
+        this.weights = new double[channels];
+        for (int c = 0; c < channels; c++) {
+            filters[c] = new KWeighting(sampleRate);
+            // 5.1 in FFmpeg's order: the LFE is left out and the surrounds weigh 1.41
+            weights[c] = channels >= 6 && c == 3 ? 0 : channels >= 6 && (c == 4 || c == 5) ? 1.41 : 1;
+        }
+    }
+
+    private void endStep() {
+        recentSteps[(int) (steps % 4)] = stepEnergy;
+        stepEnergy = 0;
+        inStep = 0;
+        if (++steps < 4) return;
+        double sum = recentSteps[0] + recentSteps[1] + recentSteps[2] + recentSteps[3];
+        if (blockCount == blocks.length) blocks = Arrays.copyOf(blocks, blockCount * 2);
+        blocks[blockCount++] = sum / (4.0 * stepSize);
+    }
+
+    /** Integrated loudness in LUFS, NaN if nothing rose above the absolute gate (silence or under 400 ms). */
+    double integratedLufs() {
+        return integratedLufs(List.of(this));
+    }
+
+    /** Largest absolute sample, 1.0 being full scale. */
+    double peak() {
+        return peak;
+    }
+
+    /** Gain in dB that brings this audio to the ReplayGain 2.0 reference, NaN if its loudness is unknown. */
+    static double replayGain(double lufs) {
+        return REPLAY_GAIN_REFERENCE_LUFS - lufs;
+    }
+
+    /** Integrated loudness of several meters taken as one programme, e.g. the tracks of an album. */
+    static double integratedLufs(List<LoudnessMeter> meters) {
+        List<double[]> all = new ArrayList<>();
+        for (LoudnessMeter meter : meters) all.add(Arrays.copyOf(meter.blocks, meter.blockCount));
+        double absoluteGate = energy(ABSOLUTE_GATE_LUFS);
+        double sum = 0;
+        int count = 0;
+        for (double[] blocks : all) {
+            for (double z : blocks) {
+                if (z > absoluteGate) {
+                    sum += z;
+                    count++;
+                }
+            }
+        }
+        if (count == 0) return Double.NaN;
+        double relativeGate = energy(lufs(sum / count) + RELATIVE_GATE_LU);
+        sum = 0;
+        count = 0;
+        for (double[] blocks : all) {
+            for (double z : blocks) {
+                if (z > absoluteGate && z > relativeGate) {
+                    sum += z;
+                    count++;
+                }
+            }
+        }
+        return count == 0 ? Double.NaN : lufs(sum / count);
+    }
+
+    private static double lufs(double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+
+    private static double energy(double lufs) {
+        return Math.pow(10, (lufs + 0.691) / 10);
+    }
+
+    /** Sample {@code index} of a plane in the decoder's format, scaled to [-1, 1]. */
+    private static double sample(Buffer plane, int index) {
+        int at = plane.position() + index;
+        if (plane instanceof FloatBuffer f) return f.get(at);
+        if (plane instanceof ShortBuffer s) return s.get(at) / 32768.0;
+        if (plane instanceof IntBuffer i) return i.get(at) / 2147483648.0;
+        if (plane instanceof DoubleBuffer d) return d.get(at);
+        return ((((ByteBuffer) plane).get(at) & 0xff) - 128) / 128.0;
+    }
+
+    /** BS.1770 pre-filter (high shelf) and RLB high-pass as two biquads, designed for the stream's rate. */
+    private static final class KWeighting {
+        private final double b0, b1, b2, a1, a2;
+        private final double c1, c2;
+        private double x1, x2, y1, y2, z1, z2;
+
+        KWeighting(int sampleRate) {
+            double f0 = 1681.974450955533;
+            double gain = 3.999843853973347;
+            double q = 0.7071752369554196;
+            double k = Math.tan(Math.PI * f0 / sampleRate);
+            double vh = Math.pow(10, gain / 20);
+            double vb = Math.pow(vh, 0.4996667741545416);
+            double a0 = 1 + k / q + k * k;
+            b0 = (vh + vb * k / q + k * k) / a0;
+            b1 = 2 * (k * k - vh) / a0;
+            b2 = (vh - vb * k / q + k * k) / a0;
+            a1 = 2 * (k * k - 1) / a0;
+            a2 = (1 - k / q + k * k) / a0;
+
+            f0 = 38.13547087602444;
+            q = 0.5003270373238773;
+            k = Math.tan(Math.PI * f0 / sampleRate);
+            double d0 = 1 + k / q + k * k;
+            c1 = 2 * (k * k - 1) / d0;
+            c2 = (1 - k / q + k * k) / d0;
+        }
+
+        double process(double x) {
+            double y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+            // High-pass numerator is 1, -2, 1
+            double z = y - 2 * y1 + y2 - c1 * z1 - c2 * z2;
+            x2 = x1;
+            x1 = x;
+            y2 = y1;
+            y1 = y;
+            z2 = z1;
+            z1 = z;
+            return z;
+        }
+    }
+}
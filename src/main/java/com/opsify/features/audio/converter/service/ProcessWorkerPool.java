@@ -0,0 +1,252 @@
+package com.opsify.features.audio.converter.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs transcodes in child JVMs, so a file that crashes FFmpeg natively, or leaks native memory, only takes
+ * its worker process down.
+ * <p>
+ * Each engine worker borrows a process for one file, so the pool scales with the engine and never holds
+ * more than {@code size} processes. A worker that dies fails the file it was converting, its partial outputs
+ * are deleted, and a fresh process replaces it on the next borrow. Workers are also replaced after
+ * {@value #RECYCLE_AFTER_FILES} files, which bounds slow native leaks. Cancel and pause of the job are passed on.
+ */
+@Slf4j
+final class ProcessWorkerPool implements Closeable {
+
+    static final int RECYCLE_AFTER_FILES = 200;
+    /** How often a waiting engine worker looks at the job's cancel and pause state. */
+    private static final long POLL_MILLIS = 100;
+    private static final long START_TIMEOUT_SECONDS = 60;
+
+    private final List<String> command;
+    /** One permit per process the pool may run. */
+    private final Semaphore slots;
+    private final Queue<Worker> idle = new ConcurrentLinkedQueue<>();
+    private final Set<Worker> live = ConcurrentHashMap.newKeySet();
+    private final AtomicLong ids = new AtomicLong();
+    private volatile boolean closed;
+
+    /** Pool of {@code size} workers running {@link AudioWorkerProcess} on this JVM's class path. */
+    ProcessWorkerPool(int size) {
+        this(size, defaultCommand(AudioWorkerProcess.class.getName()));
+    }
+
+    ProcessWorkerPool(int size, List<String> command) {
+        this.slots = new Semaphore(size);
+        this.command = List.copyOf(command);
+    }
+
+    /** Same Java and class path as this JVM; workers only stream sample buffers, so a small heap will do. */
+    static List<String> defaultCommand(String mainClass) {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return List.of(java, "-Xmx256m", "-XX:+UseSerialGC", "-cp", System.getProperty("java.class.path"), mainClass);
+    }
+
+    /**
+     * Same contract as {@link AudioConverterServiceImpl#transcodeToAll}, run in a worker process; the worker's
+     * measurements are added to {@code stats}.
+     *
+     * @throws IOException if the file cannot be read or the worker died converting it
+     * @throws CancellationException if the job was cancelled meanwhile
+     */
+    Map<Path, IOException> transcodeToAll(Path input, Map<Path, String> outputs, ConversionOptions options,
+                                          ConversionJob job, FileStats stats) throws IOException {
+        Worker worker = borrow();
+        boolean healthy = false;
+        try {
+            String id = Long.toString(ids.incrementAndGet());
+            List<String> request = new ArrayList<>(List.of(WorkerProtocol.CONVERT, id, input.toString(),
+                    WorkerProtocol.options(options)));
+            for (Map.Entry<Path, String> output : outputs.entrySet()) {
+                request.add(output.getKey().toString());
+                request.add(output.getValue());
+            }
+            worker.send(WorkerProtocol.line(request));
+            List<String> reply = worker.await(job);
+            if (reply == null) {
+                for (Path output : outputs.keySet()) AudioConverterServiceImpl.deletePartial(output);
+                throw new IOException("Worker process crashed converting " + input + " (exit code " + worker.exitCode() + ")");
+            }
+            healthy = true;
+            switch (reply.get(0)) {
+                case WorkerProtocol.CANCELLED -> throw new CancellationException("Conversion cancelled: " + input);
+                case WorkerProtocol.ERROR -> throw new IOException(reply.get(2));
+                default -> { }
+            }
+            WorkerProtocol.stats(reply, 2, stats);
+            Map<Path, IOException> failures = new HashMap<>();
+            for (int i = 2 + WorkerProtocol.STATS_FIELDS; i + 1 < reply.size(); i += 2) {
+                failures.put(Path.of(reply.get(i)), new IOException(reply.get(i + 1)));
+            }
+            return failures;
+        } finally {
+            release(worker, healthy);
+        }
+    }
+
+    private Worker borrow() throws IOException {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a worker process");
+        }
+        try {
+            if (closed) throw new IOException("Worker pool closed");
+            Worker worker = idle.poll();
+            if (worker == null) {
+                worker = new Worker(command);
+                live.add(worker);
+            }
+            return worker;
+        } catch (IOException | RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    /** Returns a worker for reuse, or retires it if it died or is due for recycling. */
+    private void release(Worker worker, boolean healthy) {
+        if (healthy && worker.files < RECYCLE_AFTER_FILES && worker.isAlive() && !closed) {
+            idle.add(worker);
+        } else {
+            if (!healthy) log.warn("Worker process {} died; a new one takes the next file", worker.pid());
+            live.remove(worker);
+            worker.stop();
+        }
+        slots.release();
+    }
+
+    /** Asks every worker to exit and waits briefly before killing stragglers. */
+    @Override
+    public void close() {
+        closed = true;
+        idle.clear();
+        for (Worker worker : live) worker.stop();
+        live.clear();
+    }
+
+    /** One child process and its pipes. */
+    private static final class Worker {
+        private final Process process;
+        private final BufferedWriter in;
+        private final BlockingQueue<List<String>> replies = new LinkedBlockingQueue<>();
+        int files;
+
+        Worker(List<String> command) throws IOException {
+            process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            Thread reader = new Thread(this::readReplies, "audio-worker-" + process.pid());
+            reader.setDaemon(true);
+            reader.start();
+            List<String> ready;
+            try {
+                ready = replies.poll(START_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ready = null;
+            }
+            if (ready == null || ready.isEmpty() || !WorkerProtocol.READY.equals(ready.get(0))) {
+                process.destroyForcibly();
+                throw new IOException("Worker process did not start");
+            }
+            log.debug("Started worker process {}", process.pid());
+        }
+
+        private void readReplies() {
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) replies.add(WorkerProtocol.fields(line));
+            } catch (IOException e) {
+                // Treated as a crash below
+            }
+            replies.add(List.of());
+        }
+
+        void send(String line) throws IOException {
+            in.write(line);
+            in.write('\n');
+            in.flush();
+        }
+
+        /** Waits for the reply to the last request, passing cancel and pause on; null if the process died. */
+        List<String> await(ConversionJob job) throws IOException {
+            files++;
+            boolean cancelSent = false;
+            boolean pausedSent = false;
+            while (true) {
+                List<String> reply;
+                try {
+                    reply = replies.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for worker process " + pid());
+                }
+                if (reply != null) return reply.isEmpty() ? null : reply;
+                if (job.isCancelled() && !cancelSent) {
+                    send(WorkerProtocol.CANCEL);
+                    cancelSent = true;
+                } else if (job.isPaused() != pausedSent) {
+                    pausedSent = !pausedSent;
+                    send(pausedSent ? WorkerProtocol.PAUSE : WorkerProtocol.RESUME);
+                }
+            }
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        long pid() {
+            return process.pid();
+        }
+
+        String exitCode() {
+            try {
+                return process.waitFor(1, TimeUnit.SECONDS) ? Integer.toString(process.exitValue()) : "unknown";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "unknown";
+            }
+        }
+
+        void stop() {
+            if (!process.isAlive()) return;
+            try {
+                send(WorkerProtocol.EXIT);
+                in.close();
+                if (process.waitFor(2, TimeUnit.SECONDS)) return;
+            } catch (IOException e) {
+                // Pipe already broken
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            process.destroyForcibly();
+        }
+    }
+}
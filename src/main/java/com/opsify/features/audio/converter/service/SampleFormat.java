@@ -0,0 +1,12 @@
+package com.opsify.features.audio.converter.service;
+
+/**
+ * Sample format of lossless outputs. wav is written as the matching PCM codec and flac at that bit depth
+ * (it has no float mode, so {@link #F32} leaves flac at its default); lossy encoders always use their own
+ * internal format.
+ */
+public enum SampleFormat {
+    S16,
+    S24,
+    F32
+}
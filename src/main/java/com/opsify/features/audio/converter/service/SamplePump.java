@@ -0,0 +1,250 @@
+package com.opsify.features.audio.converter.service;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.FrameRecorder;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Decode-to-encode sample loop of the re-encode path.
+ * <p>
+ * The grabber runs in {@link FrameGrabber.SampleMode#RAW RAW} mode, so samples arrive in the decoder's
+ * native format instead of being converted to interleaved S16 first; the recorder then builds a single
+ * resampler per file, since format, layout and rate never change mid-stream. Each frame is copied into
+ * heap buffers pooled per worker thread and reused across frames and files: for array-backed buffers the
+ * recorder copies into its existing native input, where direct buffers would be wrapped in a new Pointer
+ * on every call. Every loop checks the {@link ConversionJob} once per frame, so pause and cancel take
+ * effect within a frame.
+ */
+final class SamplePump {
+    private SamplePump() {}
+
+    private static final ThreadLocal<PooledBuffers> POOL = ThreadLocal.withInitial(PooledBuffers::new);
+
+    /** Must be called before {@code grabber.start()}. */
+    static void prepare(FFmpegFrameGrabber grabber) {
+        grabber.setSampleMode(FrameGrabber.SampleMode.RAW);
+    }
+
+    /** Moves every sample frame from grabber to recorder, and to {@code meter} if not null; returns the number of frames. */
+    static long pump(FFmpegFrameGrabber grabber, FFmpegFrameRecorder recorder, SamplePumpMetrics metrics,
+                     ConversionJob job, LoudnessMeter meter)
+            throws FrameGrabber.Exception, FrameRecorder.Exception {
+        PooledBuffers pool = POOL.get();
+        long allocatedBefore = metrics.currentThreadAllocatedBytes();
+        long frames = 0;
+        Frame frame;
+        while ((frame = grabber.grabSamples()) != null) {
+            job.checkpoint();
+            if (frames++ == 0) metrics.firstFrame();
+            metrics.decoded(sampleCount(frame), frame.sampleRate);
+            if (meter != null) meter.add(frame.samples, frame.audioChannels, frame.sampleRate);
+            recorder.recordSamples(frame.sampleRate, frame.audioChannels, pool.copyOf(frame.samples));
+        }
+        metrics.record(frames, metrics.currentThreadAllocatedBytes() - allocatedBefore);
+        return frames;
+    }
+
+    /**
+     * Decodes once and hands every frame to each recorder in turn, all reading the same pooled copy.
+     * A recorder that fails is reported to {@code onFailure} and dropped; the others keep going.
+     * Stops early once no recorder is left. {@code meter}, if not null, measures the decoded audio once for all.
+     * Returns the number of frames decoded.
+     */
+    static long pumpAll(FFmpegFrameGrabber grabber, List<FFmpegFrameRecorder> recorders, SamplePumpMetrics metrics,
+                        ConversionJob job, LoudnessMeter meter,
+                        BiConsumer<FFmpegFrameRecorder, FrameRecorder.Exception> onFailure)
+            throws FrameGrabber.Exception {
+        PooledBuffers pool = POOL.get();
+        List<FFmpegFrameRecorder> live = new ArrayList<>(recorders);
+        long allocatedBefore = metrics.currentThreadAllocatedBytes();
+        long frames = 0;
+        Frame frame;
+        while (!live.isEmpty() && (frame = grabber.grabSamples()) != null) {
+            job.checkpoint();
+            if (frames++ == 0) metrics.firstFrame();
+            metrics.decoded(sampleCount(frame), frame.sampleRate);
+            if (meter != null) meter.add(frame.samples, frame.audioChannels, frame.sampleRate);
+            Buffer[] samples = pool.copyOf(frame.samples);
+            for (Iterator<FFmpegFrameRecorder> it = live.iterator(); it.hasNext(); ) {
+                FFmpegFrameRecorder recorder = it.next();
+                try {
+                    recorder.recordSamples(frame.sampleRate, frame.audioChannels, samples);
+                } catch (FrameRecorder.Exception e) {
+                    it.remove();
+                    onFailure.accept(recorder, e);
+                }
+            }
+        }
+        metrics.record(frames, metrics.currentThreadAllocatedBytes() - allocatedBefore);
+        return frames;
+    }
+
+    /**
+     * Records only the samples at positions {@code [from, to)}, trimming frames that straddle either end,
+     * and stops once {@code to} is reached. {@code position} maps a frame to the position of its first
+     * sample. Returns the position just past the last recorded sample, or {@code from} if none was.
+     */
+    static long pumpRange(FFmpegFrameGrabber grabber, FFmpegFrameRecorder recorder, long from, long to,
+                          ToLongFunction<Frame> position, SamplePumpMetrics metrics, ConversionJob job)
+            throws FrameGrabber.Exception, FrameRecorder.Exception {
+        PooledBuffers pool = POOL.get();
+        long allocatedBefore = metrics.currentThreadAllocatedBytes();
+        long frames = 0;
+        long end = from;
+        Frame frame;
+        while ((frame = grabber.grabSamples()) != null) {
+            job.checkpoint();
+            int perSample = frame.samples.length == 1 ? frame.audioChannels : 1;
+            int count = sampleCount(frame);
+            long first = position.applyAsLong(frame);
+            if (first >= to) break;
+            if (first + count <= from) continue;
+
+            int skip = (int) Math.max(0, from - first);
+            int keep = (int) Math.min(count, to - first);
+            if (frames++ == 0) metrics.firstFrame();
+            metrics.decoded(keep - skip, frame.sampleRate);
+            Buffer[] samples = skip == 0 && keep == count
+                    ? pool.copyOf(frame.samples)
+                    : pool.copyOf(slice(frame.samples, skip * perSample, keep * perSample));
+            recorder.recordSamples(frame.sampleRate, frame.audioChannels, samples);
+            end = first + keep;
+        }
+        metrics.record(frames, metrics.currentThreadAllocatedBytes() - allocatedBefore);
+        return end;
+    }
+
+    /**
+     * Decodes once and routes samples by position: the recorders of track {@code i} get positions
+     * {@code [starts[i], starts[i + 1])}, the last track everything from its start to the end. Frames that
+     * straddle a boundary are split, so tracks join sample-exactly. Positions count decoded samples from the
+     * start of the stream. A recorder that fails is reported to {@code onFailure} and gets no more samples.
+     * {@code meters}, if not null, holds a meter per track. Returns the number of frames decoded.
+     */
+    static long pumpTracks(FFmpegFrameGrabber grabber, long[] starts, List<List<FFmpegFrameRecorder>> tracks,
+                           SamplePumpMetrics metrics, ConversionJob job, LoudnessMeter[] meters,
+                           BiConsumer<FFmpegFrameRecorder, FrameRecorder.Exception> onFailure)
+            throws FrameGrabber.Exception {
+        PooledBuffers pool = POOL.get();
+        Set<FFmpegFrameRecorder> failed = new HashSet<>();
+        long allocatedBefore = metrics.currentThreadAllocatedBytes();
+        long frames = 0;
+        long position = 0;
+        int track = 0;
+        Frame frame;
+        while ((frame = grabber.grabSamples()) != null) {
+            job.checkpoint();
+            if (frames++ == 0) metrics.firstFrame();
+            int perSample = frame.samples.length == 1 ? frame.audioChannels : 1;
+            int count = sampleCount(frame);
+            metrics.decoded(count, frame.sampleRate);
+            int offset = 0;
+            while (offset < count) {
+                while (track + 1 < starts.length && starts[track + 1] <= position + offset) track++;
+                int end = track + 1 < starts.length ? (int) Math.min(count, starts[track + 1] - position) : count;
+                Buffer[] samples = offset == 0 && end == count
+                        ? pool.copyOf(frame.samples)
+                        : pool.copyOf(slice(frame.samples, offset * perSample, end * perSample));
+                if (meters != null) meters[track].add(samples, frame.audioChannels, frame.sampleRate);
+                for (FFmpegFrameRecorder recorder : tracks.get(track)) {
+                    if (failed.contains(recorder)) continue;
+                    try {
+                        recorder.recordSamples(frame.sampleRate, frame.audioChannels, samples);
+                    } catch (FrameRecorder.Exception e) {
+                        failed.add(recorder);
+                        onFailure.accept(recorder, e);
+                    }
+                }
+                offset = end;
+            }
+            position += count;
+        }
+        metrics.record(frames, metrics.currentThreadAllocatedBytes() - allocatedBefore);
+        return frames;
+    }
+
+    /** Samples per channel in a frame; interleaved frames have one plane, planar ones a plane per channel. */
+    static int sampleCount(Frame frame) {
+        int perSample = frame.samples.length == 1 ? Math.max(1, frame.audioChannels) : 1;
+        return frame.samples[0].remaining() / perSample;
+    }
+
+    /** Views of elements {@code [from, to)} of each plane, relative to the plane's position. */
+    static Buffer[] slice(Buffer[] planes, int from, int to) {
+        Buffer[] slices = new Buffer[planes.length];
+        for (int i = 0; i < planes.length; i++) {
+            Buffer plane = planes[i];
+            int base = plane.position();
+            slices[i] = plane.duplicate().limit(base + to).position(base + from);
+        }
+        return slices;
+    }
+
+    /** Heap-backed plane buffers that only grow; one instance per worker thread. */
+    static final class PooledBuffers {
+        private Buffer[] planes = new Buffer[0];
+
+        Buffer[] copyOf(Buffer[] source) {
+            if (planes.length != source.length) planes = new Buffer[source.length];
+            for (int i = 0; i < source.length; i++) {
+                planes[i] = copy(source[i], planes[i]);
+            }
+            return planes;
+        }
+
+        private static Buffer copy(Buffer src, Buffer dst) {
+            int n = src.remaining();
+            int pos = src.position();
+            if (src instanceof FloatBuffer s) {
+                FloatBuffer d = dst instanceof FloatBuffer f && f.capacity() >= n ? f : FloatBuffer.allocate(grow(n));
+                d.clear();
+                d.put(s).flip();
+                dst = d;
+            } else if (src instanceof ShortBuffer s) {
+                ShortBuffer d = dst instanceof ShortBuffer f && f.capacity() >= n ? f : ShortBuffer.allocate(grow(n));
+                d.clear();
+                d.put(s).flip();
+                dst = d;
+            } else if (src instanceof IntBuffer s) {
+                IntBuffer d = dst instanceof IntBuffer f && f.capacity() >= n ? f : IntBuffer.allocate(grow(n));
+                d.clear();
+                d.put(s).flip();
+                dst = d;
+            } else if (src instanceof DoubleBuffer s) {
+                DoubleBuffer d = dst instanceof DoubleBuffer f && f.capacity() >= n ? f : DoubleBuffer.allocate(grow(n));
+                d.clear();
+                d.put(s).flip();
+                dst = d;
+            } else {
+                ByteBuffer s = (ByteBuffer) src;
+                ByteBuffer d = dst instanceof ByteBuffer f && f.capacity() >= n ? f : ByteBuffer.allocate(grow(n));
+                d.clear();
+                d.put(s).flip();
+                dst = d;
+            }
+            src.position(pos);
+            return dst;
+        }
+
+        /** Headroom so variable frame sizes (e.g. Vorbis) do not reallocate every few frames. */
+        private static int grow(int n) {
+            return Math.max(8192, n + (n >> 1));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.opsify.features.audio.converter.service;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Allocation and GC counters for the re-encode sample loop.
+ * Counters are cumulative for the service; {@link #snapshot()} and {@link Snapshot#since(Snapshot)}
+ * give the figures for one job. Jobs running at the same time share the counters.
+ */
+public class SamplePumpMetrics {
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    /** Decoded audio in nanoseconds; grows frame by frame, so it also shows progress inside long files. */
+    private final LongAdder audioNanos = new LongAdder();
+    private final AtomicLong firstFrameNanos = new AtomicLong();
+    private final com.sun.management.ThreadMXBean threads;
+
+    public SamplePumpMetrics() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threads = bean instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported()
+                ? sun : null;
+        if (threads != null && !threads.isThreadAllocatedMemoryEnabled()) threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /** Bytes allocated by the calling thread so far, or 0 if the JVM cannot tell. */
+    long currentThreadAllocatedBytes() {
+        return threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    void decoded(int samples, int sampleRate) {
+        if (sampleRate > 0) audioNanos.add(samples * 1_000_000_000L / sampleRate);
+    }
+
+    /** Counts audio decoded outside this JVM, by a worker process, once its file is done. */
+    void decodedElsewhere(long micros) {
+        audioNanos.add(micros * 1000);
+    }
+
+    /** Microseconds of audio decoded by the re-encode loop so far. */
+    long decodedAudioMicros() {
+        return audioNanos.sum() / 1000;
+    }
+
+    /** Notes when the service handled its first frame; later calls do nothing. */
+    void firstFrame() {
+        if (firstFrameNanos.get() == 0) firstFrameNanos.compareAndSet(0, System.nanoTime());
+    }
+
+    /** {@link System#nanoTime()} of the first frame handled, 0 if none yet. */
+    long firstFrameNanos() {
+        return firstFrameNanos.get();
+    }
+
+    void record(long fileFrames, long fileAllocatedBytes) {
+        files.increment();
+        frames.add(fileFrames);
+        allocatedBytes.add(fileAllocatedBytes);
+    }
+
+    public Snapshot snapshot() {
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        return new Snapshot(files.sum(), frames.sum(), allocatedBytes.sum(), gcCount, gcMillis);
+    }
+
+    /** Point-in-time counter values; GC figures are JVM-wide. */
+    public record Snapshot(long files, long frames, long allocatedBytes, long gcCount, long gcMillis) {
+
+        public Snapshot since(Snapshot start) {
+            return new Snapshot(files - start.files, frames - start.frames, allocatedBytes - start.allocatedBytes,
+                    gcCount - start.gcCount, gcMillis - start.gcMillis);
+        }
+
+        public long allocatedBytesPerFrame() {
+            return frames == 0 ? 0 : allocatedBytes / frames;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files, %d frames, %.1f MB allocated (%d B/frame), %d GCs taking %d ms",
+                    files, frames, allocatedBytes / (1024.0 * 1024.0), allocatedBytesPerFrame(), gcCount, gcMillis);
+        }
+    }
+}
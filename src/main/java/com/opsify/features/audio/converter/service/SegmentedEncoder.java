@@ -0,0 +1,534 @@
+package com.opsify.features.audio.converter.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.ffmpeg.avcodec.AVCodecParameters;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avformat.AVStream;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.FrameRecorder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_ID_ADPCM_IMA_QT;
+import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_ID_FIRST_AUDIO;
+import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_ID_FLAC;
+import static org.bytedeco.ffmpeg.global.avcodec.AV_PKT_DATA_SKIP_SAMPLES;
+import static org.bytedeco.ffmpeg.global.avcodec.av_new_packet;
+import static org.bytedeco.ffmpeg.global.avcodec.av_packet_new_side_data;
+import static org.bytedeco.ffmpeg.global.avcodec.av_packet_unref;
+import static org.bytedeco.ffmpeg.global.avutil.av_make_q;
+
+/**
+ * Encodes one long file as several time ranges in parallel and stitches the encoded frames together
+ * without re-encoding.
+ * <p>
+ * Split points sit on encoder frame boundaries, so each segment produces whole frames that line up with
+ * a single-pass encode. Opus starts every segment but the first a few frames early and those warm-up frames
+ * are dropped when stitching, so the encoder has settled by the first kept frame; joins are not bit-exact
+ * but as close to the source as the frames around them. FLAC frames are renumbered and STREAMINFO is
+ * rewritten for the whole stream; wav and FLAC output is identical to a single-pass encode. Segments go to
+ * temporary Matroska files next to the output and are encoded by idle engine workers together with the
+ * calling worker.
+ * <p>
+ * MP3 is not segmented: LAME frames borrow bits from earlier frames, so segments would have to turn the bit
+ * reservoir off and the result would be a lower-quality encode than one pass at the same bitrate. Sources are
+ * limited to PCM and FLAC, whose timestamps after a seek are sample-exact; positions in a seeked MP3 or other
+ * VBR stream are estimates, and a segment could start a few samples off.
+ */
+@Slf4j
+final class SegmentedEncoder {
+
+    /** Shortest range worth its own encoder; files shorter than two of these are encoded in one pass. */
+    static final long MIN_SEGMENT_MICROS = 120_000_000L;
+
+    /** Decoded and discarded before a segment's first sample after seeking, so the decoder has settled. */
+    private static final long SEEK_MARGIN_MICROS = 1_000_000L;
+    /** Frames a lossy segment encodes before its first kept frame. */
+    private static final int WARM_UP_FRAMES = 4;
+    private static final int FLAC_FRAME_SIZE = 4608;
+    private static final String SEGMENT_FORMAT = "matroska";
+    private static final Set<Integer> OPUS_RATES = Set.of(8000, 12000, 16000, 24000, 48000);
+
+    /** Creates a configured recorder for one segment file; the encoder does not start it yet. */
+    interface SegmentRecorders {
+        FFmpegFrameRecorder create(Path segmentFile);
+    }
+
+    private final ConversionEngine engine;
+    private final SamplePumpMetrics metrics;
+
+    SegmentedEncoder(ConversionEngine engine, SamplePumpMetrics metrics) {
+        this.engine = engine;
+        this.metrics = metrics;
+    }
+
+    /**
+     * True if a {@code sourceCodec} source seeks sample-exactly and {@code targetExt} frames can be
+     * concatenated: PCM or FLAC into wav, flac and opus.
+     */
+    static boolean supports(int sourceCodec, String targetExt, int sampleRate) {
+        return seeksExactly(sourceCodec) && framing(targetExt, sampleRate) != null;
+    }
+
+    /** PCM in any layout, and FLAC, whose frame headers carry their sample number. */
+    static boolean seeksExactly(int codec) {
+        return codec == AV_CODEC_ID_FLAC || (codec >= AV_CODEC_ID_FIRST_AUDIO && codec < AV_CODEC_ID_ADPCM_IMA_QT);
+    }
+
+    /** Number of segments for a file of {@code lengthMicros}; 1 means a single-pass encode. */
+    int segmentCount(long lengthMicros) {
+        return (int) Math.max(1, Math.min(engine.getParallelism(), lengthMicros / MIN_SEGMENT_MICROS));
+    }
+
+    /**
+     * Encodes {@code input} in {@code segmentCount} parallel segments and writes the stitched stream through
+     * {@code output}, a recorder with format and metadata set that has not been started. The caller
+     * stops and releases it.
+     */
+    void encode(Path input, Path outputFile, String targetExt, int sampleRate, int channels, long lengthMicros,
+                int segmentCount, SegmentRecorders recorders, FFmpegFrameRecorder output, ConversionJob job)
+            throws IOException {
+        Framing framing = framing(targetExt, sampleRate);
+        if (framing == null) throw new IllegalArgumentException("Segmented encoding does not support " + targetExt);
+
+        SampleClock clock = SampleClock.probe(input, sampleRate);
+        List<Segment> segments = plan(framing, sampleRate, lengthMicros, segmentCount);
+        Path dir = outputFile.toAbsolutePath().getParent();
+        try {
+            for (Segment segment : segments) {
+                segment.file = Files.createTempFile(dir, "." + outputFile.getFileName() + ".", ".part");
+            }
+            encodeSegments(input, segments, framing, clock, recorders, job);
+            long total = segments.get(segments.size() - 1).end;
+            stitch(segments, framing, targetExt, sampleRate, channels, total, output, job);
+            log.debug("Segmented encode of {} in {} segments: {} samples", input, segments.size(), total);
+        } catch (FrameGrabber.Exception | FrameRecorder.Exception e) {
+            throw new IOException("JavaCV segmented transcode failed: " + e.getMessage(), e);
+        } finally {
+            for (Segment segment : segments) {
+                if (segment.file == null) continue;
+                try {
+                    Files.deleteIfExists(segment.file);
+                } catch (IOException e) {
+                    log.warn("Could not delete segment file {}: {}", segment.file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Splits roughly {@code lengthMicros} of audio into {@code count} frame-aligned segments. */
+    static List<Segment> plan(Framing framing, int sampleRate, long lengthMicros, int count) throws IOException {
+        long frameSize = framing.frameSize();
+        long frames = lengthMicros * sampleRate / 1_000_000L / frameSize;
+        long[] splits = new long[count + 1];
+        for (int k = 1; k < count; k++) splits[k] = Math.round((double) frames * k / count);
+        if (splits[1] <= WARM_UP_FRAMES) throw new IOException("Input too short to split");
+
+        List<Segment> segments = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            boolean first = k == 0;
+            boolean last = k == count - 1;
+            Segment s = new Segment(k);
+            // Frame i of a segment's encoder covers positions [from + i * frameSize - delay, ...)
+            int warmUp = first || !framing.lossy() ? 0 : WARM_UP_FRAMES;
+            s.from = first ? 0 : (splits[k] - warmUp) * frameSize;
+            s.keepFrom = warmUp;
+            if (last) {
+                s.to = Long.MAX_VALUE;
+                s.keepUntil = Long.MAX_VALUE;
+            } else {
+                long boundary = splits[k + 1] * frameSize - framing.delay();
+                // Lossy encoders need look-ahead past the boundary; their tail frames are dropped
+                s.to = framing.lossy() ? boundary + frameSize + framing.delay() : boundary;
+                s.keepUntil = framing.lossy() ? warmUp + splits[k + 1] - splits[k] : Long.MAX_VALUE;
+            }
+            segments.add(s);
+        }
+        return segments;
+    }
+
+    private void encodeSegments(Path input, List<Segment> segments, Framing framing, SampleClock clock,
+                                SegmentRecorders recorders, ConversionJob job) throws IOException {
+        Queue<Segment> pending = new ConcurrentLinkedQueue<>(segments);
+        CountDownLatch finished = new CountDownLatch(segments.size());
+        // Set once the result is lost anyway; remaining segments are then skipped but still counted down
+        AtomicBoolean abandoned = new AtomicBoolean();
+        Runnable worker = () -> {
+            Segment segment;
+            while ((segment = pending.poll()) != null) {
+                try {
+                    if (!abandoned.get()) encodeSegment(input, segment, framing, clock, recorders, job);
+                } catch (Exception e) {
+                    segment.error = e;
+                    abandoned.set(true);
+                } finally {
+                    finished.countDown();
+                }
+            }
+        };
+        for (int i = 1; i < segments.size(); i++) {
+            if (!engine.tryExecute(worker)) break;
+        }
+        // The caller works too, so every claimed segment is running and waiting cannot deadlock
+        worker.run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finished.await();
+                break;
+            } catch (InterruptedException e) {
+                // Segments already running still write their files; wait so they can be deleted
+                interrupted = true;
+                abandoned.set(true);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Segmented encode interrupted: " + input);
+        }
+        for (Segment segment : segments) {
+            // Cancelling is not a failure: no single-pass fallback
+            if (segment.error instanceof CancellationException cancelled) throw cancelled;
+        }
+        for (Segment segment : segments) {
+            if (segment.error != null) {
+                throw new IOException("Segment " + segment.index + " failed: " + segment.error.getMessage(), segment.error);
+            }
+            if (segment.end == segment.from && segment.index < segments.size() - 1) {
+                throw new IOException("Segment " + segment.index + " produced no audio");
+            }
+        }
+    }
+
+    private void encodeSegment(Path input, Segment segment, Framing framing, SampleClock clock,
+                               SegmentRecorders recorders, ConversionJob job) throws Exception {
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(input.toFile())) {
+            FFmpegFrameRecorder recorder = recorders.create(segment.file);
+            try {
+                SamplePump.prepare(grabber);
+                grabber.start();
+                long seekTo = clock.micros(segment.from) - SEEK_MARGIN_MICROS;
+                if (segment.from > 0 && seekTo > 0) grabber.setAudioTimestamp(seekTo);
+
+                recorder.setFormat(SEGMENT_FORMAT);
+                framing.configure(recorder);
+                recorder.start();
+                segment.end = SamplePump.pumpRange(grabber, recorder, segment.from, segment.to, clock::position, metrics, job);
+                recorder.stop();
+            } finally {
+                try {
+                    recorder.release();
+                } catch (Exception ignored) {
+                }
+                try {
+                    grabber.stop();
+                } catch (Exception ignored) {
+                }
+                try {
+                    grabber.release();
+                } catch (Exception ignored) {
+                }
+            }
+        }
+    }
+
+    /** Copies the kept frames of every segment, in order and with continuous timestamps, into {@code output}. */
+    private void stitch(List<Segment> segments, Framing framing, String targetExt, int sampleRate, int channels,
+                        long total, FFmpegFrameRecorder output, ConversionJob job)
+            throws IOException, FrameGrabber.Exception, FrameRecorder.Exception {
+        boolean flac = "flac".equalsIgnoreCase(targetExt);
+        try (FFmpegFrameGrabber header = new FFmpegFrameGrabber(segments.get(0).file.toFile())) {
+            try {
+                header.start();
+                // Packets get sample-based timestamps, rescaled by the recorder from this stream's time base
+                int audioStream = header.getAudioStream();
+                AVStream stream = header.getFormatContext().streams(audioStream);
+                stream.time_base(av_make_q(1, sampleRate));
+                AVCodecParameters parameters = stream.codecpar();
+                parameters.initial_padding(framing.delay());
+                if (flac) FlacFrames.rewriteStreamInfo(parameters, FLAC_FRAME_SIZE, total);
+
+                output.setAudioCodec(header.getAudioCodec());
+                output.start(header.getFormatContext());
+
+                long pts = -framing.delay();
+                long frameNumber = 0;
+                for (Segment segment : segments) {
+                    try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(segment.file.toFile())) {
+                        try {
+                            grabber.start();
+                            int segmentStream = grabber.getAudioStream();
+                            long index = 0;
+                            AVPacket packet;
+                            while ((packet = grabber.grabPacket()) != null) {
+                                job.checkpoint();
+                                if (packet.stream_index() != segmentStream) {
+                                    av_packet_unref(packet);
+                                    continue;
+                                }
+                                long i = index++;
+                                if (i < segment.keepFrom || i >= segment.keepUntil || pts >= total) {
+                                    av_packet_unref(packet);
+                                    continue;
+                                }
+                                long duration = framing.frameSize() == 1
+                                        ? packet.size() / (2L * channels) // PCM S16
+                                        : framing.frameSize();
+                                duration = Math.min(duration, total - pts);
+                                if (flac) FlacFrames.renumber(packet, frameNumber++);
+                                if (framing.lossy()) {
+                                    // Priming and end padding travel as side data, e.g. for the Ogg Opus pre-skip and end trim
+                                    boolean firstPacket = pts == -framing.delay();
+                                    boolean lastPacket = pts + framing.frameSize() >= total;
+                                    if (firstPacket || lastPacket) {
+                                        setSkipSamples(packet, firstPacket ? framing.delay() : 0,
+                                                lastPacket ? framing.frameSize() - duration : 0);
+                                    }
+                                }
+                                packet.stream_index(audioStream).pts(pts).dts(pts).duration(duration);
+                                output.recordPacket(packet);
+                                pts += duration;
+                            }
+                        } finally {
+                            grabber.stop();
+                            grabber.release();
+                        }
+                    }
+                }
+                output.stop();
+            } finally {
+                header.stop();
+                header.release();
+            }
+        }
+    }
+
+    /** Attaches encoder-style {@code AV_PKT_DATA_SKIP_SAMPLES}: samples to drop at the start and end. */
+    private static void setSkipSamples(AVPacket packet, long start, long end) throws IOException {
+        byte[] skip = skipSamples(start, end);
+        BytePointer data = av_packet_new_side_data(packet, AV_PKT_DATA_SKIP_SAMPLES, skip.length);
+        if (data == null || data.isNull()) throw new IOException("Could not attach skip samples");
+        data.put(skip);
+    }
+
+    /** Skip-samples side data: start and end counts as 32-bit little-endian, then reason bytes left at 0. */
+    static byte[] skipSamples(long start, long end) {
+        byte[] skip = new byte[10];
+        for (int i = 0; i < 4; i++) {
+            skip[i] = (byte) (start >>> (8 * i));
+            skip[4 + i] = (byte) (end >>> (8 * i));
+        }
+        return skip;
+    }
+
+    static Framing framing(String targetExt, int sampleRate) {
+        switch (targetExt.toLowerCase()) {
+            case "wav":
+                return new Framing(1, 0, null, null);
+            case "flac":
+                return new Framing(FLAC_FRAME_SIZE, 0, "frame_size", String.valueOf(FLAC_FRAME_SIZE));
+            case "opus":
+                // libopus: 20 ms frames and a 312-sample (at 48 kHz) look-ahead; only these input rates are accepted
+                if (!OPUS_RATES.contains(sampleRate)) return null;
+                return new Framing(sampleRate / 50, 312 * sampleRate / 48000, null, null);
+            default:
+                return null;
+        }
+    }
+
+    /** Samples per encoded frame, encoder delay in samples and an encoder option segments rely on. */
+    record Framing(int frameSize, int delay, String option, String value) {
+        boolean lossy() {
+            return delay > 0;
+        }
+
+        void configure(FFmpegFrameRecorder recorder) {
+            if (option != null) recorder.setAudioOption(option, value);
+        }
+    }
+
+    /** One time range: input positions {@code [from, to)}, encoded frames {@code [keepFrom, keepUntil)}. */
+    static final class Segment {
+        final int index;
+        long from;
+        long to;
+        long keepFrom;
+        long keepUntil;
+        Path file;
+        volatile long end;
+        volatile Exception error;
+
+        Segment(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * Maps decoded frames to sample positions counted from the first decoded sample. Decoders that trim
+     * priming (MP3) shorten the first frame without shifting timestamps, so positions are timestamps in
+     * samples minus that offset, and the first frame is always at 0.
+     */
+    record SampleClock(int sampleRate, long firstTimestamp, long origin) {
+
+        static SampleClock probe(Path input, int sampleRate) throws IOException {
+            try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(input.toFile())) {
+                try {
+                    SamplePump.prepare(grabber);
+                    grabber.start();
+                    Frame first = grabber.grabSamples();
+                    if (first == null) throw new IOException("No audio stream found in " + input);
+                    long firstTimestamp = first.timestamp;
+                    int firstCount = first.samples[0].remaining() / (first.samples.length == 1 ? first.audioChannels : 1);
+                    Frame second = grabber.grabSamples();
+                    if (second == null) throw new IOException("Input too short to split: " + input);
+                    return new SampleClock(sampleRate, firstTimestamp, samples(second.timestamp, sampleRate) - firstCount);
+                } finally {
+                    grabber.stop();
+                    grabber.release();
+                }
+            } catch (FrameGrabber.Exception e) {
+                throw new IOException("Could not probe " + input + ": " + e.getMessage(), e);
+            }
+        }
+
+        long position(Frame frame) {
+            return frame.timestamp == firstTimestamp ? 0 : samples(frame.timestamp, sampleRate) - origin;
+        }
+
+        long micros(long position) {
+            return (position + origin) * 1_000_000L / sampleRate;
+        }
+
+        private static long samples(long micros, int sampleRate) {
+            return Math.round(micros * (double) sampleRate / 1_000_000L);
+        }
+    }
+
+    /** FLAC bitstream fix-ups for frames that were encoded as separate streams. */
+    static final class FlacFrames {
+        private FlacFrames() {}
+
+        /** STREAMINFO for the stitched stream: fixed block size, unknown frame sizes and MD5, exact total. */
+        static void rewriteStreamInfo(AVCodecParameters parameters, int blockSize, long totalSamples) throws IOException {
+            BytePointer extradata = parameters.extradata();
+            int size = parameters.extradata_size();
+            if (extradata == null || extradata.isNull()) throw new IOException("Missing FLAC STREAMINFO");
+            byte[] info = new byte[size];
+            extradata.get(info);
+            rewriteStreamInfo(info, blockSize, totalSamples);
+            extradata.put(info);
+        }
+
+        /** Same, on a copy of the codec extradata. */
+        static void rewriteStreamInfo(byte[] extradata, int blockSize, long totalSamples) throws IOException {
+            if (extradata.length < 34) throw new IOException("Missing FLAC STREAMINFO");
+            // Raw STREAMINFO, or "fLaC" plus a metadata block header as stored by Matroska
+            int offset = extradata.length >= 42 && extradata[0] == 'f' && extradata[1] == 'L'
+                    && extradata[2] == 'a' && extradata[3] == 'C' ? 8 : 0;
+            extradata[offset] = extradata[offset + 2] = (byte) (blockSize >> 8);
+            extradata[offset + 1] = extradata[offset + 3] = (byte) blockSize;
+            for (int i = 4; i < 10; i++) extradata[offset + i] = 0;
+            extradata[offset + 13] = (byte) ((extradata[offset + 13] & 0xF0) | ((totalSamples >>> 32) & 0x0F));
+            for (int i = 0; i < 4; i++) extradata[offset + 14 + i] = (byte) (totalSamples >>> (24 - 8 * i));
+            for (int i = 18; i < 34; i++) extradata[offset + i] = 0;
+        }
+
+        /** Replaces the frame number in a fixed-block-size frame header and recomputes both CRCs. */
+        static void renumber(AVPacket packet, long frameNumber) throws IOException {
+            byte[] frame = new byte[packet.size()];
+            packet.data().get(frame);
+            byte[] rewritten = renumbered(frame, frameNumber);
+
+            int streamIndex = packet.stream_index();
+            av_packet_unref(packet);
+            if (av_new_packet(packet, rewritten.length) < 0) throw new IOException("Could not allocate FLAC packet");
+            packet.data().put(rewritten);
+            packet.stream_index(streamIndex);
+        }
+
+        /** Same, on a copy of the frame; returns the rewritten frame, which may differ in length. */
+        static byte[] renumbered(byte[] frame, long frameNumber) throws IOException {
+            if (frame.length < 6 || (frame[0] & 0xFF) != 0xFF || (frame[1] & 0xFE) != 0xF8 || (frame[1] & 1) != 0) {
+                throw new IOException("Unexpected FLAC frame header");
+            }
+            int numberLength = codedLength(frame[4]);
+            int extra = ((frame[2] >> 4) & 0x0F) == 6 ? 1 : ((frame[2] >> 4) & 0x0F) == 7 ? 2 : 0;
+            int rateCode = frame[2] & 0x0F;
+            extra += rateCode == 12 ? 1 : rateCode == 13 || rateCode == 14 ? 2 : 0;
+            int headerEnd = 4 + numberLength + extra; // CRC-8 follows
+            byte[] number = codeNumber(frameNumber);
+
+            int bodyLength = frame.length - (headerEnd + 1) - 2;
+            byte[] rewritten = new byte[4 + number.length + extra + 1 + bodyLength + 2];
+            System.arraycopy(frame, 0, rewritten, 0, 4);
+            System.arraycopy(number, 0, rewritten, 4, number.length);
+            System.arraycopy(frame, 4 + numberLength, rewritten, 4 + number.length, extra);
+            int crc8At = 4 + number.length + extra;
+            rewritten[crc8At] = (byte) crc8(rewritten, crc8At);
+            System.arraycopy(frame, headerEnd + 1, rewritten, crc8At + 1, bodyLength);
+            int crc16 = crc16(rewritten, rewritten.length - 2);
+            rewritten[rewritten.length - 2] = (byte) (crc16 >> 8);
+            rewritten[rewritten.length - 1] = (byte) crc16;
+            return rewritten;
+        }
+
+        /** Length of the UTF-8 style coded number starting with {@code lead}. */
+        private static int codedLength(byte lead) {
+            int b = lead & 0xFF;
+            if (b < 0x80) return 1;
+            int length = 0;
+            while ((b & 0x80) != 0) {
+                length++;
+                b <<= 1;
+            }
+            return length;
+        }
+
+        static byte[] codeNumber(long value) {
+            if (value < 0x80) return new byte[]{(byte) value};
+            int length = 2;
+            while (length < 7 && value >= 1L << (5 * length + 1)) length++;
+            byte[] coded = new byte[length];
+            for (int i = length - 1; i > 0; i--) {
+                coded[i] = (byte) (0x80 | (value & 0x3F));
+                value >>>= 6;
+            }
+            coded[0] = (byte) ((0xFF00 >> length) | value);
+            return coded;
+        }
+
+        private static int crc8(byte[] data, int length) {
+            int crc = 0;
+            for (int i = 0; i < length; i++) {
+                crc ^= data[i] & 0xFF;
+                for (int bit = 0; bit < 8; bit++) crc = (crc & 0x80) != 0 ? ((crc << 1) ^ 0x07) & 0xFF : (crc << 1) & 0xFF;
+            }
+            return crc;
+        }
+
+        private static int crc16(byte[] data, int length) {
+            int crc = 0;
+            for (int i = 0; i < length; i++) {
+                crc ^= (data[i] & 0xFF) << 8;
+                for (int bit = 0; bit < 8; bit++) crc = (crc & 0x8000) != 0 ? ((crc << 1) ^ 0x8005) & 0xFFFF : (crc << 1) & 0xFFFF;
+            }
+            return crc;
+        }
+    }
+}
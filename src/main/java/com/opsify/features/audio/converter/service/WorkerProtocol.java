@@ -0,0 +1,127 @@
+package com.opsify.features.audio.converter.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Line protocol between {@link ProcessWorkerPool} and {@link AudioWorkerProcess}: one message per line,
+ * tab-separated fields with backslash escapes, over the worker's stdin and stdout.
+ * <pre>
+ * parent: CONVERT id input options (output ext)...    child: READY
+ *         CANCEL | PAUSE | RESUME                            RESULT id stats (failed-output message)...
+ *         EXIT                                               ERROR id message
+ *                                                            CANCELLED id
+ * </pre>
+ */
+final class WorkerProtocol {
+    private WorkerProtocol() {}
+
+    static final String CONVERT = "CONVERT";
+    static final String CANCEL = "CANCEL";
+    static final String PAUSE = "PAUSE";
+    static final String RESUME = "RESUME";
+    static final String EXIT = "EXIT";
+    static final String READY = "READY";
+    static final String RESULT = "RESULT";
+    static final String ERROR = "ERROR";
+    static final String CANCELLED = "CANCELLED";
+
+    static String line(Object... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) sb.append('\t');
+            escape(String.valueOf(fields[i]), sb);
+        }
+        return sb.toString();
+    }
+
+    static String line(List<String> fields) {
+        return line(fields.toArray());
+    }
+
+    static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                field.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static void escape(String text, StringBuilder sb) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    /** The options a worker needs to transcode one file; job-level options stay with the parent. */
+    static String options(ConversionOptions options) {
+        return "preset=" + options.getPreset().name() + ",segmented=" + options.isSegmented()
+                + ",cue=" + options.isSplitCue() + ",loudness=" + options.isLoudness()
+                + ",rate=" + options.getSampleRate() + ",channels=" + options.getChannels()
+                + (options.getSampleFormat() == null ? "" : ",format=" + options.getSampleFormat().name());
+    }
+
+    static ConversionOptions options(String encoded) {
+        ConversionOptions.ConversionOptionsBuilder builder = ConversionOptions.builder();
+        for (String pair : encoded.split(",")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) continue;
+            String value = pair.substring(eq + 1);
+            switch (pair.substring(0, eq)) {
+                case "preset" -> builder.preset(EncoderPreset.valueOf(value));
+                case "segmented" -> builder.segmented(Boolean.parseBoolean(value));
+                case "cue" -> builder.splitCue(Boolean.parseBoolean(value));
+                case "loudness" -> builder.loudness(Boolean.parseBoolean(value));
+                case "rate" -> builder.sampleRate(Integer.parseInt(value));
+                case "channels" -> builder.channels(Integer.parseInt(value));
+                case "format" -> builder.sampleFormat(SampleFormat.valueOf(value));
+                default -> { /* written by a newer parent; ignored */ }
+            }
+        }
+        return builder.build();
+    }
+
+    /** Stats fields in a fixed order: mode, codec, sample rate, duration, phase times, loudness and peak. */
+    static List<String> stats(FileStats stats) {
+        return List.of(stats.mode, stats.codec, String.valueOf(stats.sampleRate), String.valueOf(stats.durationMicros),
+                String.valueOf(stats.probeNanos), String.valueOf(stats.codingNanos), String.valueOf(stats.writeNanos),
+                String.valueOf(stats.loudnessLufs), String.valueOf(stats.peak));
+    }
+
+    /** Reads what {@link #stats(FileStats)} wrote, starting at {@code from}, into {@code stats}. */
+    static void stats(List<String> fields, int from, FileStats stats) {
+        stats.mode = fields.get(from);
+        stats.codec = fields.get(from + 1);
+        stats.sampleRate = Integer.parseInt(fields.get(from + 2));
+        stats.durationMicros = Long.parseLong(fields.get(from + 3));
+        stats.probeNanos += Long.parseLong(fields.get(from + 4));
+        stats.codingNanos += Long.parseLong(fields.get(from + 5));
+        stats.writeNanos += Long.parseLong(fields.get(from + 6));
+        stats.measured(Double.parseDouble(fields.get(from + 7)), Double.parseDouble(fields.get(from + 8)));
+    }
+
+    static final int STATS_FIELDS = 9;
+}
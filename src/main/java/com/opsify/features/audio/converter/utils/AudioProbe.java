@@ -0,0 +1,86 @@
+package com.opsify.features.audio.converter.utils;
+
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avformat.AVStream;
+import org.bytedeco.javacpp.PointerPointer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_ID_NONE;
+import static org.bytedeco.ffmpeg.global.avcodec.avcodec_get_name;
+import static org.bytedeco.ffmpeg.global.avformat.*;
+import static org.bytedeco.ffmpeg.global.avutil.AVMEDIA_TYPE_AUDIO;
+import static org.bytedeco.ffmpeg.global.avutil.AV_TIME_BASE;
+import static org.bytedeco.ffmpeg.global.avutil.av_make_q;
+import static org.bytedeco.ffmpeg.global.avutil.av_rescale_q;
+
+/**
+ * Lightweight FFmpeg probes that read container headers only.
+ * Unlike starting an {@code FFmpegFrameGrabber}, no decoder is opened and no frame is decoded.
+ */
+public final class AudioProbe {
+    private AudioProbe() {}
+
+    /** Codec, sample rate and duration of the first audio stream; rate and duration are 0 if unknown. */
+    public record AudioStream(String codec, int sampleRate, long durationMicros) {}
+
+    /**
+     * The first audio stream the container declares with a known codec.
+     * Stream info is only analysed for header-less containers that expose no streams up front.
+     *
+     * @return the first audio stream with a known codec, or null if there is none
+     * @throws IOException if FFmpeg cannot open or recognise the file
+     */
+    public static AudioStream audioStream(Path file) throws IOException {
+        AVFormatContext ctx = open(file);
+        try {
+            if (ctx.nb_streams() == 0 && avformat_find_stream_info(ctx, (PointerPointer<?>) null) < 0) {
+                return null;
+            }
+            for (int i = 0; i < ctx.nb_streams(); i++) {
+                AVStream st = ctx.streams(i);
+                var par = st.codecpar();
+                if (par.codec_type() == AVMEDIA_TYPE_AUDIO && par.codec_id() != AV_CODEC_ID_NONE) {
+                    // Demuxers like WAV only know the stream's duration until stream info is analysed
+                    long duration = ctx.duration() > 0 || st.duration() <= 0 ? ctx.duration()
+                            : av_rescale_q(st.duration(), st.time_base(), av_make_q(1, AV_TIME_BASE));
+                    return new AudioStream(avcodec_get_name(par.codec_id()).getString(),
+                            Math.max(0, par.sample_rate()), Math.max(0, duration));
+                }
+            }
+            return null;
+        } finally {
+            avformat_close_input(ctx);
+        }
+    }
+
+    /** Duration and overall bit rate from a header probe; either is 0 if the container does not say. */
+    public record StreamInfo(long durationMicros, long bitRate) {}
+
+    /**
+     * Reads duration and bit rate from the container header. Stream info is only analysed when the header
+     * has no duration, e.g. for MP3 files without a Xing header.
+     *
+     * @throws IOException if FFmpeg cannot open or recognise the file
+     */
+    public static StreamInfo streamInfo(Path file) throws IOException {
+        AVFormatContext ctx = open(file);
+        try {
+            if (ctx.duration() <= 0) avformat_find_stream_info(ctx, (PointerPointer<?>) null);
+            // AV_NOPTS_VALUE is negative, so unknown durations come out as 0
+            return new StreamInfo(Math.max(0, ctx.duration()), Math.max(0, ctx.bit_rate()));
+        } finally {
+            avformat_close_input(ctx);
+        }
+    }
+
+    private static AVFormatContext open(Path file) throws IOException {
+        AVFormatContext ctx = new AVFormatContext(null);
+        int ret = avformat_open_input(ctx, file.toAbsolutePath().toString(), null, null);
+        if (ret < 0) {
+            throw new IOException("FFmpeg could not open " + file + " (error " + ret + ")");
+        }
+        return ctx;
+    }
+}
@@ -0,0 +1,83 @@
+package com.opsify.features.audio.converter.utils;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodec;
+import org.bytedeco.javacpp.IntPointer;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.bytedeco.ffmpeg.global.avcodec.*;
+
+/**
+ * Knows which source codecs can be moved into a target container without re-encoding.
+ * Used to pick packet-level remux (stream copy) over a full decode and encode.
+ */
+public final class CodecCompatibility {
+    private CodecCompatibility() {}
+
+    /** Target extension to the codec ids its muxer accepts as-is. */
+    private static final Map<String, Set<Integer>> STREAM_COPY_CODECS = Map.ofEntries(
+            Map.entry("mp3", Set.of(AV_CODEC_ID_MP3)),
+            Map.entry("aac", Set.of(AV_CODEC_ID_AAC)),
+            Map.entry("m4a", Set.of(AV_CODEC_ID_AAC, AV_CODEC_ID_ALAC)),
+            Map.entry("m4b", Set.of(AV_CODEC_ID_AAC, AV_CODEC_ID_ALAC)),
+            Map.entry("flac", Set.of(AV_CODEC_ID_FLAC)),
+            Map.entry("ogg", Set.of(AV_CODEC_ID_VORBIS, AV_CODEC_ID_OPUS, AV_CODEC_ID_FLAC)),
+            Map.entry("oga", Set.of(AV_CODEC_ID_VORBIS, AV_CODEC_ID_OPUS, AV_CODEC_ID_FLAC)),
+            Map.entry("opus", Set.of(AV_CODEC_ID_OPUS)),
+            Map.entry("wav", Set.of(AV_CODEC_ID_PCM_S16LE, AV_CODEC_ID_PCM_S24LE, AV_CODEC_ID_PCM_S32LE,
+                    AV_CODEC_ID_PCM_F32LE, AV_CODEC_ID_PCM_U8)),
+            Map.entry("mka", Set.of(AV_CODEC_ID_MP3, AV_CODEC_ID_AAC, AV_CODEC_ID_ALAC, AV_CODEC_ID_FLAC,
+                    AV_CODEC_ID_VORBIS, AV_CODEC_ID_OPUS, AV_CODEC_ID_PCM_S16LE, AV_CODEC_ID_PCM_S24LE))
+    );
+
+    /**
+     * Target extension to the FFmpeg muxer that can write it to a non-seekable stream. Muxers that patch their
+     * header at the end (wav, flac) leave it with unknown lengths, which players accept; mp4 is written fragmented.
+     */
+    private static final Map<String, String> STREAM_MUXERS = Map.of(
+            "mp3", "mp3",
+            "aac", "adts",
+            "m4a", "ipod",
+            "m4b", "ipod",
+            "flac", "flac",
+            "ogg", "ogg",
+            "oga", "ogg",
+            "opus", "opus",
+            "wav", "wav",
+            "mka", "matroska"
+    );
+
+    /** FFmpeg muxer that writes {@code targetExt} without seeking back, or null if there is none. */
+    public static String streamMuxer(String targetExt) {
+        return targetExt == null ? null : STREAM_MUXERS.get(targetExt.toLowerCase());
+    }
+
+    /**
+     * {@code desired} if the encoder for {@code codecId} accepts that sample rate, else the lowest supported rate
+     * above it, else the highest supported one. Encoders that take any rate, and unknown codecs, get {@code desired}.
+     */
+    public static int encoderSampleRate(int codecId, int desired) {
+        if (codecId == AV_CODEC_ID_NONE) return desired;
+        AVCodec encoder = avcodec_find_encoder(codecId);
+        IntPointer rates = encoder == null ? null : encoder.supported_samplerates();
+        if (rates == null || rates.isNull()) return desired;
+        int above = Integer.MAX_VALUE;
+        int highest = 0;
+        for (int i = 0; rates.get(i) != 0; i++) {
+            int rate = rates.get(i);
+            if (rate == desired) return desired;
+            if (rate > desired) above = Math.min(above, rate);
+            highest = Math.max(highest, rate);
+        }
+        if (above != Integer.MAX_VALUE) return above;
+        return highest > 0 ? highest : desired;
+    }
+
+    /** True if packets of {@code codecId} can be copied straight into a {@code targetExt} container. */
+    public static boolean canStreamCopy(String targetExt, int codecId) {
+        if (targetExt == null || codecId == AV_CODEC_ID_NONE) return false;
+        Set<Integer> codecs = STREAM_COPY_CODECS.get(targetExt.toLowerCase());
+        return codecs != null && codecs.contains(codecId);
+    }
+}
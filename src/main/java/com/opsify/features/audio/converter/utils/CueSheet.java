@@ -0,0 +1,212 @@
+package com.opsify.features.audio.converter.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Track list of a single-file album image, read from its companion {@code .cue} sheet.
+ * Only what splitting needs is parsed: album and track titles and performers, the date and genre remarks,
+ * and each track's {@code INDEX 01}. Sheets that reference more than one audio file are not images and are rejected.
+ */
+public final class CueSheet {
+
+    /** CD frames per second, the unit of cue sheet timestamps. */
+    private static final int FRAMES_PER_SECOND = 75;
+
+    /** One track; {@code start} is its {@code INDEX 01} in CD frames, and title and performer may be null. */
+    public record Track(int number, String title, String performer, long start) {}
+
+    private final String title;
+    private final String performer;
+    private final String date;
+    private final String genre;
+    private final String file;
+    private final List<Track> tracks;
+
+    private CueSheet(String title, String performer, String date, String genre, String file, List<Track> tracks) {
+        this.title = title;
+        this.performer = performer;
+        this.date = date;
+        this.genre = genre;
+        this.file = file;
+        this.tracks = List.copyOf(tracks);
+    }
+
+    public String title() { return title; }
+
+    public String performer() { return performer; }
+
+    public String date() { return date; }
+
+    public String genre() { return genre; }
+
+    /** Name of the audio file the sheet was written for. */
+    public String file() { return file; }
+
+    public List<Track> tracks() { return tracks; }
+
+    /**
+     * The sheet describing {@code audio} as an image of at least two tracks: {@code name.cue} or
+     * {@code name.ext.cue} next to it, whose {@code FILE} names the audio file. The extension may differ,
+     * since images are often re-encoded without updating their sheet.
+     *
+     * @return the sheet, or null if there is no such sheet or it cannot be read
+     */
+    public static CueSheet companionOf(Path audio) {
+        Path dir = audio.toAbsolutePath().getParent();
+        String name = audio.getFileName().toString();
+        String base = baseName(name);
+        for (Path candidate : List.of(dir.resolve(base + ".cue"), dir.resolve(name + ".cue"))) {
+            if (!Files.isRegularFile(candidate)) continue;
+            try {
+                CueSheet sheet = parse(read(candidate));
+                if (sheet != null && sheet.tracks.size() > 1 && baseName(sheet.file).equalsIgnoreCase(base)) return sheet;
+            } catch (IOException e) {
+                // Unreadable sheet: the image is converted whole
+            }
+        }
+        return null;
+    }
+
+    /** Sheet text, as UTF-8 if it decodes as such, else as Windows-1252, which older rippers wrote. */
+    static String read(Path cue) throws IOException {
+        byte[] bytes = Files.readAllBytes(cue);
+        try {
+            String text = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes)).toString();
+            return text.startsWith("\uFEFF") ? text.substring(1) : text;
+        } catch (CharacterCodingException e) {
+            return new String(bytes, Charset.forName("windows-1252"));
+        }
+    }
+
+    /**
+     * Parses sheet text; null if it names no file or more than one, or if a track has no {@code INDEX 01}
+     * or does not start after the previous one.
+     */
+    public static CueSheet parse(String text) {
+        String title = null, performer = null, date = null, genre = null, file = null;
+        List<Track> tracks = new ArrayList<>();
+        int number = 0;
+        String trackTitle = null, trackPerformer = null;
+        long start = -1;
+        for (String raw : text.split("\r?\n|\r")) {
+            String line = raw.strip();
+            int space = line.indexOf(' ');
+            if (space < 0) continue;
+            String command = line.substring(0, space).toUpperCase(Locale.ROOT);
+            String rest = line.substring(space + 1).strip();
+            boolean inTrack = number > 0;
+            switch (command) {
+                case "FILE" -> {
+                    if (file != null) return null;
+                    int type = rest.lastIndexOf(' ');
+                    file = unquote(type > 0 && !rest.endsWith("\"") ? rest.substring(0, type) : rest);
+                }
+                case "TRACK" -> {
+                    if (inTrack) {
+                        if (!follows(tracks, start)) return null;
+                        tracks.add(new Track(number, trackTitle, trackPerformer, start));
+                    }
+                    number = parseNumber(rest.split("\\s+")[0]);
+                    if (number <= 0) return null;
+                    trackTitle = null;
+                    trackPerformer = null;
+                    start = -1;
+                }
+                case "TITLE" -> {
+                    if (inTrack) trackTitle = unquote(rest);
+                    else title = unquote(rest);
+                }
+                case "PERFORMER" -> {
+                    if (inTrack) trackPerformer = unquote(rest);
+                    else performer = unquote(rest);
+                }
+                case "INDEX" -> {
+                    String[] parts = rest.split("\\s+");
+                    if (inTrack && parts.length == 2 && parseNumber(parts[0]) == 1) start = parseTime(parts[1]);
+                }
+                case "REM" -> {
+                    int split = rest.indexOf(' ');
+                    if (split < 0 || inTrack) continue;
+                    String key = rest.substring(0, split).toUpperCase(Locale.ROOT);
+                    if (key.equals("DATE")) date = unquote(rest.substring(split + 1).strip());
+                    else if (key.equals("GENRE")) genre = unquote(rest.substring(split + 1).strip());
+                }
+                default -> { }
+            }
+        }
+        if (number > 0) {
+            if (!follows(tracks, start)) return null;
+            tracks.add(new Track(number, trackTitle, trackPerformer, start));
+        }
+        if (file == null || tracks.isEmpty()) return null;
+        return new CueSheet(title, performer, date, genre, file, tracks);
+    }
+
+    /**
+     * Sample positions where each track starts at {@code sampleRate}. The first track starts at 0, so audio before
+     * its {@code INDEX 01} (a hidden pregap track) stays with it rather than being lost.
+     */
+    public long[] startSamples(int sampleRate) {
+        long[] starts = new long[tracks.size()];
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] = tracks.get(i).start() * sampleRate / FRAMES_PER_SECOND;
+        }
+        return starts;
+    }
+
+    /** {@code "03 - Title.ext"}, or {@code "03 - Track 3.ext"} for an untitled track, safe as a file name. */
+    public static String trackFileName(Track track, String ext) {
+        String title = track.title() == null || track.title().isBlank() ? "Track " + track.number() : track.title();
+        String safe = title.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").strip();
+        while (safe.endsWith(".")) safe = safe.substring(0, safe.length() - 1);
+        return String.format(Locale.ROOT, "%02d - %s.%s", track.number(), safe, ext);
+    }
+
+    /** True if a track starting at {@code start} can come after {@code tracks}. */
+    private static boolean follows(List<Track> tracks, long start) {
+        return start >= 0 && (tracks.isEmpty() || start > tracks.get(tracks.size() - 1).start());
+    }
+
+    /** {@code mm:ss:ff} to CD frames, -1 if malformed. */
+    private static long parseTime(String time) {
+        String[] parts = time.split(":");
+        if (parts.length != 3) return -1;
+        int minutes = parseNumber(parts[0]);
+        int seconds = parseNumber(parts[1]);
+        int frames = parseNumber(parts[2]);
+        if (minutes < 0 || seconds < 0 || seconds > 59 || frames < 0 || frames >= FRAMES_PER_SECOND) return -1;
+        return (minutes * 60L + seconds) * FRAMES_PER_SECOND + frames;
+    }
+
+    private static int parseNumber(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String unquote(String text) {
+        if (text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"")) return text.substring(1, text.length() - 1);
+        return text;
+    }
+
+    private static String baseName(String name) {
+        int slash = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+        String file = name.substring(slash + 1);
+        int dot = file.lastIndexOf('.');
+        return dot > 0 ? file.substring(0, dot) : file;
+    }
+}
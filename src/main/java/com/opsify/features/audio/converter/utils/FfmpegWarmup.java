@@ -0,0 +1,85 @@
+package com.opsify.features.audio.converter.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avformat;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.ffmpeg.global.swresample;
+import org.bytedeco.javacpp.Loader;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads JavaCV's native FFmpeg libraries ahead of the first conversion.
+ * The first load extracts the libraries from the {@code javacv-platform} jars and links them, which takes
+ * seconds on a cold start; {@link #warmUpInBackground()} moves that off the UI thread, and
+ * {@link #awaitReady()} is the readiness signal converters wait on before touching FFmpeg.
+ */
+@Slf4j
+public final class FfmpegWarmup {
+    private FfmpegWarmup() {}
+
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+    /** Completes with the load time in nanoseconds, also when loading failed. */
+    private static final CompletableFuture<Long> READY = new CompletableFuture<>();
+
+    /** Starts loading on a daemon thread; later calls do nothing. Never blocks the caller. */
+    public static void warmUpInBackground() {
+        if (!STARTED.compareAndSet(false, true)) return;
+        Thread thread = new Thread(FfmpegWarmup::load, "ffmpeg-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /** True once loading has finished, successfully or not. */
+    public static boolean isReady() {
+        return READY.isDone();
+    }
+
+    /**
+     * Blocks until the libraries are loaded, loading them on the calling thread if no warm-up was started.
+     * A failed load is only logged: the conversion that follows reports the real error.
+     *
+     * @return nanoseconds spent waiting, 0 if the libraries were already loaded
+     */
+    public static long awaitReady() {
+        if (READY.isDone()) return 0;
+        long start = System.nanoTime();
+        if (STARTED.compareAndSet(false, true)) {
+            load();
+        } else {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    READY.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (Exception e) {
+                    break;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void load() {
+        long start = System.nanoTime();
+        try {
+            // Only what the converter links against: avdevice and the video libraries are never used
+            Loader.load(avutil.class);
+            Loader.load(swresample.class);
+            Loader.load(avcodec.class);
+            Loader.load(avformat.class);
+            log.info("FFmpeg native libraries loaded in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Throwable e) {
+            log.warn("Loading FFmpeg native libraries failed: {}", e.getMessage());
+        } finally {
+            READY.complete(System.nanoTime() - start);
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.opsify.features.audio.converter.utils;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Set;
 
+import static java.nio.file.StandardOpenOption.*;
+
 /**
  * Utilities for audio path operations and filesystem helpers.
  * Small, documented static helpers kept in one place for reuse and testability.
@@ -36,6 +39,23 @@ public final class PathAudioUtil {
         if (parent != null) Files.createDirectories(parent);
     }
 
+    /**
+     * Copy source to target (replacing it) via {@link FileChannel#transferTo}, which lets the OS
+     * move the bytes without staging them in Java buffers.
+     */
+    public static void copyFile(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, READ);
+             FileChannel out = FileChannel.open(target, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long moved = in.transferTo(position, size - position, out);
+                if (moved <= 0) break;
+                position += moved;
+            }
+        }
+    }
+
     /** Map inputFile under inputRoot into outputRoot preserving structure and changing ext. */
     public static Path mapToOutput(Path inputRoot, Path inputFile, Path outputRoot, String newExt) {
         // Handle single file input case - check if inputRoot represents a file (has extension or looks like a file)
@@ -65,21 +85,4 @@ public final class PathAudioUtil {
         String pathStr = path.toString();
         return !pathStr.endsWith("/") && !pathStr.endsWith("\\");
     }
-
-    /** If desired exists, returns a non-conflicting variant "name (n).ext". */
-    public static Path unique(Path desired) throws IOException {
-        if (!Files.exists(desired)) return desired;
-        Path parent = desired.getParent();
-        String name = desired.getFileName().toString();
-        int dot = name.lastIndexOf('.');
-        String base = dot >= 0 ? name.substring(0, dot) : name;
-        String ext = dot >= 0 ? name.substring(dot) : "";
-        int n = 1;
-        Path cand;
-        do {
-            cand = parent == null ? Path.of(base + " (" + n + ")" + ext) : parent.resolve(base + " (" + n + ")" + ext);
-            n++;
-        } while (Files.exists(cand));
-        return cand;
-    }
 }
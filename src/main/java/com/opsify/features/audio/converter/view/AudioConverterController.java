@@ -1,7 +1,13 @@
 package com.opsify.features.audio.converter.view;
 
 import com.opsify.features.audio.converter.service.AudioConverterServiceImpl;
+import com.opsify.features.audio.converter.service.ConversionJob;
 import com.opsify.features.audio.converter.service.ConversionListener;
+import com.opsify.features.audio.converter.service.ConversionOptions;
+import com.opsify.features.audio.converter.service.ConversionReport;
+import com.opsify.features.audio.converter.service.ConversionTarget;
+import com.opsify.features.audio.converter.service.EncoderPreset;
+import com.opsify.features.audio.converter.utils.FfmpegWarmup;
 import com.opsify.utils.Constants;
 import com.opsify.utils.FontUtils;
 import javafx.application.Platform;
@@ -12,6 +18,7 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
@@ -25,7 +32,9 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -40,8 +49,34 @@ public class AudioConverterController {
     @FXML
     protected ComboBox<String> formatCombo;
     @FXML
+    protected ComboBox<EncoderPreset> presetCombo;
+    @FXML
+    protected ComboBox<String> sampleRateCombo;
+    @FXML
+    protected ComboBox<String> channelsCombo;
+    @FXML
+    protected CheckBox incrementalCheck;
+    @FXML
+    protected CheckBox segmentedCheck;
+    @FXML
+    protected CheckBox longestFirstCheck;
+    @FXML
+    protected CheckBox adaptiveCheck;
+    @FXML
+    protected CheckBox reportCheck;
+    @FXML
+    protected CheckBox isolatedCheck;
+    @FXML
+    protected CheckBox cueCheck;
+    @FXML
+    protected CheckBox loudnessCheck;
+    @FXML
     protected Button convertButton;
     @FXML
+    protected Button pauseButton;
+    @FXML
+    protected Button cancelButton;
+    @FXML
     protected ProgressBar progressBar;
     @FXML
     protected TextArea logArea;
@@ -49,6 +84,7 @@ public class AudioConverterController {
     protected Label titleLabel;
 
     private ExecutorService exec;
+    private volatile ConversionJob job;
     private final AudioConverterServiceImpl converter;
 
     public AudioConverterController () {
@@ -73,7 +109,14 @@ public class AudioConverterController {
     @FXML
     public void initialize() {
         formatCombo.setItems(FXCollections.observableArrayList(Constants.SUPPORTED_FORMATS));
+        presetCombo.setItems(FXCollections.observableArrayList(EncoderPreset.values()));
+        presetCombo.getSelectionModel().select(EncoderPreset.BALANCED);
+        sampleRateCombo.setItems(FXCollections.observableArrayList(Constants.SAMPLE_RATES));
+        sampleRateCombo.getSelectionModel().select(Constants.KEEP_SAMPLE_RATE);
+        channelsCombo.setItems(FXCollections.observableArrayList(Constants.CHANNEL_LAYOUTS));
+        channelsCombo.getSelectionModel().select(Constants.KEEP_CHANNELS);
         progressBar.setProgress(INITIAL_PROGRESS_OF_CONVERSION);
+        FfmpegWarmup.warmUpInBackground();
         FontUtils.loadAndApplyNunitoFont(
                 titleLabel, convertButton, inputField, outputField, formatCombo, logArea
         );
@@ -110,27 +153,96 @@ public class AudioConverterController {
             alertWrongData();
             return;
         }
+        ConversionOptions options = ConversionOptions.builder()
+                .incremental(incrementalCheck.isSelected())
+                .segmented(segmentedCheck.isSelected())
+                .longestFirst(longestFirstCheck.isSelected())
+                .adaptiveConcurrency(adaptiveCheck.isSelected())
+                .isolated(isolatedCheck.isSelected())
+                .splitCue(cueCheck.isSelected())
+                .loudness(loudnessCheck.isSelected())
+                .report(reportCheck.isSelected() ? ConversionReport.Format.CSV : ConversionReport.Format.NONE)
+                .preset(presetCombo.getValue() != null ? presetCombo.getValue() : EncoderPreset.BALANCED)
+                .sampleRate(selectedSampleRate())
+                .channels(selectedChannels())
+                .build();
         progressBar.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
         convertButton.setDisable(true);
         exec = Executors.newSingleThreadExecutor();
-        exec.submit(() -> runConversion(in, out, fmt));
+        exec.submit(() -> runConversion(in, out, fmt, options));
+    }
+
+    /** Rate picked in the combo box, 0 to keep the source rate. */
+    private int selectedSampleRate() {
+        String rate = sampleRateCombo.getValue();
+        if (rate == null || rate.equals(Constants.KEEP_SAMPLE_RATE)) return 0;
+        return Integer.parseInt(rate.substring(0, rate.indexOf(' ')));
     }
 
-    private void runConversion(String in, String out, String fmt) {
+    /** Channel count picked in the combo box, 0 to keep the source layout. */
+    private int selectedChannels() {
+        String layout = channelsCombo.getValue();
+        if (Constants.MONO.equals(layout)) return 1;
+        if (Constants.STEREO.equals(layout)) return 2;
+        return 0;
+    }
+
+    private void runConversion(String in, String out, String fmt, ConversionOptions options) {
         try {
             appendLog(Constants.LOG_STARTING + "\n");
-            converter.convert(Path.of(in), Path.of(out), fmt, getListener());
+            if (!FfmpegWarmup.isReady()) appendLog(Constants.LOG_LOADING_FFMPEG + "\n");
+            ConversionJob started = converter.start(Path.of(in), List.of(new ConversionTarget(Path.of(out), fmt)),
+                    options, getListener(options.isLongestFirst()));
+            job = started;
+            Platform.runLater(() -> setJobControlsDisabled(false));
+            started.await();
             appendLog(Constants.LOG_FINISHED + "\n");
+        } catch (CancellationException e) {
+            appendLog(Constants.LOG_CANCELLED + "\n");
         } catch (Exception e) {
             log.error("Conversion error", e);
             appendLog(Constants.LOG_ERROR_GENERIC_PREFIX + e.getMessage() + "\n");
         } finally {
-            Platform.runLater(() -> convertButton.setDisable(false));
+            job = null;
+            Platform.runLater(() -> {
+                convertButton.setDisable(false);
+                setJobControlsDisabled(true);
+            });
             exec.shutdown();
         }
     }
 
-    private ConversionListener getListener() {
+    @FXML
+    public void togglePause() {
+        ConversionJob current = job;
+        if (current == null) return;
+        if (current.isPaused()) {
+            current.resume();
+            pauseButton.setText(Constants.BUTTON_PAUSE);
+            appendLog(Constants.LOG_RESUMED + "\n");
+        } else {
+            current.pause();
+            pauseButton.setText(Constants.BUTTON_RESUME);
+            appendLog(Constants.LOG_PAUSED + "\n");
+        }
+    }
+
+    @FXML
+    public void cancel() {
+        ConversionJob current = job;
+        if (current == null) return;
+        current.cancel();
+        setJobControlsDisabled(true);
+    }
+
+    private void setJobControlsDisabled(boolean disabled) {
+        pauseButton.setDisable(disabled);
+        cancelButton.setDisable(disabled);
+        if (disabled) pauseButton.setText(Constants.BUTTON_PAUSE);
+    }
+
+    /** With {@code weighted}, the progress bar follows the job's duration-weighted progress instead of the file count. */
+    private ConversionListener getListener(boolean weighted) {
         return new ConversionListener() {
             int total = 0;
 
@@ -140,19 +252,41 @@ public class AudioConverterController {
                 updateProgress(0, total);
             }
 
+            @Override
+            public void onTotalChanged(int t, boolean complete) {
+                total = t;
+            }
+
             @Override
             public void onFileDone(Path input, Path output, int done, int t) {
                 appendLog(Constants.LOG_DONE_PREFIX + input + " -> " + output + "\n");
-                updateProgress(done, total);
+                updateProgress(done, t);
+            }
+
+            @Override
+            public void onSkipped(Path input, Path output, int done, int t) {
+                appendLog(Constants.LOG_SKIPPED_PREFIX + input + " -> " + output + "\n");
+                updateProgress(done, t);
             }
 
             @Override
             public void onError(Path input, Exception e, int done, int t) {
                 appendLog(Constants.LOG_ERROR_PREFIX + input + " :: " + e.getMessage() + "\n");
-                updateProgress(done, total);
+                updateProgress(done, t);
+            }
+
+            @Override
+            public void onWorkersChanged(int workers, String reason) {
+                appendLog(Constants.LOG_WORKERS_PREFIX + workers + " (" + reason + ")\n");
+            }
+
+            @Override
+            public void onProgress(double fraction) {
+                Platform.runLater(() -> progressBar.setProgress(fraction));
             }
 
             void updateProgress(int done, int total) {
+                if (weighted) return;
                 Platform.runLater(() -> progressBar.setProgress(total == 0 ? 0 : (double) done / total));
             }
         };
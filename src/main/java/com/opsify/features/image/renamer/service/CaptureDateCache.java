@@ -0,0 +1,215 @@
+package com.opsify.features.image.renamer.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Capture dates of media files seen by earlier rename runs, so repeat runs over the same folders skip parsing.
+ * <p>
+ * One tab-separated line per file: absolute path, size, mtime and capture date (epoch millis). An entry only
+ * counts while size and mtime still match. New dates are appended as they are read, so an interrupted run keeps
+ * them. {@link #close()} compacts the journal to one line per file and drops the files that a {@link #listed}
+ * folder no longer holds; entries elsewhere are left alone, so a small run never checks the whole cache.
+ * <p>
+ * The cache is per user rather than per folder, since sources may be read-only and outputs change between runs.
+ * Runs may share it: compaction holds a lock on a sibling {@code .lock} file and merges this run's dates into
+ * what is on disk at that moment, so dates another run added meanwhile are kept.
+ */
+@Slf4j
+final class CaptureDateCache implements Closeable {
+
+    /** System property overriding the cache file; empty disables the cache. */
+    static final String FILE_PROPERTY = "opsify.renamer.dateCache";
+
+    private static final String HEADER = "# opsify capture date cache v2";
+    /** File locks are held per JVM, so runs inside this JVM also take turns on this monitor. */
+    private static final Object COMPACTING = new Object();
+
+    private record Entry(long size, long modified, long captured) {}
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /** Dates this run read itself; merged into the file on close. */
+    private final Map<String, Entry> added = new ConcurrentHashMap<>();
+    /** Folders (or single files) whose media files this run listed completely. */
+    private final Set<String> roots = ConcurrentHashMap.newKeySet();
+    /** The media files found under {@link #roots}; other entries under them are gone. */
+    private final Set<String> listed = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private BufferedWriter journal;
+
+    private CaptureDateCache(Path file) {
+        this.file = file;
+    }
+
+    /** {@code ~/.opsify/capture-dates}, or the {@value #FILE_PROPERTY} property; null if disabled. */
+    static Path defaultFile() {
+        String override = System.getProperty(FILE_PROPERTY);
+        if (override != null) return override.isBlank() ? null : Path.of(override);
+        return Path.of(System.getProperty("user.home"), ".opsify", "capture-dates");
+    }
+
+    /** Loads the cache in {@code file}, or starts an empty one. */
+    static CaptureDateCache open(Path file) throws IOException {
+        CaptureDateCache cache = new CaptureDateCache(file.toAbsolutePath());
+        if (Files.isRegularFile(cache.file)) {
+            cache.load(cache.entries);
+            log.info("Loaded {} capture dates from {}", cache.entries.size(), cache.file);
+        }
+        else Files.createDirectories(cache.file.getParent());
+        cache.journal = Files.newBufferedWriter(cache.file, StandardCharsets.UTF_8, CREATE, APPEND);
+        if (Files.size(cache.file) == 0) cache.writeLine(HEADER);
+        return cache;
+    }
+
+    /** Capture date recorded for {@code source} with these attributes, or null if unknown or since changed. */
+    Date get(Path source, BasicFileAttributes attrs) {
+        Entry entry = entries.get(key(source));
+        if (entry == null || entry.size() != attrs.size() || entry.modified() != attrs.lastModifiedTime().toMillis()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new Date(entry.captured());
+    }
+
+    /**
+     * Records the capture date of {@code source}. {@code attrs} must be read before the date, so a file changed
+     * while being parsed is not cached under its new mtime.
+     */
+    void put(Path source, BasicFileAttributes attrs, Date captured) {
+        String key = key(source);
+        // Such a key would break its line, both in the journal and in the file compacted on close
+        if (key.indexOf('\t') >= 0 || key.indexOf('\n') >= 0 || key.indexOf('\r') >= 0) {
+            log.debug("Not caching path with control characters: {}", key);
+            return;
+        }
+        Entry entry = new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(), captured.getTime());
+        entries.put(key, entry);
+        added.put(key, entry);
+        try {
+            writeLine(format(key, entry));
+        } catch (IOException e) {
+            // Only costs a re-parse next run
+            log.debug("Could not append to capture date cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Notes that {@code files} are all the media files under {@code root} right now, so entries for other files
+     * under it are dropped on close. Entries outside every listed root are kept without being checked.
+     */
+    void listed(Path root, Collection<Path> files) {
+        roots.add(key(root));
+        for (Path file : files) listed.add(key(file));
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Merges this run's dates into the cache file as it is now, drops files gone from the listed roots and
+     * rewrites it with one line per file, replacing the journal atomically.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal == null) return;
+        journal.close();
+        journal = null;
+
+        synchronized (COMPACTING) {
+            Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+            try (FileChannel channel = FileChannel.open(lockFile, CREATE, WRITE); FileLock ignored = channel.lock()) {
+                // Other runs may have appended or compacted since this one loaded
+                Map<String, Entry> merged = new HashMap<>();
+                if (Files.isRegularFile(file)) load(merged);
+                merged.putAll(added);
+                int before = merged.size();
+                merged.keySet().removeIf(key -> !listed.contains(key) && underListedRoot(key));
+
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    out.write(HEADER);
+                    out.newLine();
+                    for (Map.Entry<String, Entry> e : merged.entrySet()) {
+                        out.write(format(e.getKey(), e.getValue()));
+                        out.newLine();
+                    }
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                log.debug("Compacted capture date cache {}: {} entries, {} dropped", file, merged.size(),
+                        before - merged.size());
+            }
+        }
+    }
+
+    private boolean underListedRoot(String key) {
+        for (String root : roots) {
+            String prefix = root.endsWith(File.separator) ? root : root + File.separator;
+            if (key.equals(root) || key.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private synchronized void writeLine(String line) throws IOException {
+        if (journal == null) throw new IOException("Capture date cache already closed: " + file);
+        journal.write(line);
+        journal.newLine();
+        journal.flush();
+    }
+
+    private void load(Map<String, Entry> into) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] f = line.split("\t", -1);
+                if (f.length != 4) {
+                    log.debug("Skipping malformed capture date cache line in {}: {}", file, line);
+                    continue;
+                }
+                try {
+                    // Later lines win: the journal appends a new line whenever a file changed
+                    into.put(f[0], new Entry(Long.parseLong(f[1]), Long.parseLong(f[2]), Long.parseLong(f[3])));
+                } catch (NumberFormatException e) {
+                    log.debug("Skipping malformed capture date cache line in {}: {}", file, line);
+                }
+            }
+        }
+    }
+
+    private static String format(String key, Entry e) {
+        return String.join("\t", key, Long.toString(e.size()), Long.toString(e.modified()), Long.toString(e.captured()));
+    }
+
+    private static String key(Path source) {
+        return source.toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,271 @@
+package com.opsify.features.image.renamer.service;
+
+import com.drew.imaging.ImageProcessingException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Capture dates read from only the bytes that hold them, with the full metadata-extractor parse as a fallback.
+ * <p>
+ * JPEG is walked marker by marker up to the APP1 EXIF segment; TIFF, and the EXIF block inside a JPEG, are read
+ * IFD0 first and then only the EXIF IFD; MP4 and QuickTime files are walked atom by atom to {@code moov/mvhd},
+ * seeking over {@code mdat}. Each read is a positioned read of a few bytes, so even multi-gigabyte videos cost a
+ * handful of small reads. Dates are interpreted as the fallback does (EXIF as GMT, {@code mvhd} seconds since
+ * 1904), so a file gets the same name either way. Anything unusual, or a format without a fast path, goes to the
+ * fallback. Files, fallbacks, bytes read by the fast path and time spent are counted, so a run can report them.
+ */
+final class CaptureDateReader {
+
+    /** The full parse, for formats without a fast path and files the fast path cannot vouch for. */
+    interface Fallback {
+        Date read(Path file) throws ImageProcessingException, IOException;
+    }
+
+    /** Totals since the reader was created; {@code nanos} includes fallbacks, {@code bytesRead} does not. */
+    record Stats(long files, long fallbacks, long bytesRead, long nanos) {
+        Stats minus(Stats earlier) {
+            return new Stats(files - earlier.files, fallbacks - earlier.fallbacks,
+                    bytesRead - earlier.bytesRead, nanos - earlier.nanos);
+        }
+    }
+
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_DATETIME_ORIGINAL = 0x9003;
+    private static final int TAG_DATETIME = 0x0132;
+    private static final int TYPE_ASCII = 2;
+    private static final int TYPE_LONG = 4;
+    /** Entry counts beyond this are taken as a corrupt IFD. */
+    private static final int MAX_IFD_ENTRIES = 1000;
+    /** Top-level and moov atoms looked at before giving up. */
+    private static final int MAX_ATOMS = 256;
+    /** Milliseconds between the QuickTime epoch, 1904-01-01, and 1970-01-01. */
+    private static final long EPOCH_1904_MILLIS = -2082844800000L;
+    private static final Pattern EXIF_DATE = Pattern.compile("\\d{4}:\\d{2}:\\d{2} \\d{2}:\\d{2}:\\d{2}");
+    /** Same pattern, lenience and zone as metadata-extractor's {@code Directory.getDate}. */
+    private static final ThreadLocal<SimpleDateFormat> EXIF_FORMAT = ThreadLocal.withInitial(() -> {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    });
+
+    /** Sentinel: the format was understood and holds no capture date, so the file's modification time is used. */
+    private static final Date NO_DATE = new Date(Long.MIN_VALUE);
+
+    private final Fallback fallback;
+    private final LongAdder files = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    CaptureDateReader(Fallback fallback) {
+        this.fallback = fallback;
+    }
+
+    Date read(Path file) throws ImageProcessingException, IOException {
+        files.increment();
+        long start = System.nanoTime();
+        try {
+            Date date;
+            try (Source source = new Source(file)) {
+                date = readFast(source, extension(file));
+                bytesRead.add(source.bytesRead);
+            }
+            if (date == NO_DATE) return new Date(Files.getLastModifiedTime(file).toMillis());
+            if (date != null) return date;
+            fallbacks.increment();
+            return fallback.read(file);
+        } finally {
+            nanos.add(System.nanoTime() - start);
+        }
+    }
+
+    Stats stats() {
+        return new Stats(files.sum(), fallbacks.sum(), bytesRead.sum(), nanos.sum());
+    }
+
+    /** The date, {@link #NO_DATE}, or null to fall back. */
+    private static Date readFast(Source source, String ext) throws IOException {
+        return switch (ext) {
+            case "jpg", "jpeg" -> jpegDate(source);
+            case "tif", "tiff" -> tiffDate(source, 0);
+            case "mp4", "m4v", "mov" -> movieDate(source);
+            default -> null;
+        };
+    }
+
+    /** Walks the segments before the image data for the APP1 EXIF block. */
+    private static Date jpegDate(Source source) throws IOException {
+        ByteBuffer soi = source.read(0, 2);
+        if (soi == null || (soi.getShort(0) & 0xffff) != 0xffd8) return null;
+        long pos = 2;
+        while (true) {
+            ByteBuffer header = source.read(pos, 4);
+            if (header == null || (header.get(0) & 0xff) != 0xff) return null;
+            int marker = header.get(1) & 0xff;
+            if (marker == 0xff) {
+                pos++; // fill byte
+                continue;
+            }
+            // Start of scan or end of image: the EXIF block would have come before
+            if (marker == 0xda || marker == 0xd9) return NO_DATE;
+            int length = header.getShort(2) & 0xffff;
+            if (length < 2) return null;
+            if (marker == 0xe1 && length >= 16) {
+                ByteBuffer id = source.read(pos + 4, 6);
+                if (id != null && "Exif\0\0".equals(StandardCharsets.ISO_8859_1.decode(id).toString())) {
+                    return tiffDate(source, pos + 10);
+                }
+            }
+            pos += 2 + length;
+        }
+    }
+
+    /** DateTimeOriginal, else DateTime, of the EXIF IFD of the TIFF structure at {@code base}. */
+    private static Date tiffDate(Source source, long base) throws IOException {
+        ByteBuffer header = source.read(base, 8);
+        if (header == null) return null;
+        int order = header.getShort(0) & 0xffff;
+        if (order == 0x4949) source.order = ByteOrder.LITTLE_ENDIAN;
+        else if (order == 0x4d4d) source.order = ByteOrder.BIG_ENDIAN;
+        else return null;
+        header.order(source.order);
+        // Variants such as ORF and RW2 use other magic numbers; the fallback knows them
+        if (header.getShort(2) != 42) return null;
+
+        ByteBuffer ifd0 = ifd(source, base, header.getInt(4) & 0xffffffffL);
+        if (ifd0 == null) return null;
+        int exifEntry = findEntry(ifd0, TAG_EXIF_IFD);
+        if (exifEntry < 0) return NO_DATE;
+        if ((ifd0.getShort(exifEntry + 2) & 0xffff) != TYPE_LONG) return null;
+        ByteBuffer exif = ifd(source, base, ifd0.getInt(exifEntry + 8) & 0xffffffffL);
+        if (exif == null) return null;
+        for (int tag : new int[]{TAG_DATETIME_ORIGINAL, TAG_DATETIME}) {
+            int entry = findEntry(exif, tag);
+            if (entry < 0) continue;
+            // Null if present but unusual: the fallback then parses it the way it always has
+            return exifDate(source, base, exif, entry);
+        }
+        return NO_DATE;
+    }
+
+    /** The 12-byte entries of the IFD at {@code offset} from {@code base}. */
+    private static ByteBuffer ifd(Source source, long base, long offset) throws IOException {
+        ByteBuffer count = source.read(base + offset, 2);
+        if (count == null) return null;
+        int entries = count.order(source.order).getShort(0) & 0xffff;
+        if (entries == 0 || entries > MAX_IFD_ENTRIES) return null;
+        ByteBuffer ifd = source.read(base + offset + 2, entries * 12);
+        return ifd == null ? null : ifd.order(source.order);
+    }
+
+    private static int findEntry(ByteBuffer ifd, int tag) {
+        for (int at = 0; at + 12 <= ifd.limit(); at += 12) {
+            if ((ifd.getShort(at) & 0xffff) == tag) return at;
+        }
+        return -1;
+    }
+
+    /** An ASCII {@code yyyy:MM:dd HH:mm:ss} value as GMT, or null for any other type or layout. */
+    private static Date exifDate(Source source, long base, ByteBuffer ifd, int entry) throws IOException {
+        if ((ifd.getShort(entry + 2) & 0xffff) != TYPE_ASCII) return null;
+        long count = ifd.getInt(entry + 4) & 0xffffffffL;
+        if (count < 19 || count > 64) return null;
+        ByteBuffer value = source.read(base + (ifd.getInt(entry + 8) & 0xffffffffL), (int) count);
+        if (value == null) return null;
+        String text = StandardCharsets.ISO_8859_1.decode(value).toString();
+        int end = text.indexOf('\0');
+        if (end >= 0) text = text.substring(0, end);
+        if (!EXIF_DATE.matcher(text).matches()) return null;
+        try {
+            return EXIF_FORMAT.get().parse(text);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    /** Creation time of {@code moov/mvhd}; version 0 headers with a time set only. */
+    private static Date movieDate(Source source) throws IOException {
+        source.order = ByteOrder.BIG_ENDIAN;
+        long[] moov = findAtom(source, 0, source.size, "moov");
+        if (moov == null) return null;
+        long[] mvhd = findAtom(source, moov[0], moov[1], "mvhd");
+        if (mvhd == null) return null;
+        ByteBuffer header = source.read(mvhd[0], 8);
+        if (header == null || header.get(0) != 0) return null;
+        long seconds = header.getInt(4) & 0xffffffffL;
+        return seconds == 0 ? null : new Date(EPOCH_1904_MILLIS + seconds * 1000);
+    }
+
+    /** Payload start and end of the first {@code type} atom in {@code [from, to)}, or null. */
+    private static long[] findAtom(Source source, long from, long to, String type) throws IOException {
+        long pos = from;
+        for (int i = 0; i < MAX_ATOMS && pos + 8 <= to; i++) {
+            ByteBuffer header = source.read(pos, 8);
+            if (header == null) return null;
+            long size = header.getInt(0) & 0xffffffffL;
+            String name = StandardCharsets.ISO_8859_1.decode(header.slice(4, 4)).toString();
+            long payload = pos + 8;
+            if (size == 1) {
+                ByteBuffer large = source.read(pos + 8, 8);
+                if (large == null) return null;
+                size = large.getLong(0);
+                payload = pos + 16;
+            } else if (size == 0) {
+                size = to - pos;
+            }
+            if (size < payload - pos || pos + size > to) return null;
+            if (name.equals(type)) return new long[]{payload, pos + size};
+            pos += size;
+        }
+        return null;
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /** Positioned reads that count the bytes they return. */
+    private static final class Source implements AutoCloseable {
+        private final FileChannel channel;
+        private final long size;
+        private long bytesRead;
+        private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+        Source(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            size = channel.size();
+        }
+
+        /** {@code length} bytes at {@code position}, big-endian; null if the file ends first. */
+        ByteBuffer read(long position, int length) throws IOException {
+            if (position < 0 || position + length > size) return null;
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) return null;
+            }
+            bytesRead += length;
+            return buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
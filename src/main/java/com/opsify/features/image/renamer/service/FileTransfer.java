@@ -0,0 +1,169 @@
+package com.opsify.features.image.renamer.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Puts a source file at an already reserved output path using the requested {@link TransferMode}, decided per
+ * file: when source and output are on different filesystems, links and clones become copies and moves become
+ * copy-and-delete.
+ * <p>
+ * The reserved output is always replaced in one rename, so a name is never briefly missing: links are made
+ * under a temporary name next to it first. Java has no clone call, so clones run the platform's {@code cp}
+ * ({@code --reflink=always} on Linux, {@code -c} on macOS). A filesystem that refuses a clone or a hard link, such
+ * as FAT or some network shares, is remembered and gets plain copies from then on. Filesystems are looked up once per directory, since the lookup reads the mount table.
+ */
+@Slf4j
+final class FileTransfer {
+
+    private static final long CLONE_TIMEOUT_SECONDS = 60;
+
+    private final TransferMode mode;
+    private final Map<Path, FileStore> stores = new ConcurrentHashMap<>();
+    private final Map<FileStore, Boolean> cloneSupport = new ConcurrentHashMap<>();
+    private final Map<FileStore, Boolean> linkSupport = new ConcurrentHashMap<>();
+    private final Map<TransferMode, LongAdder> counts = new EnumMap<>(TransferMode.class);
+    private final Linker linker;
+
+    /** {@link Files#createLink}, replaceable in tests by a filesystem that cannot link. */
+    interface Linker {
+        void createLink(Path link, Path existing) throws IOException;
+    }
+
+    FileTransfer(TransferMode mode) {
+        this(mode, Files::createLink);
+    }
+
+    FileTransfer(TransferMode mode, Linker linker) {
+        this.mode = mode;
+        this.linker = linker;
+        for (TransferMode m : TransferMode.values()) counts.put(m, new LongAdder());
+    }
+
+    /**
+     * Transfers {@code source} over the empty reserved file {@code target}.
+     *
+     * @return how the file was transferred in the end
+     */
+    TransferMode transfer(Path source, Path target) throws IOException {
+        TransferMode used = mode;
+        if (mode != TransferMode.COPY && !sameStore(source, target)) {
+            used = mode == TransferMode.MOVE ? TransferMode.MOVE : TransferMode.COPY;
+        }
+        if (used == TransferMode.CLONE && !clone(source, target)) used = TransferMode.COPY;
+        if (used == TransferMode.HARDLINK && !link(source, target)) used = TransferMode.COPY;
+        switch (used) {
+            case MOVE -> Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            case COPY -> Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+            case HARDLINK, CLONE -> { }
+        }
+        counts.get(used).increment();
+        return used;
+    }
+
+    /** Files transferred so far per way they were actually transferred. */
+    Map<TransferMode, Long> counts() {
+        Map<TransferMode, Long> snapshot = new EnumMap<>(TransferMode.class);
+        counts.forEach((m, count) -> snapshot.put(m, count.sum()));
+        return snapshot;
+    }
+
+    private boolean sameStore(Path source, Path target) throws IOException {
+        return store(source.toAbsolutePath().getParent()).equals(store(target.toAbsolutePath().getParent()));
+    }
+
+    private FileStore store(Path dir) throws IOException {
+        FileStore store = stores.get(dir);
+        if (store == null) {
+            store = Files.getFileStore(dir);
+            stores.put(dir, store);
+        }
+        return store;
+    }
+
+    /**
+     * Hard link under a temporary name, then renamed over the reservation.
+     *
+     * @return false, leaving the reservation as it was, if this filesystem cannot hard-link
+     */
+    private boolean link(Path source, Path target) throws IOException {
+        FileStore store = store(target.toAbsolutePath().getParent());
+        if (Boolean.FALSE.equals(linkSupport.get(store))) return false;
+        Path temp = target.resolveSibling("." + target.getFileName() + ".link");
+        Files.deleteIfExists(temp);
+        try {
+            linker.createLink(temp, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // FAT and exFAT have no links at all; network shares often answer with "operation not permitted"
+            if (linkSupport.putIfAbsent(store, false) == null) {
+                log.info("Filesystem {} cannot hard-link files ({}); copying instead", store, e.toString());
+            }
+            return false;
+        }
+        linkSupport.put(store, true);
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return true;
+    }
+
+    /** True if {@code target} is now a clone of {@code source}; false if this filesystem or platform cannot clone. */
+    private boolean clone(Path source, Path target) throws IOException {
+        FileStore store = store(target.toAbsolutePath().getParent());
+        if (Boolean.FALSE.equals(cloneSupport.get(store))) return false;
+        List<String> command = cloneCommand(source, target);
+        boolean cloned = command != null && run(command);
+        if (!cloned && cloneSupport.putIfAbsent(store, false) == null) {
+            log.info("Filesystem {} cannot clone files; copying instead", store);
+        } else if (cloned) {
+            cloneSupport.put(store, true);
+        }
+        return cloned;
+    }
+
+    private static List<String> cloneCommand(Path source, Path target) {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        if (os.contains("linux")) {
+            return List.of("cp", "--reflink=always", "--preserve=mode,timestamps", source.toString(), target.toString());
+        }
+        if (os.contains("mac")) return List.of("cp", "-c", "-p", source.toString(), target.toString());
+        return null;
+    }
+
+    private static boolean run(List<String> command) throws IOException {
+        Process process;
+        try {
+            process = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        } catch (IOException e) {
+            // No cp on the path
+            return false;
+        }
+        try {
+            if (process.waitFor(CLONE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) return process.exitValue() == 0;
+            process.destroyForcibly();
+            return false;
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted cloning " + command.get(command.size() - 2));
+        }
+    }
+}
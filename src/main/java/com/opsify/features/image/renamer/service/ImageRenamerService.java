@@ -1,7 +1,15 @@
 package com.opsify.features.image.renamer.service;
 
 public interface ImageRenamerService {
+    /** Renames copies of the media files, leaving the sources untouched. */
+    default void renameImages(String inputPath, String outputPath, String schema,
+                              boolean groupByYear, boolean groupByMonth, boolean groupByDay,
+                              RenamerListener listener) {
+        renameImages(inputPath, outputPath, schema, groupByYear, groupByMonth, groupByDay, TransferMode.COPY, listener);
+    }
+
+    /** Renames the media files, getting each to its output as {@code transferMode} says. */
     void renameImages(String inputPath, String outputPath, String schema,
                       boolean groupByYear, boolean groupByMonth, boolean groupByDay,
-                      RenamerListener listener);
+                      TransferMode transferMode, RenamerListener listener);
 }
\ No newline at end of file
@@ -7,14 +7,16 @@ import com.drew.metadata.exif.ExifSubIFDDirectory;
 import com.drew.metadata.file.FileSystemDirectory;
 import com.drew.metadata.mov.QuickTimeDirectory;
 import com.drew.metadata.mp4.Mp4Directory;
+import com.opsify.utils.OutputReservations;
+import com.opsify.utils.OutputReservations.NameStyle;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.text.SimpleDateFormat;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -30,30 +32,87 @@ public class ImageRenamerServiceImpl implements ImageRenamerService {
             ".mp4", ".avi", ".mov", ".wmv", ".flv", ".mkv", ".webm", ".m4v", ".mpg", ".mpeg"
     );
 
+    private final CaptureDateReader dateReader = new CaptureDateReader(this::readMetadataDate);
+    /** Where capture dates persist between runs; null to read every file every time. */
+    private final Path dateCacheFile;
+
+    public ImageRenamerServiceImpl() {
+        this(CaptureDateCache.defaultFile());
+    }
+
+    ImageRenamerServiceImpl(Path dateCacheFile) {
+        this.dateCacheFile = dateCacheFile;
+    }
+
     @Override
     public void renameImages(String inputPath, String outputPath, String schema,
                              boolean groupByYear, boolean groupByMonth, boolean groupByDay,
-                             RenamerListener listener) {
+                             TransferMode transferMode, RenamerListener listener) {
+        CaptureDateCache cache = openDateCache();
         try {
             Path input = Paths.get(inputPath);
             Path output = Paths.get(outputPath);
 
             List<Path> mediaFiles = collectMediaFiles(input);
+            // Cached files under the input that were not found have been moved or deleted
+            if (cache != null) cache.listed(input, mediaFiles);
             listener.onStart(mediaFiles.size());
-
-            int processed = 0;
-            for (Path mediaFile : mediaFiles) {
-                try {
-                    processMediaFile(mediaFile, output, schema, groupByYear, groupByMonth, groupByDay);
-                    listener.onFileDone(mediaFile.toString(), "Success", ++processed, mediaFiles.size());
-                } catch (Exception e) {
-                    listener.onError(mediaFile.toString(), e, ++processed, mediaFiles.size());
-                }
-            }
+            OutputReservations reservations = new OutputReservations();
+            CaptureDateReader.Stats before = dateReader.stats();
+            FileTransfer transfer = new FileTransfer(transferMode);
+            NamingPlan plan = NamingPlan.compile(output, schema, groupByYear, groupByMonth, groupByDay);
+
+            // Dates are read and files copied in parallel; names are claimed in walk order, so suffixes are stable
+            RenamePipeline.createDefault().run(mediaFiles,
+                    mediaFile -> cachedCreationDate(mediaFile, cache),
+                    (mediaFile, date) -> planOutput(mediaFile, date, plan, reservations),
+                    (mediaFile, outputFile) -> transferMediaFile(mediaFile, outputFile, transfer, reservations),
+                    listener);
+            logDateStats(dateReader.stats().minus(before));
+            log.info("Transferred media files: {}", transfer.counts());
         } catch (Exception e) {
             log.error("Error processing media files", e);
             throw new RuntimeException("Failed to rename media files", e);
+        } finally {
+            closeDateCache(cache);
+        }
+    }
+
+    /** The persistent date cache, or null if it is disabled or unusable; the run then reads every file. */
+    private CaptureDateCache openDateCache() {
+        if (dateCacheFile == null) return null;
+        try {
+            return CaptureDateCache.open(dateCacheFile);
+        } catch (IOException e) {
+            log.warn("Could not open capture date cache {}: {}", dateCacheFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private void closeDateCache(CaptureDateCache cache) {
+        if (cache == null) return;
+        log.info("Capture date cache: {} hits, {} misses", cache.hits(), cache.misses());
+        try {
+            cache.close();
+        } catch (IOException e) {
+            log.warn("Could not save capture date cache {}: {}", dateCacheFile, e.getMessage());
+        }
+    }
+
+    /** Capture date from the cache if the file is unchanged since it was recorded, else read and recorded. */
+    private Date cachedCreationDate(Path mediaFile, CaptureDateCache cache) throws ImageProcessingException, IOException {
+        if (cache == null) return extractOriginalCreationDate(mediaFile);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(mediaFile, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
         }
+        Date cached = cache.get(mediaFile, attrs);
+        if (cached != null) return cached;
+        Date date = extractOriginalCreationDate(mediaFile);
+        if (date != null) cache.put(mediaFile, attrs, date);
+        return date;
     }
 
     private List<Path> collectMediaFiles(Path input) throws IOException {
@@ -75,42 +134,50 @@ public class ImageRenamerServiceImpl implements ImageRenamerService {
                 VIDEO_EXTENSIONS.stream().anyMatch(fileName::endsWith);
     }
 
-    private void processMediaFile(Path mediaFile, Path outputRoot, String schema,
-                                  boolean groupByYear, boolean groupByMonth, boolean groupByDay) throws Exception {
-        // Get file modification time
-        Date date = extractOriginalCreationDate(mediaFile);
-
-        // Format for filename
-        SimpleDateFormat format = new SimpleDateFormat(schema);
-        String newName = format.format(date);
-
+    /** Claims the output of one file; called in input order, one file at a time. */
+    private Path planOutput(Path mediaFile, Date date, NamingPlan plan, OutputReservations reservations)
+            throws IOException {
         // Get file extension
         String fileName = mediaFile.getFileName().toString();
         int dotIndex = fileName.lastIndexOf('.');
         String ext = dotIndex > 0 ? fileName.substring(dotIndex) : "";
 
-        // Build output directory path based on grouping options
-        Path outputDir = buildOutputDirectory(outputRoot, date, groupByYear, groupByMonth, groupByDay);
-        Files.createDirectories(outputDir);
+        // Name and grouped directory from the job's compiled schema; the directory is created once per job
+        Path outputFile = plan.createTarget(date, ext);
 
-        // Create the output file path
-        Path outputFile = outputDir.resolve(newName + ext);
+        // Claim the output name; taken names get "_0", "_1", ... appended
+        return reservations.reserve(outputFile, NameStyle.UNDERSCORED);
+    }
 
-        // Handle name conflicts
-        int counter = 0;
-        while (Files.exists(outputFile)) {
-            outputFile = outputDir.resolve(newName + "_" + (counter++) + ext);
+    private void transferMediaFile(Path mediaFile, Path outputFile, FileTransfer transfer,
+                                   OutputReservations reservations) throws IOException {
+        // Move, link, clone or copy the file over the empty reserved file
+        try {
+            transfer.transfer(mediaFile, outputFile);
+        } catch (IOException | RuntimeException e) {
+            reservations.release(outputFile);
+            throw e;
         }
-
-        // Copy the file with metadata preservation
-        Files.copy(mediaFile, outputFile, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
     }
 
     public Date extractOriginalCreationDate(Path filePath) throws ImageProcessingException, IOException {
-            if (filePath == null || !Files.exists(filePath) || !Files.isRegularFile(filePath)) {
-                return null;
-            }
+        if (filePath == null || !Files.exists(filePath) || !Files.isRegularFile(filePath)) {
+            return null;
+        }
+        // JPEG, TIFF, MP4 and MOV dates are read from their headers; everything else goes through readMetadataDate
+        return dateReader.read(filePath);
+    }
+
+    private void logDateStats(CaptureDateReader.Stats stats) {
+        if (stats.files() == 0) return;
+        long fast = stats.files() - stats.fallbacks();
+        log.info("Read capture dates of {} files in {} ms: {} from headers ({} bytes per file), {} fully parsed",
+                stats.files(), stats.nanos() / 1_000_000, fast, fast == 0 ? 0 : stats.bytesRead() / fast,
+                stats.fallbacks());
+    }
 
+    /** Full metadata-extractor parse, for formats without a header fast path. */
+    private Date readMetadataDate(Path filePath) throws ImageProcessingException, IOException {
             Metadata metadata = ImageMetadataReader.readMetadata(filePath.toFile());
 
             // Try to get the date from various metadata sources in order of preference
@@ -166,18 +233,4 @@ public class ImageRenamerServiceImpl implements ImageRenamerService {
 
     }
     // Extract metadata for videos
-
-    private Path buildOutputDirectory(Path outputRoot, Date date,
-                                      boolean groupByYear, boolean groupByMonth, boolean groupByDay) {
-        SimpleDateFormat yearFormat = new SimpleDateFormat("yyyy");
-        SimpleDateFormat monthFormat = new SimpleDateFormat("yyyy-MM"); // Updated to yyyy-MM format
-        SimpleDateFormat dayFormat = new SimpleDateFormat("dd");
-
-        Path outputDir = outputRoot;
-        if (groupByYear) outputDir = outputDir.resolve(yearFormat.format(date));
-        if (groupByMonth) outputDir = outputDir.resolve(monthFormat.format(date));
-        if (groupByDay) outputDir = outputDir.resolve(dayFormat.format(date));
-
-        return outputDir;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+package com.opsify.features.image.renamer.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalField;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Schema and grouping of one rename job, compiled once: the file name and every grouping level are thread-safe
+ * formatters in the system time zone, as the {@code SimpleDateFormat}s they replace were. Output directories
+ * are created on first use and remembered, so the many files of one day cost one {@code mkdir}, not one per file.
+ * Directories removed behind the job's back while it runs are not noticed.
+ * <p>
+ * Schemas are {@code SimpleDateFormat} patterns, as they always were, and keep that meaning: they are translated
+ * letter by letter rather than handed to {@link DateTimeFormatter#ofPattern}, where {@code u} is the year instead
+ * of the day of the week, {@code S} a fraction instead of milliseconds, and five text letters the narrow form.
+ */
+final class NamingPlan {
+
+    private static final DateTimeFormatter YEAR = DateTimeFormatter.ofPattern("yyyy");
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("dd");
+
+    private final Path outputRoot;
+    private final DateTimeFormatter name;
+    /** Grouping levels, outermost first. */
+    private final List<DateTimeFormatter> levels;
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+
+    private NamingPlan(Path outputRoot, DateTimeFormatter name, List<DateTimeFormatter> levels) {
+        this.outputRoot = outputRoot;
+        this.name = name;
+        this.levels = levels;
+    }
+
+    /**
+     * @param schema a {@code SimpleDateFormat} pattern for the file name, e.g. {@code yyyy_MM_dd_HH-mm-ss}
+     * @throws IllegalArgumentException if the schema is not a valid pattern
+     */
+    static NamingPlan compile(Path outputRoot, String schema, boolean groupByYear, boolean groupByMonth, boolean groupByDay) {
+        ZoneId zone = ZoneId.systemDefault();
+        List<DateTimeFormatter> levels = new ArrayList<>();
+        if (groupByYear) levels.add(YEAR.withZone(zone));
+        if (groupByMonth) levels.add(MONTH.withZone(zone));
+        if (groupByDay) levels.add(DAY.withZone(zone));
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        return new NamingPlan(outputRoot, simpleDateFormat(schema, locale).withZone(zone), List.copyOf(levels));
+    }
+
+    /**
+     * A formatter printing {@code pattern} as {@code new SimpleDateFormat(pattern, locale)} would for dates of the
+     * Gregorian calendar: same letters, counts, padding, quoting and locale week rules.
+     *
+     * @throws IllegalArgumentException for letters and quoting {@code SimpleDateFormat} rejects
+     */
+    static DateTimeFormatter simpleDateFormat(String pattern, Locale locale) {
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+        WeekFields weeks = WeekFields.of(locale);
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                int end = pattern.indexOf('\'', i + 1);
+                if (end == i + 1) {
+                    builder.appendLiteral('\'');
+                    i += 2;
+                    continue;
+                }
+                // Quoted text runs to the next lone quote; doubled quotes inside stand for one
+                StringBuilder text = new StringBuilder();
+                int j = i + 1;
+                while (true) {
+                    if (j >= pattern.length()) throw new IllegalArgumentException("Unterminated quote in " + pattern);
+                    if (pattern.charAt(j) == '\'') {
+                        if (j + 1 < pattern.length() && pattern.charAt(j + 1) == '\'') {
+                            text.append('\'');
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    text.append(pattern.charAt(j++));
+                }
+                builder.appendLiteral(text.toString());
+                i = j + 1;
+                continue;
+            }
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')) {
+                builder.appendLiteral(c);
+                i++;
+                continue;
+            }
+            int n = 1;
+            while (i + n < pattern.length() && pattern.charAt(i + n) == c) n++;
+            TextStyle text = n >= 4 ? TextStyle.FULL : TextStyle.SHORT;
+            switch (c) {
+                case 'G' -> builder.appendText(ChronoField.ERA, TextStyle.SHORT); // never spelled out
+                case 'y' -> year(builder, ChronoField.YEAR_OF_ERA, n);
+                case 'Y' -> year(builder, weeks.weekBasedYear(), n);
+                case 'M' -> {
+                    if (n >= 3) builder.appendText(ChronoField.MONTH_OF_YEAR, text);
+                    else number(builder, ChronoField.MONTH_OF_YEAR, n);
+                }
+                case 'L' -> {
+                    if (n >= 3) builder.appendText(ChronoField.MONTH_OF_YEAR, text.asStandalone());
+                    else number(builder, ChronoField.MONTH_OF_YEAR, n);
+                }
+                case 'w' -> number(builder, weeks.weekOfWeekBasedYear(), n);
+                case 'W' -> number(builder, weeks.weekOfMonth(), n);
+                case 'D' -> number(builder, ChronoField.DAY_OF_YEAR, n);
+                case 'd' -> number(builder, ChronoField.DAY_OF_MONTH, n);
+                case 'F' -> number(builder, ChronoField.ALIGNED_WEEK_OF_MONTH, n);
+                case 'E' -> builder.appendText(ChronoField.DAY_OF_WEEK, text);
+                case 'u' -> number(builder, ChronoField.DAY_OF_WEEK, n); // 1 is Monday
+                case 'a' -> builder.appendText(ChronoField.AMPM_OF_DAY, TextStyle.SHORT);
+                case 'H' -> number(builder, ChronoField.HOUR_OF_DAY, n);
+                case 'k' -> number(builder, ChronoField.CLOCK_HOUR_OF_DAY, n);
+                case 'K' -> number(builder, ChronoField.HOUR_OF_AMPM, n);
+                case 'h' -> number(builder, ChronoField.CLOCK_HOUR_OF_AMPM, n);
+                case 'm' -> number(builder, ChronoField.MINUTE_OF_HOUR, n);
+                case 's' -> number(builder, ChronoField.SECOND_OF_MINUTE, n);
+                case 'S' -> number(builder, ChronoField.MILLI_OF_SECOND, n); // milliseconds, not a fraction
+                case 'z' -> builder.appendZoneText(text);
+                case 'Z' -> builder.appendOffset("+HHMM", "+0000");
+                case 'X' -> {
+                    if (n > 3) throw new IllegalArgumentException("Invalid ISO 8601 format: length=" + n);
+                    builder.appendOffset(n == 1 ? "+HH" : n == 2 ? "+HHMM" : "+HH:MM", "Z");
+                }
+                default -> throw new IllegalArgumentException("Illegal pattern character '" + c + "'");
+            }
+            i += n;
+        }
+        return builder.toFormatter(locale);
+    }
+
+    /** Two letters print the last two digits; any other count the whole year, zero-padded to the count. */
+    private static void year(DateTimeFormatterBuilder builder, TemporalField field, int n) {
+        if (n == 2) builder.appendValueReduced(field, 2, 2, 2000);
+        else number(builder, field, n);
+    }
+
+    /** Zero-padded to {@code n} digits, never cut. */
+    private static void number(DateTimeFormatterBuilder builder, TemporalField field, int n) {
+        builder.appendValue(field, Math.min(n, 19), 19, SignStyle.NORMAL);
+    }
+
+    /** Output path for a file taken on {@code date} with extension {@code ext} (including the dot, or empty). */
+    Path target(Date date, String ext) {
+        Instant instant = date.toInstant();
+        Path dir = outputRoot;
+        for (DateTimeFormatter level : levels) dir = dir.resolve(level.format(instant));
+        return dir.resolve(name.format(instant) + ext);
+    }
+
+    /** Like {@link #target}, but first creates the directory unless this plan already did. */
+    Path createTarget(Date date, String ext) throws IOException {
+        Path target = target(date, ext);
+        Path dir = target.getParent();
+        if (!createdDirectories.contains(dir)) {
+            Files.createDirectories(dir);
+            createdDirectories.add(dir);
+        }
+        return target;
+    }
+}
@@ -0,0 +1,168 @@
+package com.opsify.features.image.renamer.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Three-stage rename run: capture dates are read on a pool of extractor threads, names are planned one file at a
+ * time in input order on the calling thread, and files are written on a pool of copier threads.
+ * <p>
+ * Planning is the only stage that claims output names, and it takes the files in their original order whatever
+ * order extraction finishes in, so collision suffixes are the same on every run. At most {@code window} files are
+ * between extraction and the end of their write at once, which bounds memory on large libraries and keeps the
+ * extractors from running far ahead of a slow disk. Listener calls are serialized and count up by one per file.
+ */
+@Slf4j
+final class RenamePipeline {
+
+    /** Reads the capture date of a file; runs concurrently. */
+    interface Extractor {
+        Date extract(Path file) throws Exception;
+    }
+
+    /** Chooses and claims the output of a file; runs on one thread, in input order. */
+    interface Planner {
+        Path plan(Path file, Date date) throws Exception;
+    }
+
+    /** Writes a planned output; runs concurrently. */
+    interface Writer {
+        void write(Path file, Path target) throws Exception;
+    }
+
+    private final int extractors;
+    private final int copiers;
+    private final int window;
+
+    RenamePipeline(int extractors, int copiers, int window) {
+        if (extractors < 1 || copiers < 1) throw new IllegalArgumentException("each stage needs a thread");
+        if (window < 1) throw new IllegalArgumentException("window must be >= 1");
+        this.extractors = extractors;
+        this.copiers = copiers;
+        this.window = window;
+    }
+
+    /**
+     * Extractors for every core but one, since EXIF parsing is CPU-bound; four copiers to keep the disk queue
+     * busy; and a window of eight files per thread.
+     */
+    static RenamePipeline createDefault() {
+        int extractors = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        int copiers = 4;
+        return new RenamePipeline(extractors, copiers, (extractors + copiers) * 8);
+    }
+
+    /**
+     * Renames {@code files}, reporting each to {@code listener} once it is written or has failed. Returns when
+     * every file is done.
+     *
+     * @throws InterruptedIOException if the calling thread is interrupted; files already started still finish
+     */
+    void run(List<Path> files, Extractor extractor, Planner planner, Writer writer, RenamerListener listener)
+            throws IOException {
+        ExecutorService extractPool = Executors.newFixedThreadPool(extractors, new StageThreadFactory("extract"));
+        ExecutorService copyPool = Executors.newFixedThreadPool(copiers, new StageThreadFactory("copy"));
+        Progress progress = new Progress(listener, files.size());
+        Semaphore inFlight = new Semaphore(window);
+        Queue<Future<Date>> pending = new ArrayDeque<>();
+        try {
+            int next = 0;
+            while (next < files.size() || !pending.isEmpty()) {
+                // Keep the extractors fed up to the window; with every slot in the copy stage, wait for one
+                while (next < files.size()) {
+                    if (pending.isEmpty()) inFlight.acquire();
+                    else if (!inFlight.tryAcquire()) break;
+                    Path file = files.get(next++);
+                    pending.add(extractPool.submit(() -> extractor.extract(file)));
+                }
+                int index = next - pending.size();
+                Path file = files.get(index);
+                Path target;
+                try {
+                    target = planner.plan(file, await(pending.poll()));
+                } catch (Exception e) {
+                    progress.failed(file, e);
+                    inFlight.release();
+                    continue;
+                }
+                copyPool.execute(() -> {
+                    try {
+                        writer.write(file, target);
+                        progress.done(file, target);
+                    } catch (Exception e) {
+                        progress.failed(file, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquire(window);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Renaming interrupted");
+        } finally {
+            extractPool.shutdownNow();
+            copyPool.shutdown();
+        }
+    }
+
+    /** Result of an extraction; its failure is rethrown as the cause, so the file's error names the real problem. */
+    private static Date await(Future<Date> extraction) throws Exception {
+        try {
+            return extraction.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /** Serializes listener calls so the done count reaches each value exactly once, in order. */
+    private static final class Progress {
+        private final RenamerListener listener;
+        private final int total;
+        private int done;
+
+        Progress(RenamerListener listener, int total) {
+            this.listener = listener;
+            this.total = total;
+        }
+
+        synchronized void done(Path file, Path target) {
+            listener.onFileDone(file.toString(), target.toString(), ++done, total);
+        }
+
+        synchronized void failed(Path file, Exception e) {
+            log.debug("Could not rename {}", file, e);
+            listener.onError(file.toString(), e, ++done, total);
+        }
+    }
+
+    private static final class StageThreadFactory implements ThreadFactory {
+        private final String stage;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        StageThreadFactory(String stage) {
+            this.stage = stage;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "image-rename-" + stage + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
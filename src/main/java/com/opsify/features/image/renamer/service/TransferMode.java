@@ -0,0 +1,27 @@
+package com.opsify.features.image.renamer.service;
+
+/**
+ * How renamed files get to the output. Every mode other than {@link #COPY} needs the output on the same
+ * filesystem as the source; files whose output is elsewhere are copied instead, so mixed layouts still work.
+ */
+public enum TransferMode {
+    /** Full byte copy with attributes; the source is left alone. */
+    COPY("Copy"),
+    /** Atomic rename within a filesystem, copy and delete across filesystems; the source is gone afterwards. */
+    MOVE("Move"),
+    /** A second name for the same data; takes no space, and edits to either name show in both. */
+    HARDLINK("Hard link"),
+    /** Copy-on-write clone (reflink), on filesystems such as Btrfs, XFS and APFS; takes no space until edited. */
+    CLONE("Clone (copy-on-write)");
+
+    private final String label;
+
+    TransferMode(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
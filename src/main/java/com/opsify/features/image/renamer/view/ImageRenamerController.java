@@ -4,6 +4,7 @@ import com.opsify.utils.Constants;
 import com.opsify.features.image.renamer.service.ImageRenamerService;
 import com.opsify.features.image.renamer.service.ImageRenamerServiceImpl;
 import com.opsify.features.image.renamer.service.RenamerListener;
+import com.opsify.features.image.renamer.service.TransferMode;
 import com.opsify.utils.FontUtils;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -47,6 +48,8 @@ public class ImageRenamerController {
     @FXML
     protected CheckBox groupByDay;
     @FXML
+    protected ComboBox<TransferMode> transferCombo;
+    @FXML
     protected Button renameButton;
     @FXML
     protected ProgressBar progressBar;
@@ -84,6 +87,8 @@ public class ImageRenamerController {
         progressBar.setProgress(INITIAL_PROGRESS);
         groupByYear.setSelected(true);
         groupByMonth.setSelected(true);
+        transferCombo.setItems(FXCollections.observableArrayList(TransferMode.values()));
+        transferCombo.getSelectionModel().select(TransferMode.COPY);
         FontUtils.loadAndApplyNunitoFont(
                 titleLabel, renameButton, inputField, outputField, schemaCombo, logArea
         );
@@ -130,17 +135,19 @@ public class ImageRenamerController {
         boolean groupYear = groupByYear.isSelected();
         boolean groupMonth = groupByMonth.isSelected();
         boolean groupDay = groupByDay.isSelected();
+        TransferMode transfer = transferCombo.getValue() != null ? transferCombo.getValue() : TransferMode.COPY;
 
         progressBar.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
         renameButton.setDisable(true);
         exec = Executors.newSingleThreadExecutor();
-        exec.submit(() -> runRenaming(in, out, schema, groupYear, groupMonth, groupDay));
+        exec.submit(() -> runRenaming(in, out, schema, groupYear, groupMonth, groupDay, transfer));
     }
 
-    private void runRenaming(String in, String out, String schema, boolean groupYear, boolean groupMonth, boolean groupDay) {
+    private void runRenaming(String in, String out, String schema, boolean groupYear, boolean groupMonth, boolean groupDay,
+                             TransferMode transfer) {
         try {
             appendLog(Constants.LOG_STARTING_RENAME + "\n");
-            renamer.renameImages(in, out, schema, groupYear, groupMonth, groupDay, getListener());
+            renamer.renameImages(in, out, schema, groupYear, groupMonth, groupDay, transfer, getListener());
             appendLog(Constants.LOG_FINISHED_RENAME + "\n");
         } catch (Exception e) {
             log.error("Renaming error", e);
@@ -1,5 +1,7 @@
 package com.opsify.features.pdf.joiner.service;
 
+import com.opsify.utils.OutputReservations;
+import com.opsify.utils.OutputReservations.NameStyle;
 import javafx.collections.ObservableList;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.io.MemoryUsageSetting;
@@ -31,7 +33,8 @@ public class PdfJoinerServiceImpl implements PdfJoinerService {
         }
 
         // Create output directory if it doesn't exist
-        File outputFile = getOutputFile(outputDir, outputFileName);
+        OutputReservations reservations = new OutputReservations();
+        File outputFile = getOutputFile(outputDir, outputFileName, reservations);
 
         // Merge the PDFs
         PDFMergerUtility merger = new PDFMergerUtility();
@@ -42,13 +45,19 @@ public class PdfJoinerServiceImpl implements PdfJoinerService {
         }
 
         // Perform the merge using default
-        merger.mergeDocuments(null);
+        try {
+            merger.mergeDocuments(null);
+        } catch (IOException | RuntimeException e) {
+            reservations.release(outputFile.toPath());
+            throw e;
+        }
 
         log.info("Successfully merged {} PDFs to: {}", pdfFiles.size(), outputFile.getAbsolutePath());
         return Paths.get(outputFile.getAbsolutePath());
     }
 
-    private static File getOutputFile(String outputDir, String outputFileName) throws IOException {
+    private static File getOutputFile(String outputDir, String outputFileName, OutputReservations reservations)
+            throws IOException {
         File outputDirectory = new File(outputDir);
         if (!outputDirectory.exists()) {
             if (!outputDirectory.mkdirs()) {
@@ -62,15 +71,8 @@ public class PdfJoinerServiceImpl implements PdfJoinerService {
             baseName = baseName.substring(0, baseName.length() - 4);
         }
 
-        File outputFile;
-        int counter = 1;
-        do {
-            String fileName = (counter == 1) ?
-                    baseName + ".pdf" :
-                    baseName + " (" + counter + ").pdf";
-            outputFile = new File(outputDirectory, fileName);
-            counter++;
-        } while (outputFile.exists());
-        return outputFile;
+        // Taken names continue with "name (2).pdf", "name (3).pdf", ...
+        return reservations.reserve(new File(outputDirectory, baseName + ".pdf").toPath(), new NameStyle(" (%d)", 2))
+                .toFile();
     }
 }
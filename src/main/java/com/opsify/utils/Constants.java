@@ -22,13 +22,27 @@ public final class Constants {
     // UI messages
     public static final String MSG_SELECT_INPUT_OUTPUT_FORMAT = "Please select input, output directory, and target format.";
     public static final String LOG_STARTING = "Starting conversion...";
+    public static final String LOG_LOADING_FFMPEG = "Loading FFmpeg libraries...";
     public static final String LOG_DONE_PREFIX = "Done: ";
     public static final String LOG_ERROR_PREFIX = "Error: ";
+    public static final String LOG_SKIPPED_PREFIX = "Up to date: ";
+    public static final String LOG_WORKERS_PREFIX = "Workers: ";
     public static final String LOG_FINISHED = "Conversion finished.";
+    public static final String LOG_CANCELLED = "Conversion cancelled.";
+    public static final String LOG_PAUSED = "Paused.";
+    public static final String LOG_RESUMED = "Resumed.";
     public static final String LOG_ERROR_GENERIC_PREFIX = "ERROR: ";
+    public static final String BUTTON_PAUSE = "Pause";
+    public static final String BUTTON_RESUME = "Resume";
 
     // Supported formats in the combo box
     public static final List<String> SUPPORTED_FORMATS = List.of("mp3","wav","ogg","m4a","flac","aac");
+    public static final String KEEP_SAMPLE_RATE = "Source rate";
+    public static final List<String> SAMPLE_RATES = List.of(KEEP_SAMPLE_RATE, "48000 Hz", "44100 Hz", "32000 Hz", "22050 Hz", "16000 Hz");
+    public static final String KEEP_CHANNELS = "Source channels";
+    public static final String STEREO = "Stereo";
+    public static final String MONO = "Mono";
+    public static final List<String> CHANNEL_LAYOUTS = List.of(KEEP_CHANNELS, STEREO, MONO);
 
     // Image Renamer constants
     public static final String[] IMAGE_SCHEMAS = {
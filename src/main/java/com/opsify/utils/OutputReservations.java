@@ -0,0 +1,134 @@
+package com.opsify.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out output file names that nobody else writes to, for tools that must not overwrite existing files.
+ * <p>
+ * A reservation creates the file empty with {@code CREATE_NEW}, so concurrent workers, and other programs, can
+ * never get the same name; the caller then writes over it. Each directory is listed once, on its first
+ * reservation, and the taken names plus the next free suffix per name are kept in memory, so a colliding name
+ * costs no extra filesystem probes. Instances are meant to live for one job; the index is not refreshed,
+ * and a file created behind its back is only noticed by the failed claim.
+ */
+@Slf4j
+public final class OutputReservations {
+
+    /**
+     * How the n-th alternative of a taken name is spelled: {@code format} is applied to n and inserted
+     * before the extension, and n counts up from {@code first}.
+     */
+    public record NameStyle(String format, int first) {
+        /** {@code "name (1).ext"}, {@code "name (2).ext"}, ... */
+        public static final NameStyle PARENTHESIZED = new NameStyle(" (%d)", 1);
+        /** {@code "name_0.ext"}, {@code "name_1.ext"}, ... */
+        public static final NameStyle UNDERSCORED = new NameStyle("_%d", 0);
+
+        String apply(String base, int n, String ext) {
+            return base + String.format(format, n) + ext;
+        }
+    }
+
+    private final Map<Path, DirectoryIndex> directories = new ConcurrentHashMap<>();
+
+    /**
+     * Claims {@code desired}, or its first free alternative in {@code style}, by creating it empty.
+     * The parent directory must exist.
+     *
+     * @return the claimed path, in the same directory as {@code desired}
+     */
+    public Path reserve(Path desired, NameStyle style) throws IOException {
+        return claim(desired, style, false);
+    }
+
+    /** Like {@link #reserve}, but claims the name as a new empty directory, for outputs that are several files. */
+    public Path reserveDirectory(Path desired, NameStyle style) throws IOException {
+        return claim(desired, style, true);
+    }
+
+    private Path claim(Path desired, NameStyle style, boolean directory) throws IOException {
+        Path dir = desired.toAbsolutePath().normalize().getParent();
+        DirectoryIndex index = directories.computeIfAbsent(dir, DirectoryIndex::new);
+        String name = desired.getFileName().toString();
+        while (true) {
+            String candidate = index.claim(name, style);
+            Path path = dir.resolve(candidate);
+            try {
+                if (directory) Files.createDirectory(path);
+                else Files.createFile(path);
+                return path;
+            } catch (FileAlreadyExistsException e) {
+                // Created after the directory was listed; the name stays marked as taken
+                log.debug("Output name {} was taken outside this job", path);
+            }
+        }
+    }
+
+    /**
+     * Gives a reserved name back after the output was not written: the file or directory is deleted if it is
+     * still empty and the name is no longer marked as taken.
+     */
+    public void release(Path reserved) {
+        Path dir = reserved.toAbsolutePath().normalize().getParent();
+        try {
+            if (Files.isRegularFile(reserved) && Files.size(reserved) == 0) Files.delete(reserved);
+            if (Files.isDirectory(reserved) && isEmptyDirectory(reserved)) Files.delete(reserved);
+        } catch (IOException e) {
+            log.warn("Could not remove unused output {}: {}", reserved, e.getMessage());
+            return;
+        }
+        DirectoryIndex index = directories.get(dir);
+        if (index != null && !Files.exists(reserved)) index.free(reserved.getFileName().toString());
+    }
+
+    private static boolean isEmptyDirectory(Path dir) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            return !entries.iterator().hasNext();
+        }
+    }
+
+    /** Names taken in one directory and, per desired name, the next suffix to try. */
+    private static final class DirectoryIndex {
+        private final Set<String> taken = new HashSet<>();
+        private final Map<String, Integer> nextSuffix = new HashMap<>();
+
+        DirectoryIndex(Path dir) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) taken.add(entry.getFileName().toString());
+            } catch (IOException e) {
+                // Missing or unreadable: claims still fail safely on existing files
+                log.debug("Could not list {}: {}", dir, e.getMessage());
+            }
+        }
+
+        /** Picks a name nobody in this job has claimed and marks it taken. */
+        synchronized String claim(String name, NameStyle style) {
+            if (taken.add(name)) return name;
+            int dot = name.lastIndexOf('.');
+            String base = dot > 0 ? name.substring(0, dot) : name;
+            String ext = dot > 0 ? name.substring(dot) : "";
+            int n = nextSuffix.getOrDefault(name, style.first());
+            String candidate;
+            do {
+                candidate = style.apply(base, n++, ext);
+            } while (!taken.add(candidate));
+            nextSuffix.put(name, n);
+            return candidate;
+        }
+
+        synchronized void free(String name) {
+            taken.remove(name);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.opsify.features.audio.converter.service;
+
+import com.opsify.features.audio.converter.service.AdaptiveConcurrency.Decision;
+import com.opsify.features.audio.converter.service.AdaptiveConcurrency.Sample;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyTest {
+
+    @Test
+    void testDecide_keepsClimbingWhileThroughputImproves() {
+        Decision first = AdaptiveConcurrency.decide(2, 8, 1, 0, new Sample(10, 0.5, 0));
+        Decision better = AdaptiveConcurrency.decide(3, 8, 1, 10, new Sample(14, 0.6, 0));
+
+        assertThat(first.workers()).isEqualTo(3);
+        assertThat(better.workers()).isEqualTo(4);
+        assertThat(better.direction()).isEqualTo(1);
+    }
+
+    @Test
+    void testDecide_turnsAroundWhenThroughputDrops() {
+        Decision worse = AdaptiveConcurrency.decide(5, 8, 1, 20, new Sample(15, 0.7, 0));
+
+        assertThat(worse.workers()).isEqualTo(4);
+        assertThat(worse.direction()).isEqualTo(-1);
+    }
+
+    @Test
+    void testDecide_holdsOnPlateauUnlessWaitingOnIo() {
+        Decision stable = AdaptiveConcurrency.decide(4, 8, 1, 20, new Sample(20.5, 0.7, 0.05));
+        Decision ioBound = AdaptiveConcurrency.decide(4, 8, 1, 20, new Sample(20.5, 0.4, 0.4));
+
+        assertThat(stable.workers()).isEqualTo(4);
+        assertThat(ioBound.workers()).isEqualTo(3);
+        assertThat(ioBound.direction()).isEqualTo(-1);
+    }
+
+    @Test
+    void testDecide_neverAddsWorkersOnSaturatedCpuOrPastTheLimits() {
+        assertThat(AdaptiveConcurrency.decide(2, 8, 1, 10, new Sample(14, 0.99, 0)).workers()).isEqualTo(2);
+        assertThat(AdaptiveConcurrency.decide(8, 8, 1, 10, new Sample(14, 0.5, 0)).workers()).isEqualTo(8);
+        assertThat(AdaptiveConcurrency.decide(1, 8, -1, 10, new Sample(14, 0.5, 0)).workers()).isEqualTo(1);
+    }
+
+    @Test
+    void testDecide_idleIntervalChangesNothing() {
+        Decision idle = AdaptiveConcurrency.decide(3, 8, -1, 10, new Sample(0, 0.1, 0));
+
+        assertThat(idle.workers()).isEqualTo(3);
+        assertThat(idle.direction()).isEqualTo(-1);
+    }
+
+    @Test
+    void testClose_onlyTheLastTunerOfAnEngineRestoresItsParallelism() {
+        ConversionEngine engine = new ConversionEngine(8, 8);
+        SamplePumpMetrics metrics = new SamplePumpMetrics();
+
+        AdaptiveConcurrency first = AdaptiveConcurrency.start(engine, metrics, null);
+        assertThat(engine.getActiveWorkers()).isEqualTo(4);
+        engine.setActiveWorkers(3);
+        AdaptiveConcurrency second = AdaptiveConcurrency.start(engine, metrics, null);
+        // Goes on from where the running tuner got to
+        assertThat(engine.getActiveWorkers()).isEqualTo(3);
+        engine.setActiveWorkers(2);
+
+        first.close();
+        first.close();
+        assertThat(engine.getActiveWorkers()).isEqualTo(2);
+
+        second.close();
+        assertThat(engine.getActiveWorkers()).isEqualTo(8);
+        engine.shutdown();
+    }
+}
@@ -2,16 +2,37 @@ package com.opsify.features.audio.converter.service;
 
 import com.opsify.features.audio.converter.service.AudioConverterServiceImpl;
 import com.opsify.features.audio.converter.service.ConversionListener;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
 import static org.mockito.Mockito.*;
 
 class AudioConverterServiceImplTest {
@@ -33,7 +54,7 @@ class AudioConverterServiceImplTest {
         Path outputDir = tempDir.resolve("out");
         String targetExt = "mp3";
 
-        doNothing().when(service).transcodeAudio(any(), any(), any());
+        doNothing().when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
 
         service.convert(inputFile, outputDir, targetExt, listener);
 
@@ -41,6 +62,7 @@ class AudioConverterServiceImplTest {
         ArgumentCaptor<Path> inputCaptor = ArgumentCaptor.forClass(Path.class);
         ArgumentCaptor<Path> outputCaptor = ArgumentCaptor.forClass(Path.class);
         verify(listener).onFileDone(inputCaptor.capture(), outputCaptor.capture(), eq(1), eq(1));
+        verify(listener).onTotalChanged(1, true);
 
         assertThat(inputCaptor.getValue()).isEqualTo(inputFile);
         assertThat(outputCaptor.getValue().getFileName().toString()).endsWith(".mp3");
@@ -60,14 +82,16 @@ class AudioConverterServiceImplTest {
         Path outputDir = tempDir.resolve("out");
         String targetExt = "mp3";
 
-        doNothing().when(service).transcodeAudio(any(), any(), any());
+        doNothing().when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
 
         service.convert(dir, outputDir, targetExt, listener);
 
-        verify(listener).onStart(2);
+        // Conversion starts with the first discovered file; the total grows until discovery completes
+        verify(listener).onStart(1);
+        verify(listener).onTotalChanged(2, true);
         ArgumentCaptor<Path> inputCaptor = ArgumentCaptor.forClass(Path.class);
         ArgumentCaptor<Path> outputCaptor = ArgumentCaptor.forClass(Path.class);
-        verify(listener, times(2)).onFileDone(inputCaptor.capture(), outputCaptor.capture(), anyInt(), eq(2));
+        verify(listener, times(2)).onFileDone(inputCaptor.capture(), outputCaptor.capture(), anyInt(), anyInt());
 
         assertThat(inputCaptor.getAllValues()).containsExactlyInAnyOrder(file1, file2);
         assertThat(outputCaptor.getAllValues()).allSatisfy(p -> assertThat(p.getFileName().toString()).endsWith(".mp3"));
@@ -99,7 +123,7 @@ class AudioConverterServiceImplTest {
 
         Path outputDir = tempDir.resolve("out");
 
-        doThrow(new IOException("forced error")).when(service).transcodeAudio(any(), any(), any());
+        doThrow(new IOException("forced error")).when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
 
         service.convert(inputFile, outputDir, "mp3", listener);
 
@@ -117,7 +141,7 @@ class AudioConverterServiceImplTest {
         Files.writeString(file1, "dummy content");
 
         Path outputDir = tempDir.resolve("out");
-        doNothing().when(service).transcodeAudio(any(), any(), any());
+        doNothing().when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
 
         service.convert(tempDir, outputDir, "mp3", listener);
 
@@ -133,11 +157,12 @@ class AudioConverterServiceImplTest {
         Files.writeString(file2, "dummy content");
 
         Path outputDir = tempDir.resolve("out");
-        doNothing().when(service).transcodeAudio(any(), any(), any());
+        doNothing().when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
 
         service.convert(tempDir, outputDir, "wav", listener);
 
-        verify(listener).onStart(1); // only one audio file
+        verify(listener).onStart(1);
+        verify(listener).onTotalChanged(1, true); // only one audio file
         verify(listener).onFileDone(eq(file2), any(), eq(1), eq(1));
     }
 
@@ -152,7 +177,7 @@ class AudioConverterServiceImplTest {
         Path existingFile = outputDir.resolve("song.wav");
         Files.writeString(existingFile, "already exists");
 
-        doNothing().when(service).transcodeAudio(any(), any(), any());
+        doNothing().when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
 
         service.convert(file1, outputDir, "wav", listener);
 
@@ -170,8 +195,470 @@ class AudioConverterServiceImplTest {
 
         Path outputDir = tempDir.resolve("out");
 
-        doNothing().when(service).transcodeAudio(any(), any(), any());
+        doNothing().when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
 
         service.convert(file1, outputDir, "wav", null); // listener is null, should not fail
     }
+
+    @Test
+    void testConvert_incrementalSkipsUnchangedFiles(@TempDir Path tempDir) throws IOException {
+        Path file1 = tempDir.resolve("song.mp3");
+        Files.writeString(file1, "dummy content");
+        Path outputDir = tempDir.resolve("out");
+        ConversionOptions options = ConversionOptions.builder().incremental(true).build();
+        doAnswer(inv -> Files.writeString(inv.getArgument(1), "converted")).when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
+
+        service.convert(file1, outputDir, "wav", options, listener);
+        service.convert(file1, outputDir, "wav", options, listener);
+
+        verify(service, times(1)).transcodeAudio(any(), any(), any(), any(), any(), any());
+        verify(listener).onFileDone(eq(file1), eq(outputDir.resolve("song.wav")), eq(1), eq(1));
+        verify(listener).onSkipped(eq(file1), eq(outputDir.resolve("song.wav")), eq(1), eq(1));
+        assertThat(outputDir.resolve(ConversionManifest.FILE_NAME)).exists();
+    }
+
+    @Test
+    void testConvert_incrementalReplacesOutputOfChangedFile(@TempDir Path tempDir) throws IOException {
+        Path file1 = tempDir.resolve("song.mp3");
+        Files.writeString(file1, "dummy content");
+        Path outputDir = tempDir.resolve("out");
+        ConversionOptions options = ConversionOptions.builder().incremental(true).build();
+        doAnswer(inv -> Files.writeString(inv.getArgument(1), "converted")).when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
+
+        service.convert(file1, outputDir, "wav", options, listener);
+        Files.writeString(file1, "changed, longer dummy content");
+        service.convert(file1, outputDir, "wav", options, listener);
+
+        verify(service, times(2)).transcodeAudio(eq(file1), eq(outputDir.resolve("song.wav")), eq("wav"), any(), any(), any());
+        verify(listener, never()).onSkipped(any(), any(), anyInt(), anyInt());
+        assertThat(outputDir).isDirectoryNotContaining("glob:**/song (1).wav");
+    }
+
+    @Test
+    void testConvert_incrementalReconvertsWhenTargetChanges(@TempDir Path tempDir) throws IOException {
+        Path file1 = tempDir.resolve("song.mp3");
+        Files.writeString(file1, "dummy content");
+        Path outputDir = tempDir.resolve("out");
+        ConversionOptions options = ConversionOptions.builder().incremental(true).build();
+        doAnswer(inv -> Files.writeString(inv.getArgument(1), "converted")).when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
+
+        service.convert(file1, outputDir, "wav", options, listener);
+        service.convert(file1, outputDir, "flac", options, listener);
+
+        verify(service).transcodeAudio(any(), eq(outputDir.resolve("song.wav")), eq("wav"), any(), any(), any());
+        verify(service).transcodeAudio(any(), eq(outputDir.resolve("song.flac")), eq("flac"), any(), any(), any());
+        verify(listener, never()).onSkipped(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testConvert_incrementalReconvertsWhenSampleRateChanges(@TempDir Path tempDir) throws IOException {
+        Path file1 = tempDir.resolve("song.flac");
+        Files.writeString(file1, "dummy content");
+        Path outputDir = tempDir.resolve("out");
+        ConversionOptions options = ConversionOptions.builder().incremental(true).build();
+        doAnswer(inv -> Files.writeString(inv.getArgument(1), "converted")).when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
+
+        service.convert(file1, outputDir, "mp3", options, listener);
+        service.convert(file1, outputDir, "mp3", options.toBuilder().sampleRate(22050).build(), listener);
+
+        verify(service, times(2)).transcodeAudio(any(), eq(outputDir.resolve("song.mp3")), eq("mp3"), any(), any(), any());
+        verify(listener, never()).onSkipped(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testConvert_incrementalContentHashSkipsTouchedFile(@TempDir Path tempDir) throws IOException {
+        Path file1 = tempDir.resolve("song.mp3");
+        Files.writeString(file1, "dummy content");
+        Path outputDir = tempDir.resolve("out");
+        ConversionOptions options = ConversionOptions.builder().incremental(true).contentHash(true).build();
+        doAnswer(inv -> Files.writeString(inv.getArgument(1), "converted")).when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
+
+        service.convert(file1, outputDir, "wav", options, listener);
+        Files.setLastModifiedTime(file1, FileTime.fromMillis(0));
+        service.convert(file1, outputDir, "wav", options, listener);
+
+        verify(service, times(1)).transcodeAudio(any(), any(), any(), any(), any(), any());
+        verify(listener).onSkipped(eq(file1), any(), eq(1), eq(1));
+    }
+
+    @Test
+    void testConvert_startsConvertingBeforeDiscoveryFinishes(@TempDir Path tempDir) throws IOException {
+        Path dir = tempDir.resolve("audio");
+        Files.createDirectories(dir);
+        for (int i = 0; i < 50; i++) {
+            Files.writeString(dir.resolve("song" + i + ".mp3"), "dummy content");
+        }
+        Path outputDir = tempDir.resolve("out");
+        AtomicInteger totalAtFirstConversion = new AtomicInteger(-1);
+        ConversionListener recording = new ConversionListener() {
+            volatile int known;
+
+            @Override
+            public void onStart(int total) { known = total; }
+
+            @Override
+            public void onTotalChanged(int total, boolean complete) { known = total; }
+
+            @Override
+            public void onFileDone(Path input, Path output, int done, int total) {
+                totalAtFirstConversion.compareAndSet(-1, known);
+            }
+        };
+        new AudioConverterServiceImpl(1) {
+            @Override
+            protected void transcodeAudio(Path input, Path output, String targetExt, ConversionOptions options,
+                                          ConversionJob job, FileStats stats) {
+                // no-op
+            }
+        }.convert(dir, outputDir, "wav", recording);
+
+        // With one worker the job holds at most two files, so discovery cannot have finished first
+        assertThat(totalAtFirstConversion.get()).isBetween(1, 49);
+    }
+
+    @Test
+    void testConvert_passesPresetToTranscode(@TempDir Path tempDir) throws IOException {
+        Path file1 = tempDir.resolve("song.wav");
+        Files.writeString(file1, "dummy content");
+        Path outputDir = tempDir.resolve("out");
+        ConversionOptions options = ConversionOptions.builder().preset(EncoderPreset.FAST).build();
+        doNothing().when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
+
+        service.convert(file1, outputDir, "mp3", options, listener);
+
+        ArgumentCaptor<ConversionOptions> optionsCaptor = ArgumentCaptor.forClass(ConversionOptions.class);
+        verify(service).transcodeAudio(eq(file1), any(), eq("mp3"), optionsCaptor.capture(), any(), any());
+        assertThat(optionsCaptor.getValue().getPreset()).isEqualTo(EncoderPreset.FAST);
+    }
+
+    @Test
+    void testConvert_multipleTargetsTranscodeEachFileOnce(@TempDir Path tempDir) throws IOException {
+        Path file1 = tempDir.resolve("song.wav");
+        Files.writeString(file1, "dummy content");
+        Path mp3Dir = tempDir.resolve("mp3");
+        Path flacDir = tempDir.resolve("flac");
+        doReturn(Map.of()).when(service).transcodeToAll(any(), any(), any(), any(), any());
+
+        service.convert(file1, List.of(new ConversionTarget(mp3Dir, "mp3"), new ConversionTarget(flacDir, "flac")),
+                ConversionOptions.defaults(), listener);
+
+        verify(service).transcodeToAll(eq(file1),
+                eq(Map.of(mp3Dir.resolve("song.mp3"), "mp3", flacDir.resolve("song.flac"), "flac")), any(), any(), any());
+        verify(listener).onStart(2);
+        verify(listener).onTotalChanged(2, true);
+        verify(listener).onFileDone(eq(file1), eq(mp3Dir.resolve("song.mp3")), anyInt(), eq(2));
+        verify(listener).onFileDone(eq(file1), eq(flacDir.resolve("song.flac")), anyInt(), eq(2));
+    }
+
+    @Test
+    void testConvert_multipleTargetsReportFailuresPerTarget(@TempDir Path tempDir) throws IOException {
+        Path file1 = tempDir.resolve("song.wav");
+        Files.writeString(file1, "dummy content");
+        Path mp3Dir = tempDir.resolve("mp3");
+        Path flacDir = tempDir.resolve("flac");
+        IOException failure = new IOException("encoder failed");
+        doReturn(Map.of(flacDir.resolve("song.flac"), failure)).when(service).transcodeToAll(any(), any(), any(), any(), any());
+
+        service.convert(file1, List.of(new ConversionTarget(mp3Dir, "mp3"), new ConversionTarget(flacDir, "flac")),
+                ConversionOptions.defaults(), listener);
+
+        verify(listener).onFileDone(eq(file1), eq(mp3Dir.resolve("song.mp3")), anyInt(), eq(2));
+        verify(listener).onError(eq(file1), eq(failure), anyInt(), eq(2));
+    }
+
+    @Test
+    void testConvert_multipleTargetsSkipPerTargetWhenIncremental(@TempDir Path tempDir) throws IOException {
+        Path file1 = tempDir.resolve("song.wav");
+        Files.writeString(file1, "dummy content");
+        Path mp3Dir = tempDir.resolve("mp3");
+        Path flacDir = tempDir.resolve("flac");
+        ConversionOptions options = ConversionOptions.builder().incremental(true).build();
+        doAnswer(inv -> {
+            for (Path out : inv.<Map<Path, String>>getArgument(1).keySet()) Files.writeString(out, "converted");
+            return Map.of();
+        }).when(service).transcodeToAll(any(), any(), any(), any(), any());
+
+        service.convert(file1, List.of(new ConversionTarget(mp3Dir, "mp3")), options, listener);
+        service.convert(file1, List.of(new ConversionTarget(mp3Dir, "mp3"), new ConversionTarget(flacDir, "flac")),
+                options, listener);
+
+        verify(service).transcodeToAll(any(), eq(Map.of(flacDir.resolve("song.flac"), "flac")), any(), any(), any());
+        verify(listener).onSkipped(eq(file1), eq(mp3Dir.resolve("song.mp3")), anyInt(), eq(2));
+        assertThat(flacDir.resolve(ConversionManifest.FILE_NAME)).exists();
+    }
+
+    @Test
+    void testConvert_multipleTargetsNeedDistinctOutputRoots(@TempDir Path tempDir) throws IOException {
+        Path file1 = tempDir.resolve("song.wav");
+        Files.writeString(file1, "dummy content");
+        Path outputDir = tempDir.resolve("out");
+
+        assertThatThrownBy(() -> service.convert(file1,
+                List.of(new ConversionTarget(outputDir, "mp3"), new ConversionTarget(outputDir.resolve("."), "flac")),
+                ConversionOptions.defaults(), listener))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(listener);
+    }
+
+    @Test
+    void testStart_cancelStopsWorkAndDeletesPartialOutputs(@TempDir Path tempDir) throws Exception {
+        Path dir = tempDir.resolve("audio");
+        Files.createDirectories(dir);
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(dir.resolve("song" + i + ".mp3"), "dummy content");
+        }
+        Path outputDir = tempDir.resolve("out");
+        AudioConverterServiceImpl single = spy(new AudioConverterServiceImpl(1));
+        CountDownLatch writing = new CountDownLatch(1);
+        doAnswer(inv -> {
+            Files.writeString(inv.getArgument(1), "partial");
+            writing.countDown();
+            ConversionJob job = inv.getArgument(4);
+            while (true) {
+                job.checkpoint();
+                Thread.sleep(1);
+            }
+        }).when(single).transcodeAudio(any(), any(), any(), any(), any(), any());
+
+        ConversionJob job = single.start(dir, List.of(new ConversionTarget(outputDir, "wav")),
+                ConversionOptions.defaults(), listener);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        job.cancel();
+
+        assertThatThrownBy(job::await).isInstanceOf(CancellationException.class);
+        verify(single, times(1)).transcodeAudio(any(), any(), any(), any(), any(), any());
+        verify(listener, never()).onFileDone(any(), any(), anyInt(), anyInt());
+        verify(listener, never()).onError(any(), any(), anyInt(), anyInt());
+        try (Stream<Path> outputs = Files.list(outputDir)) {
+            assertThat(outputs).isEmpty();
+        }
+    }
+
+    @Test
+    void testStart_pauseHoldsWorkersUntilResumed(@TempDir Path tempDir) throws Exception {
+        Path file1 = tempDir.resolve("song.mp3");
+        Files.writeString(file1, "dummy content");
+        Path outputDir = tempDir.resolve("out");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch paused = new CountDownLatch(1);
+        doAnswer(inv -> {
+            started.countDown();
+            paused.await();
+            ConversionJob job = inv.getArgument(4);
+            job.checkpoint();
+            return Files.writeString(inv.getArgument(1), "converted");
+        }).when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
+
+        ConversionJob job = service.start(file1, List.of(new ConversionTarget(outputDir, "wav")),
+                ConversionOptions.defaults(), listener);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        job.pause();
+        paused.countDown();
+        Thread.sleep(100);
+
+        assertThat(job.isPaused()).isTrue();
+        assertThat(job.isDone()).isFalse();
+        assertThat(outputDir.resolve("song.wav")).isEmptyFile();
+
+        job.resume();
+        job.await();
+        assertThat(outputDir.resolve("song.wav")).hasContent("converted");
+        verify(listener).onFileDone(eq(file1), eq(outputDir.resolve("song.wav")), eq(1), eq(1));
+    }
+
+    @Test
+    void testConvert_longestFirstStartsWithTheLargestEstimate(@TempDir Path tempDir) throws IOException {
+        Path dir = tempDir.resolve("audio");
+        Files.createDirectories(dir);
+        // Not decodable, so work is estimated from the file size
+        Files.writeString(dir.resolve("a.mp3"), "x".repeat(10));
+        Files.writeString(dir.resolve("b.mp3"), "x".repeat(3000));
+        Files.writeString(dir.resolve("c.mp3"), "x".repeat(200));
+        AudioConverterServiceImpl single = spy(new AudioConverterServiceImpl(1));
+        List<String> order = new CopyOnWriteArrayList<>();
+        doAnswer(inv -> order.add(inv.<Path>getArgument(0).getFileName().toString()))
+                .when(single).transcodeAudio(any(), any(), any(), any(), any(), any());
+
+        single.convert(dir, tempDir.resolve("out"), "wav",
+                ConversionOptions.builder().longestFirst(true).build(), listener);
+
+        assertThat(order).containsExactly("b.mp3", "c.mp3", "a.mp3");
+        verify(listener).onStart(3);
+        verify(listener).onTotalChanged(3, true);
+    }
+
+    @Test
+    void testConvert_longestFirstReportsWorkWeightedProgress(@TempDir Path tempDir) throws IOException {
+        Path dir = tempDir.resolve("audio");
+        Files.createDirectories(dir);
+        // Sizes in whole milliseconds at the fallback bit rate of 192 kbps: 300 ms and 100 ms
+        Files.writeString(dir.resolve("long.mp3"), "x".repeat(7200));
+        Files.writeString(dir.resolve("short.mp3"), "x".repeat(2400));
+        AudioConverterServiceImpl single = spy(new AudioConverterServiceImpl(1));
+        doNothing().when(single).transcodeAudio(any(), any(), any(), any(), any(), any());
+
+        single.convert(dir, tempDir.resolve("out"), "wav",
+                ConversionOptions.builder().longestFirst(true).build(), listener);
+
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).onProgress(0.75);
+        inOrder.verify(listener).onProgress(1.0);
+    }
+
+    @Test
+    void testConvert_writesReportWithALinePerOutput(@TempDir Path tempDir) throws IOException {
+        Path inputDir = tempDir.resolve("in");
+        Files.createDirectories(inputDir);
+        Files.writeString(inputDir.resolve("a.wav"), "dummy content");
+        Files.writeString(inputDir.resolve("b.wav"), "broken");
+        Path outputDir = tempDir.resolve("out");
+        doAnswer(inv -> {
+            if (inv.<Path>getArgument(0).getFileName().toString().startsWith("b")) throw new IOException("bad file");
+            Files.writeString(inv.getArgument(1), "converted");
+            return null;
+        }).when(service).transcodeAudio(any(), any(), any(), any(), any(), any());
+
+        service.convert(inputDir, outputDir, "mp3",
+                ConversionOptions.builder().report(ConversionReport.Format.CSV).build(), listener);
+
+        List<String> lines = Files.readAllLines(outputDir.resolve("opsify-report.csv"));
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(1)).startsWith(inputDir.resolve("a.wav") + "," + outputDir.resolve("a.mp3") + ",converted,");
+        assertThat(lines.get(2)).startsWith(inputDir.resolve("b.wav") + ",,failed,").endsWith(",bad file");
+        assertThat(outputDir.resolve("opsify-report-summary.csv")).exists();
+    }
+
+    @Test
+    void testTranscode_streamToStreamWithoutSeeking() throws IOException {
+        // A plain stream: no mark/reset, so nothing can be re-read
+        InputStream wav = new FilterInputStream(new ByteArrayInputStream(TestAudio.silentWav(44100, 2))) {
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+        ByteArrayOutputStream flac = new ByteArrayOutputStream();
+
+        service.transcode(wav, flac, "flac", ConversionOptions.defaults());
+
+        assertThat(new String(flac.toByteArray(), 0, 4, StandardCharsets.US_ASCII)).isEqualTo("fLaC");
+    }
+
+    @Test
+    void testTranscode_resamplesAndDownmixesInOnePass() throws IOException {
+        ByteArrayOutputStream wav = new ByteArrayOutputStream();
+
+        service.transcode(new ByteArrayInputStream(TestAudio.silentWav(44100, 2)), wav, "wav", ConversionOptions.builder()
+                .sampleRate(16000).channels(1).sampleFormat(SampleFormat.S24).build());
+
+        ByteBuffer header = ByteBuffer.wrap(wav.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(header.getShort(22)).isEqualTo((short) 1);
+        assertThat(header.getInt(24)).isEqualTo(16000);
+        assertThat(header.getShort(34)).isEqualTo((short) 24);
+    }
+
+    @Test
+    void testTranscode_opusGetsARateItsEncoderTakes() throws IOException {
+        ByteArrayOutputStream opus = new ByteArrayOutputStream();
+
+        service.transcode(new ByteArrayInputStream(TestAudio.silentWav(44100, 1)), opus, "opus", ConversionOptions.defaults());
+
+        assertThat(new String(opus.toByteArray(), 0, 4, StandardCharsets.US_ASCII)).isEqualTo("OggS");
+    }
+
+    @Test
+    void testTranscode_rejectsTargetsWithoutStreamingMuxer() {
+        assertThatThrownBy(() -> service.transcode(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(),
+                "xyz", ConversionOptions.defaults()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("xyz");
+    }
+
+    @Test
+    void testConvert_splitsCueImageIntoTaggedTracks(@TempDir Path tempDir) throws IOException {
+        Path inputDir = tempDir.resolve("in");
+        Files.createDirectories(inputDir);
+        Files.write(inputDir.resolve("album.wav"), TestAudio.silentWav(44100, 3));
+        Files.writeString(inputDir.resolve("album.cue"), """
+                TITLE "Album"
+                FILE "album.wav" WAVE
+                  TRACK 01 AUDIO
+                    TITLE "One"
+                    INDEX 01 00:00:00
+                  TRACK 02 AUDIO
+                    TITLE "Two"
+                    INDEX 01 00:01:00
+                """);
+        Path outputDir = tempDir.resolve("out");
+
+        new AudioConverterServiceImpl().convert(inputDir, outputDir, "wav",
+                ConversionOptions.builder().splitCue(true).build(), listener);
+
+        Path one = outputDir.resolve("album").resolve("01 - One.wav");
+        Path two = outputDir.resolve("album").resolve("02 - Two.wav");
+        // Same tags apart from equally long title and number, so the sizes differ by the 2 s of 16-bit stereo audio
+        assertThat(Files.size(two) - Files.size(one)).isEqualTo(44100L * 4);
+        verify(listener).onFileDone(inputDir.resolve("album.wav"), outputDir.resolve("album"), 1, 1);
+    }
+
+    @Test
+    void testConvert_incrementalSkipsSplitImageUntilATrackIsLost(@TempDir Path tempDir) throws IOException {
+        Path inputDir = tempDir.resolve("in");
+        Files.createDirectories(inputDir);
+        Path image = inputDir.resolve("album.wav");
+        Files.write(image, TestAudio.silentWav(44100, 3));
+        Files.writeString(inputDir.resolve("album.cue"), """
+                FILE "album.wav" WAVE
+                  TRACK 01 AUDIO
+                    TITLE "One"
+                    INDEX 01 00:00:00
+                  TRACK 02 AUDIO
+                    TITLE "Two"
+                    INDEX 01 00:01:00
+                """);
+        Path outputDir = tempDir.resolve("out");
+        Path album = outputDir.resolve("album");
+        ConversionOptions options = ConversionOptions.builder().splitCue(true).incremental(true).build();
+
+        service.convert(inputDir, outputDir, "wav", options, listener);
+        service.convert(inputDir, outputDir, "wav", options, listener);
+
+        verify(service, times(1)).transcodeToAll(eq(image), any(), any(), any(), any());
+        verify(listener).onSkipped(image, album, 1, 1);
+
+        // A lost track changes the directory's recorded size; the image is split again into the same directory
+        Files.delete(album.resolve("02 - Two.wav"));
+        service.convert(inputDir, outputDir, "wav", options, listener);
+
+        verify(service, times(2)).transcodeToAll(eq(image), eq(Map.of(album, "wav")), any(), any(), any());
+        assertThat(album.resolve("02 - Two.wav")).exists();
+        assertThat(outputDir).isDirectoryNotContaining("glob:**/album (1)");
+    }
+
+    @Test
+    void testConvert_loudnessWritesReplayGainTags(@TempDir Path tempDir) throws IOException {
+        Path input = tempDir.resolve("tone.wav");
+        Files.write(input, TestAudio.toneWav(48000, 5, Math.pow(10, -23 / 20.0)));
+        Path outputDir = tempDir.resolve("out");
+
+        new AudioConverterServiceImpl().convert(input, outputDir, "flac",
+                ConversionOptions.builder().loudness(true).build(), listener);
+
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(outputDir.resolve("tone.flac").toFile())) {
+            grabber.start();
+            Map<String, String> tags = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            tags.putAll(grabber.getMetadata());
+            // A -23 dBFS stereo sine reads -23 LUFS, 5 dB under the ReplayGain reference
+            assertThat(tags.get("REPLAYGAIN_TRACK_GAIN")).endsWith(" dB");
+            assertThat(Double.parseDouble(tags.get("REPLAYGAIN_TRACK_GAIN").replace(" dB", ""))).isCloseTo(5.0, within(0.1));
+            assertThat(tags).containsKey("REPLAYGAIN_TRACK_PEAK").doesNotContainKey("REPLAYGAIN_ALBUM_GAIN");
+            grabber.stop();
+        }
+    }
+
+    /** 16-bit stereo PCM WAV of a 1 kHz sine with peak {@code amplitude}. */
+
+
+    /** 16-bit stereo PCM WAV of {@code seconds} of silence. */
+
 }
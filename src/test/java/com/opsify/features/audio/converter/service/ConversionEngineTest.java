@@ -0,0 +1,127 @@
+package com.opsify.features.audio.converter.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConversionEngineTest {
+
+    @Test
+    void testJob_neverExceedsParallelism() throws InterruptedException {
+        ConversionEngine engine = new ConversionEngine(2, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+
+        ConversionEngine.Job job = engine.newJob("test");
+        for (int i = 0; i < 20; i++) {
+            job.submit(() -> {
+                int now = running.incrementAndGet();
+                maxRunning.accumulateAndGet(now, Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                completed.incrementAndGet();
+            });
+        }
+        job.awaitCompletion();
+
+        assertThat(completed.get()).isEqualTo(20);
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+        engine.shutdown();
+    }
+
+    @Test
+    void testJob_failingTaskDoesNotBlockCompletion() throws InterruptedException {
+        ConversionEngine engine = new ConversionEngine(1, 1);
+        AtomicInteger completed = new AtomicInteger();
+
+        ConversionEngine.Job job = engine.newJob("test");
+        job.submit(() -> { throw new IllegalStateException("boom"); });
+        job.submit(completed::incrementAndGet);
+        job.awaitCompletion();
+
+        assertThat(completed.get()).isEqualTo(1);
+        engine.shutdown();
+    }
+
+    @Test
+    void testWorkerThreadsAreNamedAndDaemon() throws InterruptedException {
+        ConversionEngine engine = new ConversionEngine(1, 1);
+        Thread[] worker = new Thread[1];
+
+        ConversionEngine.Job job = engine.newJob("test");
+        job.submit(() -> worker[0] = Thread.currentThread());
+        job.awaitCompletion();
+
+        assertThat(worker[0].getName()).startsWith("audio-convert-");
+        assertThat(worker[0].isDaemon()).isTrue();
+        engine.shutdown();
+    }
+
+    @Test
+    void testTryExecute_declinesWhenSaturated() throws InterruptedException {
+        ConversionEngine engine = new ConversionEngine(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(2);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ran.countDown();
+        };
+
+        assertThat(engine.tryExecute(blocked)).isTrue();
+        assertThat(engine.tryExecute(blocked)).isTrue();
+        assertThat(engine.tryExecute(() -> {})).isFalse();
+
+        release.countDown();
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        engine.shutdown();
+    }
+
+    @Test
+    void testSetActiveWorkers_limitsConcurrencyAndClamps() throws InterruptedException {
+        ConversionEngine engine = new ConversionEngine(4, 4);
+        engine.setActiveWorkers(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        ConversionEngine.Job job = engine.newJob("test");
+        for (int i = 0; i < 8; i++) {
+            job.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            });
+        }
+        job.awaitCompletion();
+
+        assertThat(maxRunning.get()).isEqualTo(1);
+        engine.setActiveWorkers(10);
+        assertThat(engine.getActiveWorkers()).isEqualTo(4);
+        engine.setActiveWorkers(0);
+        assertThat(engine.getActiveWorkers()).isEqualTo(1);
+        engine.shutdown();
+    }
+
+    @Test
+    void testConstructor_rejectsInvalidSizes() {
+        assertThatThrownBy(() -> new ConversionEngine(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ConversionEngine(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,39 @@
+package com.opsify.features.audio.converter.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversionManifestTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testClose_skipsPathsThatWouldBreakTheirLine() throws IOException {
+        Path out = Files.createDirectories(tempDir.resolve("out"));
+        Path plain = Files.writeString(tempDir.resolve("a.wav"), "audio");
+        Path newline = Files.writeString(tempDir.resolve("b.wav\nx"), "audio");
+        Path tab = Files.writeString(tempDir.resolve("c\td.wav"), "audio");
+        try (ConversionManifest manifest = ConversionManifest.open(out)) {
+            for (Path source : new Path[]{plain, newline, tab}) {
+                Path output = Files.writeString(out.resolve(source.getFileName() + ".flac"), "flac");
+                manifest.record(source, ConversionManifest.fingerprint(source, false), output, "flac");
+            }
+        }
+
+        assertThat(Files.readAllLines(out.resolve(ConversionManifest.FILE_NAME)))
+                .hasSize(2)
+                .allMatch(line -> line.startsWith("#") || line.split("\t", -1).length == 7);
+        try (ConversionManifest manifest = ConversionManifest.open(out)) {
+            assertThat(manifest.findUpToDate(plain, "flac", false)).isEqualTo(out.resolve("a.wav.flac"));
+            assertThat(manifest.previousOutput(newline)).isNull();
+            assertThat(manifest.previousOutput(tab)).isNull();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.opsify.features.audio.converter.service;
+
+import com.opsify.features.audio.converter.service.ConversionReport.Entry;
+import com.opsify.features.audio.converter.service.ConversionReport.Summary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversionReportTest {
+
+    @Test
+    void testPercentile_nearestRank() {
+        long[] sorted = {10, 20, 30, 40, 50, 60, 70, 80, 90, 100};
+
+        assertThat(ConversionReport.percentile(sorted, 50)).isEqualTo(50);
+        assertThat(ConversionReport.percentile(sorted, 90)).isEqualTo(90);
+        assertThat(ConversionReport.percentile(sorted, 99)).isEqualTo(100);
+        assertThat(ConversionReport.percentile(new long[0], 50)).isZero();
+    }
+
+    @Test
+    void testSummarize_groupsConvertedOutputsByCodec(@TempDir Path tempDir) {
+        ConversionReport report = new ConversionReport(tempDir, ConversionReport.Format.CSV);
+        report.add(entry("a.flac", "converted", "flac", 60_000_000, 2_000_000));
+        report.add(entry("b.flac", "converted", "flac", 120_000_000, 4_000_000));
+        report.add(entry("c.mp3", "converted", "mp3", 30_000_000, 10_000_000));
+        report.add(entry("d.mp3", "failed", "mp3", 0, 1_000_000));
+
+        List<Summary> summaries = report.summarize();
+
+        assertThat(summaries).extracting(Summary::key).containsExactly("all", "mp3", "flac");
+        Summary all = summaries.get(0);
+        assertThat(all.files()).isEqualTo(3);
+        assertThat(all.audioSeconds()).isEqualTo(210.0);
+        assertThat(all.busySeconds()).isEqualTo(16.0);
+        assertThat(all.p50Millis()).isEqualTo(4000);
+        assertThat(all.maxMillis()).isEqualTo(10_000);
+        assertThat(summaries.get(2).realtimeFactor()).isEqualTo(30.0);
+    }
+
+    @Test
+    void testWrite_csvQuotesFieldsAndAddsSummary(@TempDir Path tempDir) throws IOException {
+        ConversionReport report = new ConversionReport(tempDir, ConversionReport.Format.CSV);
+        report.add(entry("a, b.flac", "converted", "flac", 60_000_000, 2_000_000));
+
+        Path file = report.write();
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(file.getFileName().toString()).isEqualTo("opsify-report.csv");
+        assertThat(lines.get(0)).startsWith("input,output,status,mode,codec,sample_rate,duration_s");
+        assertThat(lines.get(1)).startsWith("\"a, b.flac\",out.mp3,converted,encode,flac,44100,60.000,")
+                .endsWith(",2000.0,30.00,,,");
+        assertThat(Files.readAllLines(tempDir.resolve("opsify-report-summary.csv")))
+                .contains("all,1,60.00,2.00,0.00,1.50,0.50,2000,2000,2000,2000,30.00");
+    }
+
+    @Test
+    void testWrite_jsonHoldsFilesAndSummary(@TempDir Path tempDir) throws IOException {
+        ConversionReport report = new ConversionReport(tempDir, ConversionReport.Format.JSON);
+        report.add(entry("say \"hi\".flac", "converted", "flac", 60_000_000, 2_000_000));
+
+        String json = Files.readString(report.write());
+
+        assertThat(json).startsWith("{\n  \"files\": [")
+                .contains("\"input\": \"say \\\"hi\\\".flac\"", "\"realtime\": 30.00", "\"loudness_lufs\": null",
+                        "\"codec\": \"all\"");
+    }
+
+    @Test
+    void testWrite_csvHoldsMeasuredLoudness(@TempDir Path tempDir) throws IOException {
+        ConversionReport report = new ConversionReport(tempDir, ConversionReport.Format.CSV);
+        report.add(new Entry(Path.of("a.flac"), Path.of("a.mp3"), "converted", "encode", "flac", 44100, 60_000_000,
+                1000, 500, 0, 1_500_000, 500_000, 2_000_000, -14.237, 0.98765432, null));
+
+        List<String> lines = Files.readAllLines(report.write());
+
+        assertThat(lines.get(0)).endsWith(",realtime,loudness_lufs,peak,error");
+        assertThat(lines.get(1)).endsWith(",30.00,-14.24,0.987654,");
+    }
+
+    private static Entry entry(String input, String status, String codec, long durationMicros, long totalMicros) {
+        return new Entry(Path.of(input), Path.of("out.mp3"), status, "encode", codec, 44100, durationMicros,
+                1000, 500, 0, totalMicros * 3 / 4, totalMicros / 4, totalMicros, Double.NaN, Double.NaN, null);
+    }
+}
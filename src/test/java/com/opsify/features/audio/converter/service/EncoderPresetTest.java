@@ -0,0 +1,116 @@
+package com.opsify.features.audio.converter.service;
+
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_ID_VORBIS;
+
+class EncoderPresetTest {
+
+    private static final Path OUT = Path.of("unused");
+
+    @Test
+    void testConfigure_mp3() {
+        assertConfigured(EncoderPreset.FAST, "mp3", 128000, -1, Map.of("compression_level", "7"));
+        assertConfigured(EncoderPreset.BALANCED, "mp3", 192000, -1, Map.of());
+        // VBR -V 0, so the bitrate is not used
+        assertConfigured(EncoderPreset.ARCHIVAL, "mp3", defaults().getAudioBitrate(), 0, Map.of("compression_level", "0"));
+    }
+
+    @Test
+    void testConfigure_aac() {
+        for (String ext : new String[]{"aac", "m4a", "m4b"}) {
+            assertConfigured(EncoderPreset.FAST, ext, 128000, -1, Map.of("profile", "aac_low", "aac_coder", "fast"));
+            assertConfigured(EncoderPreset.BALANCED, ext, 192000, -1, Map.of("profile", "aac_low"));
+            assertConfigured(EncoderPreset.ARCHIVAL, ext, 256000, -1, Map.of("profile", "aac_low"));
+        }
+    }
+
+    @Test
+    void testConfigure_vorbisSetsQualityOnly() {
+        int bitrate = defaults().getAudioBitrate();
+        for (String ext : new String[]{"ogg", "oga"}) {
+            assertConfigured(EncoderPreset.FAST, ext, bitrate, 4, Map.of());
+            assertConfigured(EncoderPreset.BALANCED, ext, bitrate, -1, Map.of());
+            assertConfigured(EncoderPreset.ARCHIVAL, ext, bitrate, 10, Map.of());
+        }
+    }
+
+    @Test
+    void testConfigure_opus() {
+        assertConfigured(EncoderPreset.FAST, "opus", 96000, -1, Map.of("compression_level", "3"));
+        assertConfigured(EncoderPreset.BALANCED, "opus", 192000, -1, Map.of());
+        assertConfigured(EncoderPreset.ARCHIVAL, "opus", 256000, -1, Map.of());
+    }
+
+    @Test
+    void testConfigure_losslessOnlyChangesEffort() {
+        int bitrate = defaults().getAudioBitrate();
+        assertConfigured(EncoderPreset.FAST, "flac", bitrate, -1, Map.of("compression_level", "0"));
+        assertConfigured(EncoderPreset.BALANCED, "flac", bitrate, -1, Map.of());
+        assertConfigured(EncoderPreset.ARCHIVAL, "flac", bitrate, -1, Map.of("compression_level", "8"));
+        for (EncoderPreset preset : EncoderPreset.values()) {
+            assertConfigured(preset, "WAV", bitrate, -1, Map.of());
+        }
+    }
+
+    @Test
+    void testConfigure_otherFormatsOnlyGetABitrate() {
+        assertConfigured(EncoderPreset.FAST, "wma", 128000, -1, Map.of());
+        assertConfigured(EncoderPreset.BALANCED, "wma", 192000, -1, Map.of());
+        assertConfigured(EncoderPreset.ARCHIVAL, "wma", 256000, -1, Map.of());
+    }
+
+    @Test
+    void testConfigure_vorbisQualityChangesTheOutput(@TempDir Path tempDir) throws Exception {
+        long fast = encodeNoise(tempDir, EncoderPreset.FAST);
+        long balanced = encodeNoise(tempDir, EncoderPreset.BALANCED);
+        long archival = encodeNoise(tempDir, EncoderPreset.ARCHIVAL);
+
+        assertThat(fast).isLessThan(balanced);
+        assertThat(balanced).isLessThan(archival);
+    }
+
+    private static void assertConfigured(EncoderPreset preset, String ext, int bitrate, double quality,
+                                         Map<String, String> options) {
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(OUT.toFile(), 2);
+        preset.configure(recorder, ext);
+
+        String what = preset + " " + ext;
+        assertThat(recorder.getAudioBitrate()).as(what).isEqualTo(bitrate);
+        assertThat(recorder.getAudioQuality()).as(what).isEqualTo(quality);
+        assertThat(recorder.getAudioOptions()).as(what).containsExactlyInAnyOrderEntriesOf(options);
+    }
+
+    private static FFmpegFrameRecorder defaults() {
+        return new FFmpegFrameRecorder(OUT.toFile(), 2);
+    }
+
+    /** Size of two seconds of stereo white noise encoded to Ogg Vorbis with {@code preset}. */
+    private static long encodeNoise(Path dir, EncoderPreset preset) throws Exception {
+        Path file = dir.resolve(preset.name() + ".ogg");
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(file.toFile(), 2);
+        recorder.setFormat("ogg");
+        recorder.setAudioCodec(AV_CODEC_ID_VORBIS);
+        recorder.setSampleRate(44100);
+        preset.configure(recorder, "ogg");
+        recorder.start();
+        Random random = new Random(42);
+        short[] chunk = new short[2 * 4410];
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < chunk.length; j++) chunk[j] = (short) (random.nextGaussian() * 4000);
+            recorder.recordSamples(44100, 2, ShortBuffer.wrap(chunk));
+        }
+        recorder.stop();
+        recorder.release();
+        return Files.size(file);
+    }
+}
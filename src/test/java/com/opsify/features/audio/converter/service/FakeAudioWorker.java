@@ -0,0 +1,45 @@
+package com.opsify.features.audio.converter.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Stand-in for {@link AudioWorkerProcess} in {@link ProcessWorkerPoolTest}: writes "converted" to each output,
+ * dies natively-style on inputs named "crash*" after a partial write (of a track, for a directory output), and
+ * waits for CANCEL on "slow*".
+ */
+public final class FakeAudioWorker {
+    private FakeAudioWorker() {}
+
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        System.out.println(WorkerProtocol.READY);
+        String line;
+        while ((line = in.readLine()) != null) {
+            List<String> request = WorkerProtocol.fields(line);
+            if (!request.get(0).equals(WorkerProtocol.CONVERT)) continue;
+            String name = Path.of(request.get(2)).getFileName().toString();
+            Path output = Path.of(request.get(4));
+            if (name.startsWith("crash")) {
+                // A split image's output is its track directory, reserved before the worker starts
+                Files.writeString(Files.isDirectory(output) ? output.resolve("01 - Intro.flac") : output, "partial");
+                Runtime.getRuntime().halt(134);
+            }
+            if (name.startsWith("slow")) {
+                while ((line = in.readLine()) != null && !line.equals(WorkerProtocol.CANCEL)) {
+                    // waiting
+                }
+                System.out.println(WorkerProtocol.line(WorkerProtocol.CANCELLED, request.get(1)));
+                continue;
+            }
+            Files.writeString(output, "converted");
+            System.out.println(WorkerProtocol.line(WorkerProtocol.RESULT, request.get(1),
+                    "encode", "flac", 44100, 1_000_000, 1000, 2000, 3000, Double.NaN, Double.NaN));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.opsify.features.audio.converter.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LoudnessMeterTest {
+
+    private static final int RATE = 48000;
+    /** Peak amplitude of a -23 dBFS sine. */
+    private static final double MINUS_23_DBFS = Math.pow(10, -23 / 20.0);
+
+    @Test
+    void testIntegratedLufs_stereoSineAtMinus23DbfsReadsMinus23() {
+        // EBU Tech 3341, test 1
+        LoudnessMeter meter = new LoudnessMeter();
+        addInterleaved(meter, sine(MINUS_23_DBFS, 20 * RATE), 2);
+
+        assertThat(meter.integratedLufs()).isCloseTo(-23.0, within(0.1));
+        assertThat(LoudnessMeter.replayGain(meter.integratedLufs())).isCloseTo(5.0, within(0.1));
+        assertThat(meter.peak()).isCloseTo(MINUS_23_DBFS, within(1e-4));
+    }
+
+    @Test
+    void testIntegratedLufs_gatesOutSilence() {
+        LoudnessMeter meter = new LoudnessMeter();
+        addInterleaved(meter, sine(MINUS_23_DBFS, 10 * RATE), 2);
+        addInterleaved(meter, new float[10 * RATE], 2);
+
+        assertThat(meter.integratedLufs()).isCloseTo(-23.0, within(0.1));
+    }
+
+    @Test
+    void testIntegratedLufs_silenceIsUnknown() {
+        LoudnessMeter meter = new LoudnessMeter();
+        addInterleaved(meter, new float[5 * RATE], 2);
+
+        assertThat(meter.integratedLufs()).isNaN();
+        assertThat(meter.peak()).isZero();
+    }
+
+    @Test
+    void testAdd_planarShortsMeasureLikeInterleavedFloats() {
+        float[] tone = sine(MINUS_23_DBFS, 5 * RATE);
+        short[] pcm = new short[tone.length];
+        for (int i = 0; i < tone.length; i++) pcm[i] = (short) Math.round(tone[i] * 32767);
+        LoudnessMeter interleaved = new LoudnessMeter();
+        addInterleaved(interleaved, tone, 2);
+        LoudnessMeter planar = new LoudnessMeter();
+        for (int from = 0; from < pcm.length; from += 1024) {
+            int n = Math.min(1024, pcm.length - from);
+            planar.add(new Buffer[]{ShortBuffer.wrap(pcm, from, n), ShortBuffer.wrap(pcm, from, n)}, 2, RATE);
+        }
+
+        assertThat(planar.integratedLufs()).isCloseTo(interleaved.integratedLufs(), within(0.01));
+    }
+
+    @Test
+    void testIntegratedLufs_albumWeighsTracksByLength() {
+        LoudnessMeter loud = new LoudnessMeter();
+        addInterleaved(loud, sine(MINUS_23_DBFS * 2, 10 * RATE), 2);
+        LoudnessMeter quiet = new LoudnessMeter();
+        addInterleaved(quiet, sine(MINUS_23_DBFS, 10 * RATE), 2);
+
+        double album = LoudnessMeter.integratedLufs(List.of(loud, quiet));
+
+        // Equal lengths: the mean energy of -17 and -23 LUFS
+        assertThat(album).isCloseTo(-23 + 10 * Math.log10(2.5), within(0.1));
+    }
+
+    /** 1 kHz sine of {@code samples} samples at 48 kHz. */
+    private static float[] sine(double amplitude, int samples) {
+        float[] tone = new float[samples];
+        for (int i = 0; i < samples; i++) tone[i] = (float) (amplitude * Math.sin(2 * Math.PI * 1000 * i / RATE));
+        return tone;
+    }
+
+    /** Feeds {@code mono} to every channel in 1024-sample interleaved frames. */
+    private static void addInterleaved(LoudnessMeter meter, float[] mono, int channels) {
+        for (int from = 0; from < mono.length; from += 1024) {
+            int n = Math.min(1024, mono.length - from);
+            float[] frame = new float[n * channels];
+            for (int i = 0; i < n; i++) {
+                for (int c = 0; c < channels; c++) frame[i * channels + c] = mono[from + i];
+            }
+            meter.add(new Buffer[]{FloatBuffer.wrap(frame)}, channels, RATE);
+        }
+    }
+}
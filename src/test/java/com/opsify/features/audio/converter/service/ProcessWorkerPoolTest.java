@@ -0,0 +1,99 @@
+package com.opsify.features.audio.converter.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProcessWorkerPoolTest {
+
+    @Test
+    void testTranscode_crashedWorkerFailsOnlyItsFileAndIsReplaced(@TempDir Path tempDir) throws IOException {
+        ConversionJob job = new ConversionJob("test");
+        try (ProcessWorkerPool pool = new ProcessWorkerPool(1, fakeWorker())) {
+            FileStats first = new FileStats();
+            assertThat(pool.transcodeToAll(tempDir.resolve("a.wav"), Map.of(tempDir.resolve("a.flac"), "flac"),
+                    ConversionOptions.defaults(), job, first)).isEmpty();
+
+            assertThatThrownBy(() -> pool.transcodeToAll(tempDir.resolve("crash.wav"),
+                    Map.of(tempDir.resolve("crash.flac"), "flac"), ConversionOptions.defaults(), job, new FileStats()))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("crashed")
+                    .hasMessageContaining("134");
+
+            assertThat(pool.transcodeToAll(tempDir.resolve("b.wav"), Map.of(tempDir.resolve("b.flac"), "flac"),
+                    ConversionOptions.defaults(), job, new FileStats())).isEmpty();
+            assertThat(first.codec).isEqualTo("flac");
+            assertThat(first.durationMicros).isEqualTo(1_000_000);
+            assertThat(first.writeNanos).isEqualTo(3000);
+        }
+        assertThat(tempDir.resolve("a.flac")).hasContent("converted");
+        assertThat(tempDir.resolve("crash.flac")).doesNotExist();
+        assertThat(tempDir.resolve("b.flac")).hasContent("converted");
+    }
+
+    @Test
+    void testTranscode_crashOnASplitImageDeletesItsTrackDirectory(@TempDir Path tempDir) throws IOException {
+        Path tracks = Files.createDirectory(tempDir.resolve("crash"));
+
+        try (ProcessWorkerPool pool = new ProcessWorkerPool(1, fakeWorker())) {
+            assertThatThrownBy(() -> pool.transcodeToAll(tempDir.resolve("crash.wav"), Map.of(tracks, "flac"),
+                    ConversionOptions.defaults(), new ConversionJob("test"), new FileStats()))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("crashed");
+        }
+
+        // No half-written track is left to pass for finished output
+        assertThat(tracks).doesNotExist();
+    }
+
+    @Test
+    void testTranscode_cancelIsPassedToTheWorker(@TempDir Path tempDir) throws Exception {
+        ConversionJob job = new ConversionJob("test");
+        try (ProcessWorkerPool pool = new ProcessWorkerPool(1, fakeWorker())) {
+            CompletableFuture<Map<Path, IOException>> running = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pool.transcodeToAll(tempDir.resolve("slow.wav"), Map.of(tempDir.resolve("slow.flac"), "flac"),
+                            ConversionOptions.defaults(), job, new FileStats());
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(300);
+            job.cancel();
+
+            assertThatThrownBy(() -> running.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(CancellationException.class);
+        }
+    }
+
+    @Test
+    void testTranscode_convertsInAChildJvm(@TempDir Path tempDir) throws IOException {
+        Path wav = tempDir.resolve("tone.wav");
+        Files.write(wav, TestAudio.silentWav(44100, 1));
+        Path flac = tempDir.resolve("tone.flac");
+
+        try (ProcessWorkerPool pool = new ProcessWorkerPool(1)) {
+            FileStats stats = new FileStats();
+            assertThat(pool.transcodeToAll(wav, Map.of(flac, "flac"), ConversionOptions.defaults(),
+                    new ConversionJob("test"), stats)).isEmpty();
+            assertThat(stats.mode).isEqualTo("encode");
+            assertThat(stats.durationMicros).isEqualTo(1_000_000);
+        }
+        assertThat(new String(Files.readAllBytes(flac), 0, 4, StandardCharsets.US_ASCII)).isEqualTo("fLaC");
+    }
+
+    private static List<String> fakeWorker() {
+        return ProcessWorkerPool.defaultCommand(FakeAudioWorker.class.getName());
+    }
+}
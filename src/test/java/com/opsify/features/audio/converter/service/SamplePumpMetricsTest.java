@@ -0,0 +1,76 @@
+package com.opsify.features.audio.converter.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SamplePumpMetricsTest {
+
+    @Test
+    void testSince_countsOnlyWhatHappenedAfterTheStart() {
+        SamplePumpMetrics metrics = new SamplePumpMetrics();
+        metrics.record(10, 5_000);
+        SamplePumpMetrics.Snapshot start = metrics.snapshot();
+
+        metrics.record(100, 40_000);
+        metrics.record(300, 60_000);
+        SamplePumpMetrics.Snapshot job = metrics.snapshot().since(start);
+
+        assertThat(job.files()).isEqualTo(2);
+        assertThat(job.frames()).isEqualTo(400);
+        assertThat(job.allocatedBytes()).isEqualTo(100_000);
+        assertThat(job.allocatedBytesPerFrame()).isEqualTo(250);
+        assertThat(job.gcCount()).isNotNegative();
+        assertThat(job.gcMillis()).isNotNegative();
+    }
+
+    @Test
+    void testSince_noFramesMeansNoAllocationPerFrame() {
+        SamplePumpMetrics metrics = new SamplePumpMetrics();
+        SamplePumpMetrics.Snapshot start = metrics.snapshot();
+
+        SamplePumpMetrics.Snapshot job = metrics.snapshot().since(start);
+
+        assertThat(job.frames()).isZero();
+        assertThat(job.allocatedBytesPerFrame()).isZero();
+        assertThat(job.toString()).startsWith("0 files, 0 frames, 0.0 MB allocated (0 B/frame)");
+    }
+
+    @Test
+    void testDecoded_addsUpAudioTimeAcrossRates() {
+        SamplePumpMetrics metrics = new SamplePumpMetrics();
+
+        metrics.decoded(44100, 44100);
+        metrics.decoded(24000, 48000);
+        metrics.decoded(1000, 0); // unknown rate: not counted
+        metrics.decodedElsewhere(250_000);
+
+        assertThat(metrics.decodedAudioMicros()).isEqualTo(1_750_000);
+    }
+
+    @Test
+    void testFirstFrame_keepsTheEarliestTime() throws InterruptedException {
+        SamplePumpMetrics metrics = new SamplePumpMetrics();
+        assertThat(metrics.firstFrameNanos()).isZero();
+
+        metrics.firstFrame();
+        long first = metrics.firstFrameNanos();
+        Thread.sleep(2);
+        metrics.firstFrame();
+
+        assertThat(first).isNotZero();
+        assertThat(metrics.firstFrameNanos()).isEqualTo(first);
+    }
+
+    @Test
+    void testCurrentThreadAllocatedBytes_growsWithAllocation() {
+        SamplePumpMetrics metrics = new SamplePumpMetrics();
+        long before = metrics.currentThreadAllocatedBytes();
+
+        byte[][] garbage = new byte[16][];
+        for (int i = 0; i < garbage.length; i++) garbage[i] = new byte[64 * 1024];
+
+        assertThat(garbage[15]).hasSize(64 * 1024);
+        assertThat(metrics.currentThreadAllocatedBytes() - before).isGreaterThanOrEqualTo(16 * 64 * 1024);
+    }
+}
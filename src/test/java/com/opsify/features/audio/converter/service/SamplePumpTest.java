@@ -0,0 +1,160 @@
+package com.opsify.features.audio.converter.service;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_ID_PCM_S16LE;
+
+class SamplePumpTest {
+
+    @Test
+    void testCopyOf_reusesBuffersOnceLargeEnough() {
+        SamplePump.PooledBuffers pool = new SamplePump.PooledBuffers();
+        Buffer[] first = pool.copyOf(new Buffer[]{FloatBuffer.wrap(new float[1024])});
+        Buffer plane = first[0];
+
+        Buffer[] second = pool.copyOf(new Buffer[]{FloatBuffer.wrap(new float[2048])});
+
+        assertThat(second).isSameAs(first);
+        assertThat(second[0]).isSameAs(plane);
+        assertThat(plane.hasArray()).isTrue();
+        assertThat(plane.remaining()).isEqualTo(2048);
+    }
+
+    @Test
+    void testCopyOf_growsWithHeadroomAndOnTypeChange() {
+        SamplePump.PooledBuffers pool = new SamplePump.PooledBuffers();
+        Buffer small = pool.copyOf(new Buffer[]{FloatBuffer.wrap(new float[100])})[0];
+        assertThat(small.capacity()).isEqualTo(8192);
+
+        Buffer large = pool.copyOf(new Buffer[]{FloatBuffer.wrap(new float[10_000])})[0];
+        assertThat(large).isNotSameAs(small);
+        assertThat(large.capacity()).isEqualTo(15_000);
+        assertThat(pool.copyOf(new Buffer[]{FloatBuffer.wrap(new float[14_000])})[0]).isSameAs(large);
+
+        // A source in another sample format gets a buffer of its own type
+        assertThat(pool.copyOf(new Buffer[]{ShortBuffer.wrap(new short[100])})[0]).isInstanceOf(ShortBuffer.class);
+        // As does a planar source with more planes
+        assertThat(pool.copyOf(new Buffer[]{ShortBuffer.wrap(new short[10]), ShortBuffer.wrap(new short[10])})).hasSize(2);
+    }
+
+    @Test
+    void testCopyOf_copiesTheRemainingSamplesAndRestoresTheSourcePosition() {
+        FloatBuffer source = FloatBuffer.wrap(new float[]{1, 2, 3, 4, 5, 6});
+        source.position(2).limit(5);
+
+        FloatBuffer copy = (FloatBuffer) new SamplePump.PooledBuffers().copyOf(new Buffer[]{source})[0];
+
+        assertThat(copy.position()).isZero();
+        assertThat(copy.remaining()).isEqualTo(3);
+        assertThat(new float[]{copy.get(0), copy.get(1), copy.get(2)}).containsExactly(3, 4, 5);
+        assertThat(source.position()).isEqualTo(2);
+        assertThat(source.limit()).isEqualTo(5);
+    }
+
+    @Test
+    void testCopyOf_allocatesNothingOnceWarm() {
+        SamplePump.PooledBuffers pool = new SamplePump.PooledBuffers();
+        Buffer[] frame = {FloatBuffer.wrap(new float[4096]), FloatBuffer.wrap(new float[4096])};
+        for (int i = 0; i < 1000; i++) pool.copyOf(frame);
+
+        long before = allocatedBytes();
+        for (int i = 0; i < 1000; i++) pool.copyOf(frame);
+        long allocated = allocatedBytes() - before;
+
+        // Fresh buffers would be 32 KB per frame, 32 MB in all
+        assertThat(allocated).isLessThan(64 * 1024);
+    }
+
+    @Test
+    void testSampleCount_interleavedAndPlanar() {
+        Frame interleaved = frame(2, ShortBuffer.allocate(2048));
+        Frame planar = frame(2, FloatBuffer.allocate(1024), FloatBuffer.allocate(1024));
+        Frame mono = frame(1, FloatBuffer.allocate(1024));
+
+        assertThat(SamplePump.sampleCount(interleaved)).isEqualTo(1024);
+        assertThat(SamplePump.sampleCount(planar)).isEqualTo(1024);
+        assertThat(SamplePump.sampleCount(mono)).isEqualTo(1024);
+        // Counts what is left after the position
+        interleaved.samples[0].position(48);
+        assertThat(SamplePump.sampleCount(interleaved)).isEqualTo(1000);
+    }
+
+    @Test
+    void testSlice_interleavedTakesWholeSamplesAndPlanarEachPlane() {
+        ShortBuffer interleaved = ShortBuffer.wrap(new short[]{0, 0, 1, 1, 2, 2, 3, 3, 4, 4});
+        interleaved.position(2); // slice offsets count from the position
+
+        // Samples 1 and 2 of a stereo interleaved frame are elements 2..5 past the position
+        ShortBuffer slice = (ShortBuffer) SamplePump.slice(new Buffer[]{interleaved}, 2, 6)[0];
+        assertThat(new short[]{slice.get(), slice.get(), slice.get(), slice.get()}).containsExactly(2, 2, 3, 3);
+        assertThat(slice.hasRemaining()).isFalse();
+        assertThat(interleaved.position()).isEqualTo(2);
+
+        FloatBuffer left = FloatBuffer.wrap(new float[]{0, 1, 2, 3});
+        FloatBuffer right = FloatBuffer.wrap(new float[]{10, 11, 12, 13});
+        Buffer[] planes = SamplePump.slice(new Buffer[]{left, right}, 1, 3);
+        assertThat(planes).hasSize(2);
+        assertThat(((FloatBuffer) planes[0]).get(planes[0].position())).isEqualTo(1);
+        assertThat(((FloatBuffer) planes[1]).get(planes[1].position())).isEqualTo(11);
+        assertThat(planes[1].remaining()).isEqualTo(2);
+    }
+
+    @Test
+    void testPump_recordsFramesAndAllocatesLessThanTheAudioPerFrame(@TempDir Path tempDir) throws Exception {
+        Path input = tempDir.resolve("in.wav");
+        int seconds = 20;
+        Files.write(input, TestAudio.silentWav(44100, seconds));
+        SamplePumpMetrics metrics = new SamplePumpMetrics();
+        SamplePumpMetrics.Snapshot start = metrics.snapshot();
+        long frames;
+
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(input.toFile())) {
+            SamplePump.prepare(grabber);
+            grabber.start();
+            FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(tempDir.resolve("out.wav").toFile(), 2);
+            recorder.setFormat("wav");
+            recorder.setAudioCodec(AV_CODEC_ID_PCM_S16LE);
+            recorder.setSampleRate(44100);
+            recorder.start();
+            frames = SamplePump.pump(grabber, recorder, metrics, new ConversionJob("pump"), null);
+            recorder.stop();
+            recorder.release();
+            grabber.stop();
+        }
+
+        SamplePumpMetrics.Snapshot run = metrics.snapshot().since(start);
+        assertThat(run.files()).isEqualTo(1);
+        assertThat(run.frames()).isEqualTo(frames).isPositive();
+        assertThat(metrics.decodedAudioMicros()).isCloseTo(seconds * 1_000_000L, within(1_000L));
+        // Samples are copied into pooled buffers, so the loop allocates far less than the audio it moves
+        long audioBytesPerFrame = 44100L * 4 * seconds / frames;
+        assertThat(run.allocatedBytesPerFrame()).isLessThan(audioBytesPerFrame / 4);
+    }
+
+    private static Frame frame(int channels, Buffer... planes) {
+        Frame frame = new Frame();
+        frame.audioChannels = channels;
+        frame.samples = planes;
+        return frame;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    /** 16-bit stereo PCM WAV of {@code seconds} of silence. */
+
+}
@@ -0,0 +1,320 @@
+package com.opsify.features.audio.converter.service;
+
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.bytedeco.ffmpeg.global.avcodec.*;
+
+class SegmentedEncoderTest {
+
+    private static final int RATE = 48000;
+    private static final int SECONDS = 12;
+    private static final long LENGTH_MICROS = SECONDS * 1_000_000L;
+    private static final int SEGMENTS = 3;
+
+    @Test
+    void testEncode_wavJoinsSampleExactly(@TempDir Path tempDir) throws Exception {
+        float[][] decoded = encodeBothWays(tempDir, "wav");
+
+        assertThat(decoded[1]).hasSize(SECONDS * RATE).isEqualTo(decoded[0]).isEqualTo(decoded[2]);
+    }
+
+    @Test
+    void testEncode_flacJoinsSampleExactly(@TempDir Path tempDir) throws Exception {
+        float[][] decoded = encodeBothWays(tempDir, "flac");
+
+        assertThat(decoded[1]).hasSize(SECONDS * RATE).isEqualTo(decoded[0]).isEqualTo(decoded[2]);
+        // The rewritten STREAMINFO carries the stitched total
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(tempDir.resolve("segmented.flac").toFile())) {
+            grabber.start();
+            assertThat(grabber.getLengthInTime()).isEqualTo(LENGTH_MICROS);
+            grabber.stop();
+        }
+    }
+
+    @Test
+    void testEncode_opusMatchesSinglePassAtEveryJoin(@TempDir Path tempDir) throws Exception {
+        float[][] decoded = encodeBothWays(tempDir, "opus");
+        float[] source = decoded[0];
+        float[] single = decoded[1];
+        float[] segmented = decoded[2];
+
+        // Priming and end trim survive stitching: no samples gained, lost or shifted
+        assertThat(segmented).hasSize(single.length).hasSize(source.length);
+        SegmentedEncoder.Framing framing = SegmentedEncoder.framing("opus", RATE);
+        List<SegmentedEncoder.Segment> plan = SegmentedEncoder.plan(framing, RATE, LENGTH_MICROS, SEGMENTS);
+        double elsewhere = rmsError(segmented, source, RATE, RATE);
+        for (SegmentedEncoder.Segment segment : plan.subList(1, plan.size())) {
+            int join = (int) join(segment, framing);
+            // A dropped, repeated or misaligned frame would be a burst of error around the join
+            double singleError = rmsError(single, source, join - 1024, 2048);
+            double segmentedError = rmsError(segmented, source, join - 1024, 2048);
+            assertThat(segmentedError).isLessThan(1.5 * singleError).isLessThan(1.5 * elsewhere);
+        }
+    }
+
+    @Test
+    void testSupports_exactSourcesIntoJoinableTargetsOnly() {
+        assertThat(SegmentedEncoder.supports(AV_CODEC_ID_PCM_S16LE, "wav", 44100)).isTrue();
+        assertThat(SegmentedEncoder.supports(AV_CODEC_ID_PCM_S24LE, "FLAC", 96000)).isTrue();
+        assertThat(SegmentedEncoder.supports(AV_CODEC_ID_FLAC, "opus", 48000)).isTrue();
+        // LAME segments would need the bit reservoir off
+        assertThat(SegmentedEncoder.supports(AV_CODEC_ID_FLAC, "mp3", 44100)).isFalse();
+        // libopus takes no 44.1 kHz input, so frames would not line up with the source
+        assertThat(SegmentedEncoder.supports(AV_CODEC_ID_FLAC, "opus", 44100)).isFalse();
+        assertThat(SegmentedEncoder.supports(AV_CODEC_ID_FLAC, "aac", 44100)).isFalse();
+        // Seeked positions in compressed streams are estimates
+        assertThat(SegmentedEncoder.supports(AV_CODEC_ID_MP3, "flac", 44100)).isFalse();
+        assertThat(SegmentedEncoder.supports(AV_CODEC_ID_AAC, "wav", 44100)).isFalse();
+        assertThat(SegmentedEncoder.supports(AV_CODEC_ID_ADPCM_IMA_QT, "wav", 44100)).isFalse();
+    }
+
+    @Test
+    void testPlan_losslessSegmentsTileTheInputOnFrameBoundaries() throws IOException {
+        SegmentedEncoder.Framing framing = SegmentedEncoder.framing("flac", RATE);
+        List<SegmentedEncoder.Segment> plan = SegmentedEncoder.plan(framing, RATE, LENGTH_MICROS, SEGMENTS);
+
+        assertThat(plan).hasSize(SEGMENTS);
+        assertThat(plan.get(0).from).isZero();
+        assertThat(plan.get(SEGMENTS - 1).to).isEqualTo(Long.MAX_VALUE);
+        for (int k = 0; k < SEGMENTS; k++) {
+            SegmentedEncoder.Segment segment = plan.get(k);
+            assertThat(segment.from % framing.frameSize()).isZero();
+            assertThat(segment.keepFrom).isZero();
+            assertThat(segment.keepUntil).isEqualTo(Long.MAX_VALUE);
+            if (k > 0) assertThat(plan.get(k - 1).to).isEqualTo(segment.from);
+        }
+    }
+
+    @Test
+    void testPlan_lossySegmentsWarmUpAndKeepContiguousFrames() throws IOException {
+        SegmentedEncoder.Framing framing = SegmentedEncoder.framing("opus", RATE);
+        int frameSize = framing.frameSize();
+        List<SegmentedEncoder.Segment> plan = SegmentedEncoder.plan(framing, RATE, LENGTH_MICROS, SEGMENTS);
+
+        assertThat(plan.get(0).from).isZero();
+        assertThat(plan.get(0).keepFrom).isZero();
+        long keptUntil = -framing.delay();
+        for (SegmentedEncoder.Segment segment : plan) {
+            // Every segment's kept frames start where the previous segment's ended
+            assertThat(join(segment, framing)).isEqualTo(keptUntil);
+            if (segment.index > 0) assertThat(segment.keepFrom).isPositive();
+            if (segment.keepUntil == Long.MAX_VALUE) break;
+            keptUntil = segment.from + segment.keepUntil * frameSize - framing.delay();
+            // The encoder sees past its last kept frame, so that frame is not encoded as a stream end
+            assertThat(segment.to).isGreaterThanOrEqualTo(keptUntil + framing.delay() + frameSize);
+        }
+    }
+
+    @Test
+    void testPlan_rejectsInputTooShortToSplit() {
+        SegmentedEncoder.Framing framing = SegmentedEncoder.framing("opus", RATE);
+
+        assertThatThrownBy(() -> SegmentedEncoder.plan(framing, RATE, 200_000, SEGMENTS))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void testSampleClock_mapsTimestampsToPositionsAndBack() {
+        // The decoder trimmed 47 priming samples from the first frame without shifting later timestamps
+        SegmentedEncoder.SampleClock clock = new SegmentedEncoder.SampleClock(RATE, 0, 47);
+        Frame first = frameAt(0);
+        Frame second = frameAt(24_000); // 1152 samples in
+
+        assertThat(clock.position(first)).isZero();
+        assertThat(clock.position(second)).isEqualTo(1152 - 47);
+        assertThat(clock.micros(clock.position(second))).isEqualTo(24_000);
+
+        // PCM: timestamps are positions
+        SegmentedEncoder.SampleClock pcm = new SegmentedEncoder.SampleClock(44100, 0, 0);
+        assertThat(pcm.position(frameAt(1_000_000))).isEqualTo(44100);
+        assertThat(pcm.micros(44100 * 90)).isEqualTo(90_000_000);
+    }
+
+    @Test
+    void testFlacRenumbered_recomputesBothCrcs(@TempDir Path tempDir) throws Exception {
+        Path input = tempDir.resolve("in.wav");
+        Files.write(input, twoTones(RATE, 2));
+        Path flac = tempDir.resolve("in.flac");
+        encodeSinglePass(input, flac, "flac");
+        List<byte[]> frames = flacFrames(flac);
+        assertThat(frames).hasSizeGreaterThan(2);
+
+        // FFmpeg's own frames come back byte for byte, CRC-8 and CRC-16 included
+        for (int i = 0; i < frames.size(); i++) {
+            assertThat(SegmentedEncoder.FlacFrames.renumbered(frames.get(i), i)).isEqualTo(frames.get(i));
+        }
+        // A number needing more bytes moves the rest of the frame and back again
+        byte[] moved = SegmentedEncoder.FlacFrames.renumbered(frames.get(1), 1000);
+        assertThat(moved).hasSize(frames.get(1).length + 1);
+        assertThat(SegmentedEncoder.FlacFrames.renumbered(moved, 1)).isEqualTo(frames.get(1));
+        assertThatThrownBy(() -> SegmentedEncoder.FlacFrames.renumbered(new byte[]{0x49, 0x44, 0x33, 4, 0, 0}, 0))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void testFlacCodeNumber_isUtf8Style() {
+        for (int value : new int[]{0, 0x7F, 0x80, 0x7FF, 0x800, 0xFFFF, 0x10000, 0x10FFFF}) {
+            byte[] utf8 = new String(Character.toChars(value)).getBytes(StandardCharsets.UTF_8);
+            assertThat(SegmentedEncoder.FlacFrames.codeNumber(value)).as("%x", value).isEqualTo(utf8);
+        }
+        // Sample numbers of variable-block-size streams go up to 36 bits, in seven bytes
+        byte[] largest = SegmentedEncoder.FlacFrames.codeNumber((1L << 36) - 1);
+        assertThat(largest).hasSize(7);
+        assertThat(largest[0] & 0xFF).isEqualTo(0xFE);
+    }
+
+    @Test
+    void testFlacRewriteStreamInfo_setsBlockSizeAndTotalAndClearsTheRest() throws IOException {
+        byte[] raw = new byte[34];
+        Arrays.fill(raw, (byte) 0x5A);
+        SegmentedEncoder.FlacFrames.rewriteStreamInfo(raw, 4608, (1L << 32) + 0x01020304L);
+
+        assertThat(Arrays.copyOfRange(raw, 0, 4)).containsExactly(0x12, 0x00, 0x12, 0x00);
+        assertThat(Arrays.copyOfRange(raw, 4, 10)).containsOnly(0); // min/max frame size unknown
+        assertThat(Arrays.copyOfRange(raw, 10, 13)).containsOnly(0x5A); // rate, channels, bits kept
+        assertThat(raw[13] & 0xFF).isEqualTo(0x51); // bits per sample kept, top four bits of the total
+        assertThat(Arrays.copyOfRange(raw, 14, 18)).containsExactly(1, 2, 3, 4);
+        assertThat(Arrays.copyOfRange(raw, 18, 34)).containsOnly(0); // MD5 unknown
+
+        // Matroska keeps "fLaC" and a block header in front
+        byte[] matroska = new byte[42];
+        System.arraycopy("fLaC".getBytes(StandardCharsets.US_ASCII), 0, matroska, 0, 4);
+        SegmentedEncoder.FlacFrames.rewriteStreamInfo(matroska, 4608, 7);
+        assertThat(Arrays.copyOfRange(matroska, 8, 12)).containsExactly(0x12, 0x00, 0x12, 0x00);
+        assertThat(matroska[25]).isEqualTo((byte) 7);
+
+        assertThatThrownBy(() -> SegmentedEncoder.FlacFrames.rewriteStreamInfo(new byte[20], 4608, 7))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void testSkipSamples_littleEndianStartAndEnd() {
+        assertThat(SegmentedEncoder.skipSamples(312, 0x01020304))
+                .containsExactly(0x38, 0x01, 0, 0, 0x04, 0x03, 0x02, 0x01, 0, 0);
+    }
+
+    /** Source, single-pass and segmented encodes of a 12 s two-tone file, decoded; left channel only. */
+    private static float[][] encodeBothWays(Path tempDir, String ext) throws Exception {
+        Path input = tempDir.resolve("in.wav");
+        Files.write(input, twoTones(RATE, SECONDS));
+        Path single = tempDir.resolve("single." + ext);
+        Path segmented = tempDir.resolve("segmented." + ext);
+        encodeSinglePass(input, single, ext);
+
+        SegmentedEncoder encoder = new SegmentedEncoder(new ConversionEngine(2, 2), new SamplePumpMetrics());
+        FFmpegFrameRecorder output = new FFmpegFrameRecorder(segmented.toFile(), 2);
+        output.setFormat(ext);
+        try {
+            encoder.encode(input, segmented, ext, RATE, 2, LENGTH_MICROS, SEGMENTS,
+                    file -> recorder(file, ext), output, new ConversionJob("segmented"));
+        } finally {
+            output.release();
+        }
+        try (var parts = Files.list(tempDir)) {
+            assertThat(parts).noneMatch(p -> p.getFileName().toString().endsWith(".part"));
+        }
+        return new float[][]{decode(input), decode(single), decode(segmented)};
+    }
+
+    /** Output position of a segment's first kept sample. */
+    private static long join(SegmentedEncoder.Segment segment, SegmentedEncoder.Framing framing) {
+        return segment.from + segment.keepFrom * framing.frameSize() - framing.delay();
+    }
+
+    private static void encodeSinglePass(Path input, Path output, String ext) throws Exception {
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(input.toFile())) {
+            SamplePump.prepare(grabber);
+            grabber.start();
+            FFmpegFrameRecorder recorder = recorder(output, ext);
+            recorder.setFormat(ext);
+            recorder.start();
+            SamplePump.pump(grabber, recorder, new SamplePumpMetrics(), new ConversionJob("single"), null);
+            recorder.stop();
+            recorder.release();
+            grabber.stop();
+        }
+    }
+
+    private static FFmpegFrameRecorder recorder(Path file, String ext) {
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(file.toFile(), 2);
+        recorder.setAudioCodec(switch (ext) {
+            case "wav" -> AV_CODEC_ID_PCM_S16LE;
+            case "flac" -> AV_CODEC_ID_FLAC;
+            default -> AV_CODEC_ID_OPUS;
+        });
+        recorder.setSampleRate(RATE);
+        recorder.setAudioChannels(2);
+        return recorder;
+    }
+
+    private static List<byte[]> flacFrames(Path flac) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(flac.toFile())) {
+            grabber.start();
+            AVPacket packet;
+            while ((packet = grabber.grabPacket()) != null) {
+                byte[] frame = new byte[packet.size()];
+                packet.data().get(frame);
+                frames.add(frame);
+                av_packet_unref(packet);
+            }
+            grabber.stop();
+        }
+        return frames;
+    }
+
+    /** Left channel of {@code file} as floats. */
+    private static float[] decode(Path file) throws IOException {
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(file.toFile())) {
+            grabber.setSampleMode(FrameGrabber.SampleMode.FLOAT);
+            grabber.start();
+            float[] out = new float[RATE * (SECONDS + 2)];
+            int n = 0;
+            Frame frame;
+            while ((frame = grabber.grabSamples()) != null) {
+                FloatBuffer samples = (FloatBuffer) frame.samples[0];
+                for (int i = samples.position(); i < samples.limit(); i += 2) out[n++] = samples.get(i);
+            }
+            grabber.stop();
+            return Arrays.copyOf(out, n);
+        }
+    }
+
+    private static double rmsError(float[] x, float[] reference, int from, int length) {
+        double sum = 0;
+        for (int i = from; i < from + length; i++) {
+            double d = x[i] - reference[i];
+            sum += d * d;
+        }
+        return Math.sqrt(sum / length);
+    }
+
+    private static Frame frameAt(long timestamp) {
+        Frame frame = new Frame();
+        frame.timestamp = timestamp;
+        return frame;
+    }
+
+    /** Two sines, so a lost or repeated frame shows as a phase jump. */
+    private static byte[] twoTones(int sampleRate, int seconds) {
+        return TestAudio.wav(sampleRate, seconds,
+                t -> 0.3 * Math.sin(2 * Math.PI * 440 * t) + 0.2 * Math.sin(2 * Math.PI * 1230 * t));
+    }
+}
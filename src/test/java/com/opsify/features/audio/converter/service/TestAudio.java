@@ -0,0 +1,38 @@
+package com.opsify.features.audio.converter.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.function.DoubleUnaryOperator;
+
+/** 16-bit stereo PCM WAV files built in memory for the converter tests. */
+public final class TestAudio {
+    private TestAudio() {}
+
+    /** {@code seconds} of silence. */
+    public static byte[] silentWav(int sampleRate, int seconds) {
+        return wav(sampleRate, seconds, t -> 0);
+    }
+
+    /** A 1 kHz sine with peak {@code amplitude}. */
+    public static byte[] toneWav(int sampleRate, int seconds, double amplitude) {
+        return wav(sampleRate, seconds, t -> amplitude * Math.sin(2 * Math.PI * 1000 * t));
+    }
+
+    /** Both channels carry {@code signal}, a function of the time in seconds into -1 .. 1. */
+    public static byte[] wav(int sampleRate, int seconds, DoubleUnaryOperator signal) {
+        int samples = sampleRate * seconds;
+        int dataSize = samples * 4;
+        ByteBuffer wav = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + dataSize)
+                .put("WAVEfmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) 2).putInt(sampleRate).putInt(sampleRate * 4)
+                .putShort((short) 4).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(dataSize);
+        for (int i = 0; i < samples; i++) {
+            short sample = (short) Math.round(32767 * signal.applyAsDouble((double) i / sampleRate));
+            wav.putShort(sample).putShort(sample);
+        }
+        return wav.array();
+    }
+}
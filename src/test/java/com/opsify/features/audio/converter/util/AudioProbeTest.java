@@ -0,0 +1,62 @@
+package com.opsify.features.audio.converter.util;
+
+import com.opsify.features.audio.converter.service.TestAudio;
+import com.opsify.features.audio.converter.utils.AudioProbe;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class AudioProbeTest {
+
+    @Test
+    void testAudioStream_readsCodecRateAndDurationFromTheHeader(@TempDir Path tempDir) throws IOException {
+        Path wav = tempDir.resolve("tone.wav");
+        Files.write(wav, TestAudio.silentWav(48000, 3));
+
+        AudioProbe.AudioStream stream = AudioProbe.audioStream(wav);
+
+        assertThat(stream).isNotNull();
+        assertThat(stream.codec()).isEqualTo("pcm_s16le");
+        assertThat(stream.sampleRate()).isEqualTo(48000);
+        assertThat(stream.durationMicros()).isEqualTo(3_000_000);
+    }
+
+    @Test
+    void testAudioStream_nullForAContainerWithoutAudio(@TempDir Path tempDir) throws IOException {
+        Path srt = tempDir.resolve("lyrics.srt");
+        Files.writeString(srt, "1\n00:00:01,000 --> 00:00:02,000\nla la la\n");
+
+        assertThat(AudioProbe.audioStream(srt)).isNull();
+    }
+
+    @Test
+    void testAudioStream_throwsForUnreadableFiles(@TempDir Path tempDir) throws IOException {
+        Path junk = tempDir.resolve("junk.bin");
+        Files.write(junk, new byte[0]);
+
+        assertThatThrownBy(() -> AudioProbe.audioStream(junk)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> AudioProbe.audioStream(tempDir.resolve("missing.wav"))).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void testStreamInfo_readsDurationAndBitRate(@TempDir Path tempDir) throws IOException {
+        Path wav = tempDir.resolve("tone.wav");
+        Files.write(wav, TestAudio.silentWav(44100, 2));
+
+        AudioProbe.StreamInfo info = AudioProbe.streamInfo(wav);
+
+        assertThat(info.durationMicros()).isEqualTo(2_000_000);
+        // The 44 header bytes count towards the overall rate
+        assertThat(info.bitRate()).isCloseTo(44100L * 16 * 2, within(1_000L));
+    }
+
+    /** 16-bit stereo PCM WAV of {@code seconds} of silence. */
+
+}
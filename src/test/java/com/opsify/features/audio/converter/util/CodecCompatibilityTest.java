@@ -0,0 +1,57 @@
+package com.opsify.features.audio.converter.util;
+
+import com.opsify.features.audio.converter.utils.CodecCompatibility;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bytedeco.ffmpeg.global.avcodec.*;
+
+class CodecCompatibilityTest {
+
+    @Test
+    void testCanStreamCopy_matchingCodecs() {
+        assertThat(CodecCompatibility.canStreamCopy("aac", AV_CODEC_ID_AAC)).isTrue();
+        assertThat(CodecCompatibility.canStreamCopy("m4a", AV_CODEC_ID_AAC)).isTrue();
+        assertThat(CodecCompatibility.canStreamCopy("mka", AV_CODEC_ID_FLAC)).isTrue();
+        assertThat(CodecCompatibility.canStreamCopy("opus", AV_CODEC_ID_OPUS)).isTrue();
+        assertThat(CodecCompatibility.canStreamCopy("ogg", AV_CODEC_ID_OPUS)).isTrue();
+        assertThat(CodecCompatibility.canStreamCopy("wav", AV_CODEC_ID_PCM_S16LE)).isTrue();
+    }
+
+    @Test
+    void testCanStreamCopy_isCaseInsensitive() {
+        assertThat(CodecCompatibility.canStreamCopy("MP3", AV_CODEC_ID_MP3)).isTrue();
+    }
+
+    @Test
+    void testCanStreamCopy_incompatibleCodecs() {
+        assertThat(CodecCompatibility.canStreamCopy("mp3", AV_CODEC_ID_AAC)).isFalse();
+        assertThat(CodecCompatibility.canStreamCopy("wav", AV_CODEC_ID_PCM_S16BE)).isFalse();
+        assertThat(CodecCompatibility.canStreamCopy("opus", AV_CODEC_ID_VORBIS)).isFalse();
+    }
+
+    @Test
+    void testCanStreamCopy_unknownInputs() {
+        assertThat(CodecCompatibility.canStreamCopy("xyz", AV_CODEC_ID_MP3)).isFalse();
+        assertThat(CodecCompatibility.canStreamCopy("mp3", AV_CODEC_ID_NONE)).isFalse();
+        assertThat(CodecCompatibility.canStreamCopy(null, AV_CODEC_ID_MP3)).isFalse();
+    }
+
+    @Test
+    void testStreamMuxer_onlyForStreamableTargets() {
+        assertThat(CodecCompatibility.streamMuxer("MP3")).isEqualTo("mp3");
+        assertThat(CodecCompatibility.streamMuxer("aac")).isEqualTo("adts");
+        assertThat(CodecCompatibility.streamMuxer("m4a")).isEqualTo("ipod");
+        assertThat(CodecCompatibility.streamMuxer("xyz")).isNull();
+        assertThat(CodecCompatibility.streamMuxer(null)).isNull();
+    }
+
+    @Test
+    void testEncoderSampleRate_picksNextSupportedRate() {
+        assertThat(CodecCompatibility.encoderSampleRate(AV_CODEC_ID_OPUS, 44100)).isEqualTo(48000);
+        assertThat(CodecCompatibility.encoderSampleRate(AV_CODEC_ID_OPUS, 16000)).isEqualTo(16000);
+        assertThat(CodecCompatibility.encoderSampleRate(AV_CODEC_ID_MP3, 96000)).isEqualTo(48000);
+        assertThat(CodecCompatibility.encoderSampleRate(AV_CODEC_ID_FLAC, 88200)).isEqualTo(88200);
+        assertThat(CodecCompatibility.encoderSampleRate(AV_CODEC_ID_NONE, 12345)).isEqualTo(12345);
+    }
+}
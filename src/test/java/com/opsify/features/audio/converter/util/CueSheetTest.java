@@ -0,0 +1,84 @@
+package com.opsify.features.audio.converter.util;
+
+import com.opsify.features.audio.converter.utils.CueSheet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CueSheetTest {
+
+    private static final String ALBUM = """
+            REM GENRE Jazz
+            REM DATE 1959
+            PERFORMER "The Quartet"
+            TITLE "Time Out"
+            FILE "Time Out.wav" WAVE
+              TRACK 01 AUDIO
+                TITLE "Blue Rondo"
+                INDEX 01 00:00:00
+              TRACK 02 AUDIO
+                TITLE "Strange Meadow Lark"
+                PERFORMER "Dave"
+                INDEX 00 06:42:10
+                INDEX 01 06:44:00
+              TRACK 03 AUDIO
+                INDEX 01 14:06:37
+            """;
+
+    @Test
+    void testParse_albumAndTracks() {
+        CueSheet sheet = CueSheet.parse(ALBUM);
+
+        assertThat(sheet.title()).isEqualTo("Time Out");
+        assertThat(sheet.performer()).isEqualTo("The Quartet");
+        assertThat(sheet.date()).isEqualTo("1959");
+        assertThat(sheet.genre()).isEqualTo("Jazz");
+        assertThat(sheet.file()).isEqualTo("Time Out.wav");
+        assertThat(sheet.tracks()).containsExactly(
+                new CueSheet.Track(1, "Blue Rondo", null, 0),
+                new CueSheet.Track(2, "Strange Meadow Lark", "Dave", (6 * 60 + 44) * 75),
+                new CueSheet.Track(3, null, null, (14 * 60 + 6) * 75 + 37));
+    }
+
+    @Test
+    void testParse_rejectsSheetsThatAreNotImages() {
+        assertThat(CueSheet.parse("FILE \"a.wav\" WAVE\nTRACK 01 AUDIO\nINDEX 01 00:00:00\n"
+                + "FILE \"b.wav\" WAVE\nTRACK 02 AUDIO\nINDEX 01 00:00:00\n")).isNull();
+        assertThat(CueSheet.parse("FILE \"a.wav\" WAVE\nTRACK 01 AUDIO\nINDEX 00 00:00:00\n")).isNull();
+        assertThat(CueSheet.parse("FILE \"a.wav\" WAVE\nTRACK 01 AUDIO\nINDEX 01 00:10:00\n"
+                + "TRACK 02 AUDIO\nINDEX 01 00:05:00\n")).isNull();
+        assertThat(CueSheet.parse("TITLE \"No file\"\n")).isNull();
+    }
+
+    @Test
+    void testStartSamples_firstTrackKeepsPregapAndCdFramesAreExact() {
+        CueSheet sheet = CueSheet.parse(ALBUM);
+
+        assertThat(sheet.startSamples(44100)).containsExactly(0, 404 * 44100L, (846 * 75 + 37) * 588L);
+    }
+
+    @Test
+    void testTrackFileName_numberedAndSafe() {
+        assertThat(CueSheet.trackFileName(new CueSheet.Track(3, "What? / Why: \"Now\"...", null, 0), "flac"))
+                .isEqualTo("03 - What_ _ Why_ _Now_.flac");
+        assertThat(CueSheet.trackFileName(new CueSheet.Track(12, null, null, 0), "mp3")).isEqualTo("12 - Track 12.mp3");
+    }
+
+    @Test
+    void testCompanionOf_matchesImageByBaseName(@TempDir Path tempDir) throws IOException {
+        Path image = Files.writeString(tempDir.resolve("Time Out.flac"), "audio");
+        Path other = Files.writeString(tempDir.resolve("Other.flac"), "audio");
+        Files.writeString(tempDir.resolve("Time Out.cue"), ALBUM);
+        Files.writeString(tempDir.resolve("Other.flac.cue"), ALBUM);
+
+        assertThat(CueSheet.companionOf(image)).isNotNull();
+        // The sheet next to it was written for another file
+        assertThat(CueSheet.companionOf(other)).isNull();
+        assertThat(CueSheet.companionOf(tempDir.resolve("Missing.flac"))).isNull();
+    }
+}
@@ -0,0 +1,20 @@
+package com.opsify.features.audio.converter.util;
+
+import com.opsify.features.audio.converter.utils.FfmpegWarmup;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FfmpegWarmupTest {
+
+    @Test
+    void testAwaitReady_waitsForBackgroundLoadOnce() {
+        FfmpegWarmup.warmUpInBackground();
+        FfmpegWarmup.warmUpInBackground();
+
+        FfmpegWarmup.awaitReady();
+
+        assertThat(FfmpegWarmup.isReady()).isTrue();
+        assertThat(FfmpegWarmup.awaitReady()).isZero();
+    }
+}
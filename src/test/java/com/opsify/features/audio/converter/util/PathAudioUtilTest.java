@@ -169,63 +169,6 @@ class PathAudioUtilTest {
         assertThat(result).isEqualTo(Path.of("/output/song.ogg"));
     }
 
-    @Test
-    void testUnique_FileDoesNotExist() throws IOException {
-        Path desired = Path.of("/nonexistent/file.mp3");
-        Path result = PathAudioUtil.unique(desired);
-        assertThat(result).isEqualTo(desired);
-    }
-
-    @Test
-    void testUnique_FileExistsGeneratesVariant(@TempDir Path tempDir) throws IOException {
-        Path existingFile = tempDir.resolve("song.mp3");
-        Files.createFile(existingFile);
-
-        Path result = PathAudioUtil.unique(existingFile);
-        assertThat(result).isEqualTo(tempDir.resolve("song (1).mp3"));
-        assertThat(result).isNotEqualTo(existingFile);
-    }
-
-    @Test
-    void testUnique_MultipleFilesExistGeneratesSequentialVariants(@TempDir Path tempDir) throws IOException {
-        Path baseFile = tempDir.resolve("audio.wav");
-        Files.createFile(baseFile);
-        Files.createFile(tempDir.resolve("audio (1).wav"));
-        Files.createFile(tempDir.resolve("audio (2).wav"));
-
-        Path result = PathAudioUtil.unique(baseFile);
-        assertThat(result).isEqualTo(tempDir.resolve("audio (3).wav"));
-    }
-
-    @Test
-    void testUnique_FileNoExtensionExists(@TempDir Path tempDir) throws IOException {
-        Path existingFile = tempDir.resolve("audio");
-        Files.createFile(existingFile);
-
-        Path result = PathAudioUtil.unique(existingFile);
-        assertThat(result).isEqualTo(tempDir.resolve("audio (1)"));
-    }
-
-    @Test
-    void testUnique_FileWithMultipleDots(@TempDir Path tempDir) throws IOException {
-        Path existingFile = tempDir.resolve("audio.file.mp3");
-        Files.createFile(existingFile);
-
-        Path result = PathAudioUtil.unique(existingFile);
-        assertThat(result).isEqualTo(tempDir.resolve("audio.file (1).mp3"));
-    }
-
-    @Test
-    void testUnique_FileInSubdirectory(@TempDir Path tempDir) throws IOException {
-        Path subDir = tempDir.resolve("subdir");
-        Files.createDirectory(subDir);
-        Path existingFile = subDir.resolve("song.flac");
-        Files.createFile(existingFile);
-
-        Path result = PathAudioUtil.unique(existingFile);
-        assertThat(result).isEqualTo(subDir.resolve("song (1).flac"));
-    }
-
     @Test
     void testConstructor_Private() throws Exception {
         var constructor = PathAudioUtil.class.getDeclaredConstructor();
@@ -236,24 +179,6 @@ class PathAudioUtilTest {
         assertThatCode(constructor::newInstance).doesNotThrowAnyException();
     }
 
-    @Test
-    void testUnique_FileWithOnlySpacesInName(@TempDir Path tempDir) throws IOException {
-        Path existingFile = tempDir.resolve("   .txt");
-        Files.createFile(existingFile);
-
-        Path result = PathAudioUtil.unique(existingFile);
-        assertThat(result).isEqualTo(tempDir.resolve("    (1).txt"));
-    }
-
-    @Test
-    void testUnique_FileWithSpecialCharacters(@TempDir Path tempDir) throws IOException {
-        Path existingFile = tempDir.resolve("file@name#.mp3");
-        Files.createFile(existingFile);
-
-        Path result = PathAudioUtil.unique(existingFile);
-        assertThat(result).isEqualTo(tempDir.resolve("file@name# (1).mp3"));
-    }
-
     // ---- Fixed cross-platform versions ----
 
     @Test
@@ -315,23 +240,27 @@ class PathAudioUtilTest {
     }
 
     @Test
-    void testUnique_FileWithExistingHighNumber(@TempDir Path tempDir) throws IOException {
-        Path baseFile = tempDir.resolve("test.txt");
-        Files.createFile(baseFile);
-        Files.createFile(tempDir.resolve("test (100).txt"));
+    void testCopyFile_CopiesContent(@TempDir Path tempDir) throws IOException {
+        Path source = tempDir.resolve("source.mp3");
+        byte[] content = new byte[256 * 1024];
+        for (int i = 0; i < content.length; i++) content[i] = (byte) i;
+        Files.write(source, content);
+        Path target = tempDir.resolve("target.mp3");
+
+        PathAudioUtil.copyFile(source, target);
 
-        Path result = PathAudioUtil.unique(baseFile);
-        assertThat(result).isEqualTo(tempDir.resolve("test (1).txt"));
+        assertThat(Files.readAllBytes(target)).isEqualTo(content);
     }
 
     @Test
-    void testUnique_FileWithGapsInNumbering(@TempDir Path tempDir) throws IOException {
-        Path baseFile = tempDir.resolve("test.txt");
-        Files.createFile(baseFile);
-        Files.createFile(tempDir.resolve("test (1).txt"));
-        Files.createFile(tempDir.resolve("test (3).txt"));
-
-        Path result = PathAudioUtil.unique(baseFile);
-        assertThat(result).isEqualTo(tempDir.resolve("test (2).txt"));
+    void testCopyFile_ReplacesExistingTarget(@TempDir Path tempDir) throws IOException {
+        Path source = tempDir.resolve("source.mp3");
+        Files.writeString(source, "new");
+        Path target = tempDir.resolve("target.mp3");
+        Files.writeString(target, "much longer old content");
+
+        PathAudioUtil.copyFile(source, target);
+
+        assertThat(Files.readString(target)).isEqualTo("new");
     }
 }
@@ -0,0 +1,141 @@
+package com.opsify.features.image.renamer.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CaptureDateCacheTest {
+
+    private static final Date CAPTURED = new Date(1_500_000_000_000L);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testGet_returnsDateRecordedByAnEarlierRun() throws IOException {
+        Path photo = photo("a.jpg");
+        Path file = tempDir.resolve("cache").resolve("capture-dates");
+        try (CaptureDateCache cache = CaptureDateCache.open(file)) {
+            cache.put(photo, attrs(photo), CAPTURED);
+        }
+
+        try (CaptureDateCache cache = CaptureDateCache.open(file)) {
+            assertThat(cache.get(photo, attrs(photo))).isEqualTo(CAPTURED);
+            assertThat(cache.hits()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testGet_missesOnceTheFileChanged() throws IOException {
+        Path photo = photo("a.jpg");
+        Path file = tempDir.resolve("capture-dates");
+        try (CaptureDateCache cache = CaptureDateCache.open(file)) {
+            cache.put(photo, attrs(photo), CAPTURED);
+        }
+        Files.setLastModifiedTime(photo, FileTime.fromMillis(1_700_000_000_000L));
+
+        try (CaptureDateCache cache = CaptureDateCache.open(file)) {
+            assertThat(cache.get(photo, attrs(photo))).isNull();
+            assertThat(cache.misses()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testClose_compactsJournalToOneLinePerFile() throws IOException {
+        Path photo = photo("a.jpg");
+        Path file = tempDir.resolve("capture-dates");
+        try (CaptureDateCache cache = CaptureDateCache.open(file)) {
+            cache.put(photo, attrs(photo), new Date(1));
+            cache.put(photo, attrs(photo), CAPTURED);
+        }
+
+        assertThat(Files.readAllLines(file)).hasSize(2).last().asString()
+                .isEqualTo(photo.toAbsolutePath() + "\t5\t" + attrs(photo).lastModifiedTime().toMillis()
+                        + "\t" + CAPTURED.getTime());
+    }
+
+    @Test
+    void testClose_skipsPathsThatWouldBreakTheirLine() throws IOException {
+        Path photo = photo("a.jpg");
+        Path newline = photo("b.jpg\nx\t5\t0\t0");
+        Path tab = photo("c\td.jpg");
+        Path file = tempDir.resolve("capture-dates");
+        try (CaptureDateCache cache = CaptureDateCache.open(file)) {
+            for (Path p : List.of(photo, newline, tab)) cache.put(p, attrs(p), CAPTURED);
+        }
+
+        assertThat(cachedPaths(file)).containsExactly(photo.toAbsolutePath().toString());
+        assertThat(Files.readAllLines(file)).allMatch(line -> line.startsWith("#") || line.split("\t", -1).length == 4);
+        try (CaptureDateCache cache = CaptureDateCache.open(file)) {
+            assertThat(cache.get(newline, attrs(newline))).isNull();
+        }
+    }
+
+    @Test
+    void testClose_dropsVanishedFilesOnlyUnderListedRoots() throws IOException {
+        Path kept = photo("album/kept.jpg");
+        Path gone = photo("album/gone.mp4");
+        Path sibling = photo("album 2/gone.jpg");
+        Path elsewhere = photo("other/gone.jpg");
+        Path file = tempDir.resolve("capture-dates");
+        try (CaptureDateCache cache = CaptureDateCache.open(file)) {
+            for (Path photo : List.of(kept, gone, sibling, elsewhere)) cache.put(photo, attrs(photo), CAPTURED);
+        }
+        Files.delete(gone);
+        Files.delete(sibling);
+        Files.delete(elsewhere);
+
+        // A run over the album finds only the kept file; files outside the album are not checked
+        try (CaptureDateCache cache = CaptureDateCache.open(file)) {
+            cache.listed(tempDir.resolve("album"), List.of(kept));
+        }
+
+        assertThat(cachedPaths(file)).containsExactlyInAnyOrder(
+                kept.toAbsolutePath().toString(), sibling.toAbsolutePath().toString(), elsewhere.toAbsolutePath().toString());
+    }
+
+    @Test
+    void testClose_keepsDatesOfAnotherRunSharingTheFile() throws IOException {
+        Path a = photo("a.jpg");
+        Path b = photo("b.jpg");
+        Path file = tempDir.resolve("capture-dates");
+
+        CaptureDateCache first = CaptureDateCache.open(file);
+        CaptureDateCache second = CaptureDateCache.open(file);
+        first.put(a, attrs(a), CAPTURED);
+        second.put(b, attrs(b), CAPTURED);
+        // Each compaction merges into what the other left on disk
+        first.close();
+        second.close();
+
+        try (CaptureDateCache cache = CaptureDateCache.open(file)) {
+            assertThat(cache.get(a, attrs(a))).isEqualTo(CAPTURED);
+            assertThat(cache.get(b, attrs(b))).isEqualTo(CAPTURED);
+        }
+        assertThat(cachedPaths(file)).hasSize(2);
+    }
+
+    private Path photo(String name) throws IOException {
+        Path photo = tempDir.resolve(name);
+        Files.createDirectories(photo.getParent());
+        return Files.writeString(photo, "photo");
+    }
+
+    private static List<String> cachedPaths(Path file) throws IOException {
+        return Files.readAllLines(file).stream().filter(line -> !line.startsWith("#"))
+                .map(line -> line.substring(0, line.indexOf('\t'))).toList();
+    }
+
+    private static BasicFileAttributes attrs(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+}
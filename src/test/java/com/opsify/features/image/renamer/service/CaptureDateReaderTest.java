@@ -0,0 +1,135 @@
+package com.opsify.features.image.renamer.service;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import com.drew.metadata.mp4.Mp4Directory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CaptureDateReaderTest {
+
+    private static final Date FALLBACK_DATE = new Date(42);
+
+    private final List<Path> fellBack = new ArrayList<>();
+    private final CaptureDateReader reader = new CaptureDateReader(file -> {
+        fellBack.add(file);
+        return FALLBACK_DATE;
+    });
+
+    @Test
+    void testRead_jpegExifDateMatchesMetadataExtractor(@TempDir Path tempDir) throws Exception {
+        for (ByteOrder order : List.of(ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN)) {
+            Path jpeg = Files.write(tempDir.resolve(order + ".jpg"), jpeg(tiff(order, "2021:06:15 10:20:30")));
+
+            Metadata metadata = ImageMetadataReader.readMetadata(jpeg.toFile());
+            Date expected = metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class)
+                    .getDate(ExifSubIFDDirectory.TAG_DATETIME_ORIGINAL);
+
+            assertThat(reader.read(jpeg)).isEqualTo(expected);
+        }
+        assertThat(fellBack).isEmpty();
+    }
+
+    @Test
+    void testRead_tiffReadsOnlyTheIfdsOnTheWay(@TempDir Path tempDir) throws Exception {
+        Path tiff = Files.write(tempDir.resolve("a.tif"), tiff(ByteOrder.BIG_ENDIAN, "2019:01:02 03:04:05"));
+
+        assertThat(reader.read(tiff)).isEqualTo(Date.from(Instant.parse("2019-01-02T03:04:05Z")));
+        // Header, two one-entry IFDs and the 20-byte value
+        assertThat(reader.stats().bytesRead()).isEqualTo(8 + 14 + 14 + 20);
+    }
+
+    @Test
+    void testRead_jpegWithoutExifUsesModificationTime(@TempDir Path tempDir) throws Exception {
+        Path jpeg = Files.write(tempDir.resolve("a.jpg"), jpeg(null));
+        Files.setLastModifiedTime(jpeg, FileTime.fromMillis(1_600_000_000_000L));
+
+        assertThat(reader.read(jpeg)).isEqualTo(new Date(1_600_000_000_000L));
+        assertThat(fellBack).isEmpty();
+    }
+
+    @Test
+    void testRead_unusualDateFallsBack(@TempDir Path tempDir) throws Exception {
+        Path jpeg = Files.write(tempDir.resolve("a.jpg"), jpeg(tiff(ByteOrder.LITTLE_ENDIAN, "2021-06-15T10:20:30")));
+
+        assertThat(reader.read(jpeg)).isSameAs(FALLBACK_DATE);
+        assertThat(reader.stats().fallbacks()).isEqualTo(1);
+    }
+
+    @Test
+    void testRead_mp4SkipsMediaDataToTheMovieHeader(@TempDir Path tempDir) throws Exception {
+        long seconds = 3_700_000_000L; // 2021 in the 1904 epoch
+        Path mp4 = Files.write(tempDir.resolve("a.mp4"), mp4(seconds, 4 << 20));
+
+        Metadata metadata = ImageMetadataReader.readMetadata(mp4.toFile());
+        Date expected = metadata.getFirstDirectoryOfType(Mp4Directory.class).getDate(Mp4Directory.TAG_CREATION_TIME);
+
+        assertThat(reader.read(mp4)).isEqualTo(expected);
+        assertThat(reader.stats().bytesRead()).isLessThan(100);
+        assertThat(fellBack).isEmpty();
+    }
+
+    @Test
+    void testRead_otherFormatsFallBack(@TempDir Path tempDir) throws Exception {
+        Path png = Files.write(tempDir.resolve("a.png"), new byte[16]);
+
+        assertThat(reader.read(png)).isSameAs(FALLBACK_DATE);
+        assertThat(fellBack).containsExactly(png);
+    }
+
+    /** TIFF with IFD0 pointing to an EXIF IFD holding only DateTimeOriginal. */
+    static byte[] tiff(ByteOrder order, String date) {
+        ByteBuffer tiff = ByteBuffer.allocate(64).order(order);
+        tiff.putShort((short) (order == ByteOrder.LITTLE_ENDIAN ? 0x4949 : 0x4d4d)).putShort((short) 42).putInt(8);
+        // IFD0 at 8: the EXIF IFD pointer
+        tiff.putShort((short) 1).putShort((short) 0x8769).putShort((short) 4).putInt(1).putInt(26).putInt(0);
+        // EXIF IFD at 26: DateTimeOriginal, 20 ASCII bytes at 44
+        tiff.putShort((short) 1).putShort((short) 0x9003).putShort((short) 2).putInt(20).putInt(44).putInt(0);
+        tiff.put(date.getBytes(StandardCharsets.US_ASCII)).put((byte) 0);
+        return Arrays.copyOf(tiff.array(), tiff.position());
+    }
+
+    /** Baseline JPEG header: JFIF, an EXIF block if given, and an empty scan. */
+    static byte[] jpeg(byte[] exif) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{(byte) 0xff, (byte) 0xd8});
+        out.writeBytes(new byte[]{(byte) 0xff, (byte) 0xe0, 0, 16, 'J', 'F', 'I', 'F', 0, 1, 1, 0, 0, 1, 0, 1, 0, 0});
+        if (exif != null) {
+            int length = 2 + 6 + exif.length;
+            out.writeBytes(new byte[]{(byte) 0xff, (byte) 0xe1, (byte) (length >> 8), (byte) length});
+            out.writeBytes("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+            out.writeBytes(exif);
+        }
+        out.writeBytes(new byte[]{(byte) 0xff, (byte) 0xda, 0, 2, (byte) 0xff, (byte) 0xd9});
+        return out.toByteArray();
+    }
+
+    /** ftyp, an {@code mdatSize}-byte mdat, then moov holding a version 0 mvhd. */
+    private static byte[] mp4(long creationSeconds, int mdatSize) {
+        ByteBuffer mp4 = ByteBuffer.allocate(20 + 8 + mdatSize + 8 + 108);
+        mp4.putInt(20).put("ftypisom".getBytes(StandardCharsets.US_ASCII)).putInt(0x200)
+                .put("isom".getBytes(StandardCharsets.US_ASCII));
+        mp4.putInt(8 + mdatSize).put("mdat".getBytes(StandardCharsets.US_ASCII)).position(mp4.position() + mdatSize);
+        mp4.putInt(8 + 108).put("moov".getBytes(StandardCharsets.US_ASCII));
+        mp4.putInt(108).put("mvhd".getBytes(StandardCharsets.US_ASCII))
+                .putInt(0).putInt((int) creationSeconds).putInt((int) creationSeconds).putInt(1000).putInt(0)
+                .putInt(0x10000).putShort((short) 0x100);
+        return mp4.array();
+    }
+}
@@ -0,0 +1,120 @@
+package com.opsify.features.image.renamer.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileTransferTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTransfer_copyKeepsSourceAndModificationTime() throws IOException {
+        Path source = source("a.jpg");
+        Path target = reserved("out.jpg");
+
+        TransferMode used = new FileTransfer(TransferMode.COPY).transfer(source, target);
+
+        assertThat(used).isEqualTo(TransferMode.COPY);
+        assertThat(source).exists();
+        assertThat(target).hasContent("photo");
+        assertThat(Files.getLastModifiedTime(target)).isEqualTo(Files.getLastModifiedTime(source));
+    }
+
+    @Test
+    void testTransfer_moveRenamesWithinTheFilesystem() throws IOException {
+        Path source = source("a.jpg");
+        Object key = Files.readAttributes(source, BasicFileAttributes.class).fileKey();
+        Path target = reserved("out.jpg");
+
+        TransferMode used = new FileTransfer(TransferMode.MOVE).transfer(source, target);
+
+        assertThat(used).isEqualTo(TransferMode.MOVE);
+        assertThat(source).doesNotExist();
+        assertThat(Files.readAttributes(target, BasicFileAttributes.class).fileKey()).isEqualTo(key);
+    }
+
+    @Test
+    void testTransfer_hardlinkSharesTheDataAndLeavesNoTemporaryName() throws IOException {
+        Path source = source("a.jpg");
+        Path target = reserved("out.jpg");
+
+        TransferMode used = new FileTransfer(TransferMode.HARDLINK).transfer(source, target);
+
+        assertThat(used).isEqualTo(TransferMode.HARDLINK);
+        assertThat(Files.isSameFile(source, target)).isTrue();
+        try (var names = Files.list(target.getParent())) {
+            assertThat(names).extracting(p -> p.getFileName().toString()).containsExactly("out.jpg");
+        }
+    }
+
+    @Test
+    void testTransfer_hardlinkFallsBackToCopyOnFilesystemsWithoutLinks() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+        FileTransfer transfer = new FileTransfer(TransferMode.HARDLINK, (link, existing) -> {
+            attempts.incrementAndGet();
+            throw new UnsupportedOperationException("exFAT");
+        });
+        Path target = reserved("out.jpg");
+
+        TransferMode used = transfer.transfer(source("a.jpg"), target);
+        TransferMode next = transfer.transfer(source("b.jpg"), reserved("out_0.jpg"));
+
+        assertThat(used).isEqualTo(TransferMode.COPY);
+        assertThat(next).isEqualTo(TransferMode.COPY);
+        assertThat(target).hasContent("photo");
+        assertThat(Files.isSameFile(tempDir.resolve("a.jpg"), target)).isFalse();
+        // Remembered per filesystem, so only the first file tries to link
+        assertThat(attempts).hasValue(1);
+        assertThat(transfer.counts().get(TransferMode.COPY)).isEqualTo(2);
+        try (var names = Files.list(target.getParent())) {
+            assertThat(names).extracting(p -> p.getFileName().toString()).containsExactlyInAnyOrder("out.jpg", "out_0.jpg");
+        }
+    }
+
+    @Test
+    void testTransfer_hardlinkFallsBackToCopyWhenTheShareRefusesLinks() throws IOException {
+        FileTransfer transfer = new FileTransfer(TransferMode.HARDLINK, (link, existing) -> {
+            throw new FileSystemException(link.toString(), existing.toString(), "Operation not permitted");
+        });
+        Path target = reserved("out.jpg");
+
+        assertThat(transfer.transfer(source("a.jpg"), target)).isEqualTo(TransferMode.COPY);
+        assertThat(target).hasContent("photo");
+    }
+
+    @Test
+    void testTransfer_cloneFallsBackToCopyWhereUnsupported() throws IOException {
+        Path source = source("a.jpg");
+        Path target = reserved("out.jpg");
+        FileTransfer transfer = new FileTransfer(TransferMode.CLONE);
+
+        TransferMode used = transfer.transfer(source, target);
+
+        // Either way the output is an independent file with the same content
+        assertThat(used).isIn(TransferMode.CLONE, TransferMode.COPY);
+        assertThat(target).hasContent("photo");
+        assertThat(Files.isSameFile(source, target)).isFalse();
+        assertThat(transfer.counts().get(used)).isEqualTo(1);
+    }
+
+    private Path source(String name) throws IOException {
+        Path source = Files.writeString(tempDir.resolve(name), "photo");
+        Files.setLastModifiedTime(source, FileTime.fromMillis(1_500_000_000_000L));
+        return source;
+    }
+
+    private Path reserved(String name) throws IOException {
+        return Files.createFile(Files.createDirectories(tempDir.resolve("out")).resolve(name));
+    }
+}
@@ -0,0 +1,44 @@
+package com.opsify.features.image.renamer.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ImageRenamerServiceImplTest {
+
+    @Test
+    void testRenameImages_repeatRunTakesUnchangedFilesDatesFromTheCache(@TempDir Path tempDir) throws Exception {
+        Path input = Files.createDirectories(tempDir.resolve("in"));
+        Path photo = input.resolve("a.jpg");
+        Files.write(photo, CaptureDateReaderTest.jpeg(CaptureDateReaderTest.tiff(ByteOrder.BIG_ENDIAN, "2020:01:01 10:00:00")));
+        FileTime modified = Files.getLastModifiedTime(photo);
+        ImageRenamerServiceImpl renamer = new ImageRenamerServiceImpl(tempDir.resolve("capture-dates"));
+
+        renamer.renameImages(input.toString(), tempDir.resolve("first").toString(), "yyyy", false, false, false,
+                mock(RenamerListener.class));
+        // Same size and mtime but a different date inside: only a cache hit still names it 2020
+        Files.write(photo, CaptureDateReaderTest.jpeg(CaptureDateReaderTest.tiff(ByteOrder.BIG_ENDIAN, "2023:01:01 10:00:00")));
+        Files.setLastModifiedTime(photo, modified);
+        renamer.renameImages(input.toString(), tempDir.resolve("second").toString(), "yyyy", false, false, false,
+                mock(RenamerListener.class));
+
+        assertThat(fileNames(tempDir.resolve("second"))).containsExactly("2020.jpg");
+        assertThat(renamer.extractOriginalCreationDate(photo)).hasYear(2023);
+    }
+
+    private static List<String> fileNames(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString()).toList();
+        }
+    }
+}
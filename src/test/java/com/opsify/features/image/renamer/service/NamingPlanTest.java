@@ -0,0 +1,89 @@
+package com.opsify.features.image.renamer.service;
+
+import com.opsify.utils.Constants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NamingPlanTest {
+
+    private static final Date DATE = new Date(1_623_752_430_000L);
+
+    @Test
+    void testTarget_namesLikeSimpleDateFormatForEverySchema(@TempDir Path tempDir) {
+        for (String schema : Constants.IMAGE_SCHEMAS) {
+            NamingPlan plan = NamingPlan.compile(tempDir, schema, false, false, false);
+
+            assertThat(plan.target(DATE, ".jpg"))
+                    .isEqualTo(tempDir.resolve(new SimpleDateFormat(schema).format(DATE) + ".jpg"));
+        }
+    }
+
+    @Test
+    void testTarget_keepsSimpleDateFormatMeaningForCustomSchemas(@TempDir Path tempDir) {
+        List<String> schemas = List.of(
+                "u", "uu_EEE", "EEEE", "EEEEE", "YYYY-'W'ww", "W", "F", "D", "DDD", "ddd",
+                "MMM", "MMMM", "MMMMM", "LLL", "a hh", "k K H h", "S", "SSS", "SSSS", "ss.SSS",
+                "y", "yy", "yyy", "G", "GGGG", "z", "zzzz", "Z", "X", "XX", "XXX",
+                "yyyy'T'HH", "'IMG_'yyyyMMdd", "'it''s' dd", "''dd''", "yyyy-MM-dd (HH.mm)");
+        // A Sunday week-year edge, a summer afternoon with milliseconds, a winter morning and a leap-day midnight
+        List<Date> dates = List.of(new Date(1_609_632_000_000L), new Date(1_623_752_430_123L),
+                new Date(1_580_540_405_007L), new Date(1_582_930_800_000L));
+        TimeZone original = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+        try {
+            for (String schema : schemas) {
+                NamingPlan plan = NamingPlan.compile(tempDir, schema, false, false, false);
+                for (Date date : dates) {
+                    assertThat(plan.target(date, ".jpg")).as(schema)
+                            .isEqualTo(tempDir.resolve(new SimpleDateFormat(schema).format(date) + ".jpg"));
+                }
+            }
+        } finally {
+            TimeZone.setDefault(original);
+        }
+    }
+
+    @Test
+    void testCompile_rejectsSchemasSimpleDateFormatRejects(@TempDir Path tempDir) {
+        for (String schema : List.of("yyyy_MM_dd_'open", "yyyy-MM-dd_q", "XXXX", "bb")) {
+            assertThatThrownBy(() -> new SimpleDateFormat(schema)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> NamingPlan.compile(tempDir, schema, false, false, false))
+                    .as(schema).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void testTarget_groupsByYearMonthAndDay(@TempDir Path tempDir) {
+        NamingPlan plan = NamingPlan.compile(tempDir, "HHmmss", true, true, true);
+
+        assertThat(plan.target(DATE, ".mp4")).isEqualTo(tempDir
+                .resolve(new SimpleDateFormat("yyyy").format(DATE))
+                .resolve(new SimpleDateFormat("yyyy-MM").format(DATE))
+                .resolve(new SimpleDateFormat("dd").format(DATE))
+                .resolve(new SimpleDateFormat("HHmmss").format(DATE) + ".mp4"));
+    }
+
+    @Test
+    void testCreateTarget_createsEachDirectoryOnce(@TempDir Path tempDir) throws IOException {
+        NamingPlan plan = NamingPlan.compile(tempDir, "HHmmss", true, false, false);
+
+        Path first = plan.createTarget(DATE, ".jpg");
+        assertThat(first.getParent()).isDirectory();
+        Files.delete(first.getParent());
+        Path second = plan.createTarget(new Date(DATE.getTime() + 1000), ".jpg");
+
+        // Remembered as created, so not looked at again
+        assertThat(second.getParent()).isEqualTo(first.getParent()).doesNotExist();
+    }
+}
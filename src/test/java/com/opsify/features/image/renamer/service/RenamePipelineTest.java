@@ -0,0 +1,122 @@
+package com.opsify.features.image.renamer.service;
+
+import com.opsify.utils.OutputReservations;
+import com.opsify.utils.OutputReservations.NameStyle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RenamePipelineTest {
+
+    private final RecordingListener listener = new RecordingListener();
+
+    @Test
+    void testRun_suffixesFollowInputOrderWhateverFinishesFirst(@TempDir Path tempDir) throws IOException {
+        List<Path> files = inputs(tempDir, 12);
+        OutputReservations reservations = new OutputReservations();
+        Map<Path, Path> targets = new ConcurrentHashMap<>();
+
+        // Later files are extracted faster, so extraction finishes roughly in reverse
+        new RenamePipeline(4, 2, 8).run(files,
+                file -> {
+                    Thread.sleep(5L * (files.size() - files.indexOf(file)));
+                    return new Date(0);
+                },
+                (file, date) -> reservations.reserve(tempDir.resolve("out.jpg"), NameStyle.UNDERSCORED),
+                (file, target) -> targets.put(file, target),
+                listener);
+
+        assertThat(targets.get(files.get(0)).getFileName()).hasToString("out.jpg");
+        for (int i = 1; i < files.size(); i++) {
+            assertThat(targets.get(files.get(i)).getFileName()).hasToString("out_" + (i - 1) + ".jpg");
+        }
+    }
+
+    @Test
+    void testRun_reportsEveryFileOnceWithAscendingCounts(@TempDir Path tempDir) throws IOException {
+        List<Path> files = inputs(tempDir, 20);
+
+        new RenamePipeline(3, 3, 4).run(files,
+                file -> {
+                    if (files.indexOf(file) % 5 == 0) throw new IOException("unreadable");
+                    return new Date(0);
+                },
+                (file, date) -> tempDir.resolve("out-" + file.getFileName()),
+                (file, target) -> {
+                    if (files.indexOf(file) % 7 == 0) throw new IOException("disk full");
+                },
+                listener);
+
+        assertThat(listener.counts).containsExactlyElementsOf(range(1, files.size()));
+        // 0, 5, 10, 15 fail to extract and 7, 14 to write
+        assertThat(listener.errors).hasSize(6);
+        assertThat(listener.errors).anySatisfy(e -> assertThat(e).hasMessage("unreadable"))
+                .anySatisfy(e -> assertThat(e).hasMessage("disk full"));
+    }
+
+    @Test
+    void testRun_keepsAtMostTheWindowInFlight(@TempDir Path tempDir) throws IOException {
+        List<Path> files = inputs(tempDir, 40);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        new RenamePipeline(4, 1, 5).run(files,
+                file -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return new Date(0);
+                },
+                (file, date) -> file,
+                (file, target) -> {
+                    Thread.sleep(2);
+                    inFlight.decrementAndGet();
+                },
+                listener);
+
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(5);
+        assertThat(listener.counts).hasSize(files.size());
+    }
+
+    private static List<Path> inputs(Path dir, int count) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) files.add(Files.createFile(dir.resolve(String.format("in%02d.jpg", i))));
+        return files;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = from; i <= to; i++) values.add(i);
+        return values;
+    }
+
+    private static final class RecordingListener implements RenamerListener {
+        final List<Integer> counts = new CopyOnWriteArrayList<>();
+        final List<Exception> errors = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onStart(int total) {
+        }
+
+        @Override
+        public void onFileDone(String input, String output, int done, int total) {
+            counts.add(done);
+        }
+
+        @Override
+        public void onError(String input, Exception e, int done, int total) {
+            counts.add(done);
+            errors.add(e);
+        }
+    }
+}
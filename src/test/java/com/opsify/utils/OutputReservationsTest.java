@@ -0,0 +1,126 @@
+package com.opsify.utils;
+
+import com.opsify.utils.OutputReservations.NameStyle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutputReservationsTest {
+
+    @Test
+    void testReserve_freeNameIsClaimedAsIs(@TempDir Path tempDir) throws IOException {
+        Path reserved = new OutputReservations().reserve(tempDir.resolve("song.mp3"), NameStyle.PARENTHESIZED);
+
+        assertThat(reserved).isEqualTo(tempDir.resolve("song.mp3"));
+        assertThat(reserved).isEmptyFile();
+    }
+
+    @Test
+    void testReserve_takenNamesGetSuffixesInStyle(@TempDir Path tempDir) throws IOException {
+        Files.writeString(tempDir.resolve("song.mp3"), "existing");
+        Files.writeString(tempDir.resolve("photo.jpg"), "existing");
+        OutputReservations reservations = new OutputReservations();
+
+        assertThat(reservations.reserve(tempDir.resolve("song.mp3"), NameStyle.PARENTHESIZED))
+                .isEqualTo(tempDir.resolve("song (1).mp3"));
+        assertThat(reservations.reserve(tempDir.resolve("song.mp3"), NameStyle.PARENTHESIZED))
+                .isEqualTo(tempDir.resolve("song (2).mp3"));
+        assertThat(reservations.reserve(tempDir.resolve("photo.jpg"), NameStyle.UNDERSCORED))
+                .isEqualTo(tempDir.resolve("photo_0.jpg"));
+        assertThat(reservations.reserve(tempDir.resolve("doc.pdf"), new NameStyle(" (%d)", 2)))
+                .isEqualTo(tempDir.resolve("doc.pdf"));
+        assertThat(reservations.reserve(tempDir.resolve("doc.pdf"), new NameStyle(" (%d)", 2)))
+                .isEqualTo(tempDir.resolve("doc (2).pdf"));
+        assertThat(tempDir.resolve("song.mp3")).hasContent("existing");
+    }
+
+    @Test
+    void testReserve_suffixGoesBeforeTheLastExtensionAndFillsGaps(@TempDir Path tempDir) throws IOException {
+        for (String name : List.of("audio", "audio.file.mp3", "test.txt", "test (1).txt", "test (3).txt")) {
+            Files.createFile(tempDir.resolve(name));
+        }
+        OutputReservations reservations = new OutputReservations();
+
+        assertThat(reservations.reserve(tempDir.resolve("audio"), NameStyle.PARENTHESIZED))
+                .isEqualTo(tempDir.resolve("audio (1)"));
+        assertThat(reservations.reserve(tempDir.resolve("audio.file.mp3"), NameStyle.PARENTHESIZED))
+                .isEqualTo(tempDir.resolve("audio.file (1).mp3"));
+        assertThat(reservations.reserve(tempDir.resolve("test.txt"), NameStyle.PARENTHESIZED))
+                .isEqualTo(tempDir.resolve("test (2).txt"));
+        assertThat(reservations.reserve(tempDir.resolve("test.txt"), NameStyle.PARENTHESIZED))
+                .isEqualTo(tempDir.resolve("test (4).txt"));
+    }
+
+    @Test
+    void testReserveDirectory_claimsEmptyDirectoryAndReleaseRemovesIt(@TempDir Path tempDir) throws IOException {
+        Files.createDirectory(tempDir.resolve("album"));
+        OutputReservations reservations = new OutputReservations();
+
+        Path reserved = reservations.reserveDirectory(tempDir.resolve("album"), NameStyle.PARENTHESIZED);
+
+        assertThat(reserved).isEqualTo(tempDir.resolve("album (1)")).isEmptyDirectory();
+        reservations.release(reserved);
+        assertThat(reserved).doesNotExist();
+    }
+
+    @Test
+    void testReserve_skipsFilesCreatedAfterTheDirectoryWasIndexed(@TempDir Path tempDir) throws IOException {
+        OutputReservations reservations = new OutputReservations();
+        reservations.reserve(tempDir.resolve("song.mp3"), NameStyle.PARENTHESIZED);
+        Files.writeString(tempDir.resolve("song (1).mp3"), "written by someone else");
+
+        assertThat(reservations.reserve(tempDir.resolve("song.mp3"), NameStyle.PARENTHESIZED))
+                .isEqualTo(tempDir.resolve("song (2).mp3"));
+        assertThat(tempDir.resolve("song (1).mp3")).hasContent("written by someone else");
+    }
+
+    @Test
+    void testReserve_concurrentClaimsNeverShareAName(@TempDir Path tempDir) throws Exception {
+        OutputReservations reservations = new OutputReservations();
+        Set<Path> claimed = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    claimed.add(reservations.reserve(tempDir.resolve("song.mp3"), NameStyle.PARENTHESIZED));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) future.get();
+        pool.shutdown();
+
+        assertThat(claimed).hasSize(400);
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).hasSize(400);
+        }
+    }
+
+    @Test
+    void testRelease_removesOnlyUnwrittenFiles(@TempDir Path tempDir) throws IOException {
+        OutputReservations reservations = new OutputReservations();
+        Path unused = reservations.reserve(tempDir.resolve("a.mp3"), NameStyle.PARENTHESIZED);
+        Path written = reservations.reserve(tempDir.resolve("b.mp3"), NameStyle.PARENTHESIZED);
+        Files.writeString(written, "converted");
+
+        reservations.release(unused);
+        reservations.release(written);
+
+        assertThat(unused).doesNotExist();
+        assertThat(written).hasContent("converted");
+        assertThat(reservations.reserve(tempDir.resolve("a.mp3"), NameStyle.PARENTHESIZED)).isEqualTo(unused);
+    }
+}